@@ -0,0 +1,114 @@
+package com.stocks.bench;
+
+import com.stocks.util.AlertIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Cost per tick of matching 1M active alerts: the threshold index vs scanning every alert on the symbol
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AlertMatchingBenchmark {
+
+    @Param({"1000000"})
+    private int alerts;
+
+    @Param({"2000"})
+    private int symbolCount;
+
+    private String[] symbols;
+    private double[] prices;
+    private SplittableRandom random;
+    private long nextId;
+
+    private AlertIndex index;
+
+    // Scan baseline: every alert's bounds per symbol
+    private double[][] above;
+    private double[][] below;
+
+    @Setup
+    public void setUp() {
+        random = new SplittableRandom(42);
+        symbols = new String[symbolCount];
+        prices = new double[symbolCount];
+        for (int s = 0; s < symbolCount; s++) {
+            symbols[s] = "SYM" + s;
+            prices[s] = 20 + random.nextDouble() * 480;
+        }
+        index = new AlertIndex();
+        int perSymbol = alerts / symbolCount;
+        above = new double[symbolCount][perSymbol];
+        below = new double[symbolCount][perSymbol];
+        for (int s = 0; s < symbolCount; s++) {
+            for (int i = 0; i < perSymbol; i++) {
+                add(s, i);
+            }
+        }
+    }
+
+    // One tick: a small random-walk step on a random symbol; whatever fires is replaced at the new price
+    @Benchmark
+    public int indexed() {
+        int s = random.nextInt(symbolCount);
+        double price = step(s);
+        int[] fired = {0};
+        index.match(symbols[s], price, id -> fired[0]++);
+        for (int i = 0; i < fired[0]; i++) {
+            add(s, -1);
+        }
+        return fired[0];
+    }
+
+    @Benchmark
+    public int scan() {
+        int s = random.nextInt(symbolCount);
+        double price = step(s);
+        double[] up = above[s];
+        double[] down = below[s];
+        int fired = 0;
+        for (int i = 0; i < up.length; i++) {
+            if (price >= up[i] || price <= down[i]) {
+                fired++;
+                double[] bounds = bounds(price);
+                up[i] = bounds[0];
+                down[i] = bounds[1];
+            }
+        }
+        return fired;
+    }
+
+    private double step(int s) {
+        prices[s] *= 1 + (random.nextDouble() - 0.5) * 0.004;
+        return prices[s];
+    }
+
+    // A new alert 0.1-5% away from the current price: above, below or a two-sided percent move
+    private void add(int s, int slot) {
+        double[] bounds = bounds(prices[s]);
+        index.add(symbols[s], nextId++, bounds[0], bounds[1]);
+        if (slot >= 0) {
+            // NaN never compares true, so an open side never fires in the scan either
+            above[s][slot] = bounds[0];
+            below[s][slot] = bounds[1];
+        }
+    }
+
+    private double[] bounds(double price) {
+        double distance = 0.001 + random.nextDouble() * 0.049;
+        return switch (random.nextInt(3)) {
+            case 0 -> new double[] {price * (1 + distance), Double.NaN};
+            case 1 -> new double[] {Double.NaN, price * (1 - distance)};
+            default -> new double[] {price * (1 + distance), price * (1 - distance)};
+        };
+    }
+}
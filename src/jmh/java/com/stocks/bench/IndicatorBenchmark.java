@@ -0,0 +1,71 @@
+package com.stocks.bench;
+
+import com.stocks.util.Indicator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Full pass of each indicator over a series vs folding in one new bar on a copy of warmed-up state
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class IndicatorBenchmark {
+
+    @Param({"sma:20", "ema:20", "rsi:14", "macd:12:26:9", "bb:20:2", "vwap"})
+    private String indicator;
+
+    @Param({"1000", "100000"})
+    private int bars;
+
+    private long[] timestamp;
+    private double[] high;
+    private double[] low;
+    private double[] close;
+    private long[] volume;
+    private double[][] out;
+    private Indicator warmed;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        timestamp = new long[bars];
+        high = new double[bars];
+        low = new double[bars];
+        close = new double[bars];
+        volume = new long[bars];
+        double price = 100;
+        for (int i = 0; i < bars; i++) {
+            price = Math.max(1, price * (1 + (random.nextDouble() - 0.5) * 0.02));
+            timestamp[i] = 1_704_205_800L + i * 60L;
+            close[i] = price;
+            high[i] = price * (1 + random.nextDouble() * 0.005);
+            low[i] = price * (1 - random.nextDouble() * 0.005);
+            volume[i] = 1_000 + random.nextInt(100_000);
+        }
+        out = new double[Indicator.parse(indicator).outputs().length][bars];
+        warmed = Indicator.parse(indicator);
+        warmed.run(timestamp, high, low, close, volume, 0, bars - 1, out, 0);
+    }
+
+    @Benchmark
+    public double[][] fullSeries() {
+        Indicator fresh = Indicator.parse(indicator);
+        fresh.run(timestamp, high, low, close, volume, 0, bars, out, 0);
+        return out;
+    }
+
+    @Benchmark
+    public double[][] newestBar() {
+        int last = bars - 1;
+        warmed.copy().update(timestamp[last], high[last], low[last], close[last], volume[last], out, last);
+        return out;
+    }
+}
@@ -0,0 +1,54 @@
+package com.stocks.bench;
+
+import com.stocks.service.JwtService;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+// Per-request auth cost: the old rebuild-key-and-parser path vs the cached JwtService
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class JwtAuthBenchmark {
+
+    private static final String SECRET = "benchmark-secret-benchmark-secret-benchmark-secret!";
+
+    private String token;
+    private JwtService jwtService;
+
+    @Setup
+    public void setUp() {
+        token = Jwts.builder()
+            .setSubject("42")
+            .setIssuedAt(new Date())
+            .setExpiration(new Date(System.currentTimeMillis() + 86400000))
+            .signWith(Keys.hmacShaKeyFor(SECRET.getBytes()))
+            .compact();
+        jwtService = new JwtService(SECRET, 10_000);
+        jwtService.extractUserId(token);
+    }
+
+    @Benchmark
+    public Long rebuildAndVerifyEveryRequest() {
+        return Long.parseLong(Jwts.parserBuilder()
+            .setSigningKey(Keys.hmacShaKeyFor(SECRET.getBytes()))
+            .build()
+            .parseClaimsJws(token)
+            .getBody()
+            .getSubject());
+    }
+
+    @Benchmark
+    public Long cachedJwtService() {
+        return jwtService.extractUserId(token);
+    }
+}
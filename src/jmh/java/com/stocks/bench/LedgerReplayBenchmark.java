@@ -0,0 +1,85 @@
+package com.stocks.bench;
+
+import com.stocks.util.PositionBook;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Cost of rebuilding positions by replaying the ledger in full vs from a snapshot
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class LedgerReplayBenchmark {
+
+    @Param({"1000000", "5000000"})
+    private int trades;
+
+    // Share of the ledger written after the last snapshot
+    @Param({"0.01"})
+    private double tailFraction;
+
+    private String[] symbols;
+    private int[] symbolIndex;
+    private boolean[] buy;
+    private int[] quantity;
+    private double[] amount;
+
+    private PositionBook snapshotBook;
+    private int snapshotEnd;
+
+    @Setup
+    public void setUp() {
+        symbols = new String[500];
+        for (int i = 0; i < symbols.length; i++) {
+            symbols[i] = "SYM" + i;
+        }
+        SplittableRandom random = new SplittableRandom(42);
+        symbolIndex = new int[trades];
+        buy = new boolean[trades];
+        quantity = new int[trades];
+        amount = new double[trades];
+        for (int i = 0; i < trades; i++) {
+            symbolIndex[i] = random.nextInt(symbols.length);
+            buy[i] = random.nextInt(3) != 0;
+            quantity[i] = 1 + random.nextInt(20);
+            amount[i] = quantity[i] * (50 + random.nextDouble() * 100);
+        }
+
+        snapshotEnd = (int) (trades * (1 - tailFraction));
+        PositionBook folded = replay(new PositionBook(), 0, snapshotEnd);
+        snapshotBook = new PositionBook();
+        folded.positions().forEach((symbol, position) ->
+                snapshotBook.seed(symbol, position.quantity(), position.cost()));
+    }
+
+    @Benchmark
+    public PositionBook fullReplay() {
+        return replay(new PositionBook(), 0, trades);
+    }
+
+    @Benchmark
+    public PositionBook replayFromSnapshot() {
+        PositionBook book = new PositionBook();
+        snapshotBook.positions().forEach((symbol, position) -> book.seed(symbol, position.quantity(), position.cost()));
+        return replay(book, snapshotEnd, trades);
+    }
+
+    private PositionBook replay(PositionBook book, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buy[i]) {
+                book.buy(symbols[symbolIndex[i]], quantity[i], amount[i]);
+            } else {
+                book.sell(symbols[symbolIndex[i]], quantity[i]);
+            }
+        }
+        return book;
+    }
+}
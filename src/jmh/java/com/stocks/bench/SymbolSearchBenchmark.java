@@ -0,0 +1,78 @@
+package com.stocks.bench;
+
+import com.stocks.service.SymbolSearchIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Latency distribution of one local symbol search over a full listing-sized universe; the sample mode
+// reports p0.99, which should stay under a millisecond even for one-letter queries
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SymbolSearchBenchmark {
+
+    private static final String[] WORDS = {
+        "apple", "american", "bank", "capital", "energy", "first", "global", "health", "holdings",
+        "international", "micro", "national", "pacific", "pharma", "resources", "systems", "technologies",
+        "therapeutics", "trust", "united", "ventures", "water", "western", "group", "corp", "inc", "ltd"
+    };
+
+    @Param({"12000"})
+    private int symbolCount;
+
+    private SymbolSearchIndex index;
+    private String[] queries;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        Map<String, String> universe = new HashMap<>();
+        while (universe.size() < symbolCount) {
+            StringBuilder symbol = new StringBuilder();
+            int length = 1 + random.nextInt(5);
+            for (int i = 0; i < length; i++) {
+                symbol.append((char) ('A' + random.nextInt(26)));
+            }
+            StringBuilder name = new StringBuilder();
+            int words = 2 + random.nextInt(3);
+            for (int i = 0; i < words; i++) {
+                String word = WORDS[random.nextInt(WORDS.length)];
+                name.append(i == 0 ? "" : " ").append(Character.toUpperCase(word.charAt(0))).append(word.substring(1));
+            }
+            universe.put(symbol.toString(), name.toString());
+        }
+        index = new SymbolSearchIndex();
+        index.rebuild(universe);
+
+        // Keystroke-style queries: short symbol prefixes, whole and partial name words, two-word names
+        queries = new String[1024];
+        for (int i = 0; i < queries.length; i++) {
+            String word = WORDS[random.nextInt(WORDS.length)];
+            queries[i] = switch (random.nextInt(4)) {
+                case 0 -> String.valueOf((char) ('A' + random.nextInt(26)));
+                case 1 -> word.substring(0, 1 + random.nextInt(word.length()));
+                case 2 -> word;
+                default -> word + " " + WORDS[random.nextInt(WORDS.length)].substring(0, 2);
+            };
+        }
+    }
+
+    @Benchmark
+    public List<Map<String, String>> search() {
+        String query = queries[next++ & (queries.length - 1)];
+        return index.search(query, 10);
+    }
+}
@@ -0,0 +1,83 @@
+package com.stocks.bench;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stocks.util.TimeSeriesBars;
+import com.stocks.util.TimeSeriesParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Tree-model extraction (the previous StockService code) vs the streaming TimeSeriesParser
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TimeSeriesParsingBenchmark {
+
+    // 100 = outputsize=compact, ~5000 = outputsize=full for a long-listed daily series
+    @Param({"100", "5000"})
+    private int days;
+
+    private String payload;
+
+    @Setup
+    public void setUp() {
+        StringBuilder json = new StringBuilder(days * 160);
+        json.append("{\"Meta Data\":{\"1. Information\":\"Daily Prices\",\"2. Symbol\":\"IBM\"},")
+                .append("\"Time Series (Daily)\":{");
+        LocalDate day = LocalDate.of(2024, 12, 31);
+        double price = 150;
+        for (int i = 0; i < days; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            // Newest first, the order Alpha Vantage uses
+            json.append('"').append(day.minusDays(i)).append("\":{")
+                    .append("\"1. open\":\"").append(fmt(price)).append("\",")
+                    .append("\"2. high\":\"").append(fmt(price + 1.5)).append("\",")
+                    .append("\"3. low\":\"").append(fmt(price - 1.25)).append("\",")
+                    .append("\"4. close\":\"").append(fmt(price + 0.5)).append("\",")
+                    .append("\"5. volume\":\"").append(1_000_000 + i).append("\"}");
+            price += (i % 7) - 3;
+        }
+        json.append("}}");
+        payload = json.toString();
+    }
+
+    @Benchmark
+    public String treeModel() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        JsonNode timeSeriesNode = objectMapper.readTree(payload).path("Time Series (Daily)");
+        Iterator<Map.Entry<String, JsonNode>> fields = timeSeriesNode.fields();
+        Map.Entry<String, JsonNode> lastEntry = null;
+        while (fields.hasNext()) {
+            lastEntry = fields.next();
+        }
+        return lastEntry == null ? null : lastEntry.getValue().path("4. close").asText();
+    }
+
+    @Benchmark
+    public double streamingLatest() throws Exception {
+        return TimeSeriesParser.parseLatest(payload).latestClose();
+    }
+
+    @Benchmark
+    public TimeSeriesBars streamingLast30() throws Exception {
+        return TimeSeriesParser.parseLatest(payload, 30);
+    }
+
+    private static String fmt(double value) {
+        return String.format(Locale.ROOT, "%.4f", value);
+    }
+}
@@ -0,0 +1,93 @@
+package com.stocks.bench;
+
+import com.stocks.util.PositionBook;
+import com.stocks.util.TradeImportReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Rows/sec of reading a 1M-trade import and folding it per symbol, the in-memory part of TradeImportService
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class TradeImportBenchmark {
+
+    private static final int TRADES = 1_000_000;
+
+    private String csv;
+    private byte[] json;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        StringBuilder csvText = new StringBuilder(TRADES * 48).append("symbol,side,quantity,amount,executed_at\n");
+        StringBuilder jsonText = new StringBuilder(TRADES * 96).append('[');
+        int[] held = new int[500];
+        long time = Instant.parse("2020-01-01T00:00:00Z").getEpochSecond();
+        for (int i = 0; i < TRADES; i++) {
+            int symbol = random.nextInt(held.length);
+            int quantity = 1 + random.nextInt(20);
+            // Only sell what is held, so every row is imported
+            boolean buy = held[symbol] < quantity || random.nextInt(3) != 0;
+            held[symbol] += buy ? quantity : -quantity;
+            String amount = String.format(Locale.ROOT, "%.2f", quantity * (50 + random.nextDouble() * 100));
+            String executedAt = Instant.ofEpochSecond(time + i * 60L).toString();
+            String side = buy ? "BUY" : "SELL";
+            csvText.append("SYM").append(symbol).append(',').append(side).append(',').append(quantity)
+                    .append(',').append(amount).append(',').append(executedAt).append('\n');
+            jsonText.append(i == 0 ? "" : ",").append("{\"symbol\":\"SYM").append(symbol)
+                    .append("\",\"side\":\"").append(side).append("\",\"quantity\":").append(quantity)
+                    .append(",\"amount\":").append(amount).append(",\"executedAt\":\"").append(executedAt).append("\"}");
+        }
+        csv = csvText.toString();
+        json = jsonText.append(']').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TRADES)
+    public PositionBook csv() throws IOException {
+        Folder folder = new Folder();
+        TradeImportReader.readCsv(new StringReader(csv), folder);
+        return folder.book;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TRADES)
+    public PositionBook json() throws IOException {
+        Folder folder = new Folder();
+        TradeImportReader.readJson(new ByteArrayInputStream(json), folder);
+        return folder.book;
+    }
+
+    private static final class Folder implements TradeImportReader.Handler {
+        private final PositionBook book = new PositionBook();
+
+        @Override
+        public void trade(long row, String symbol, boolean buy, int quantity, Double amount, Instant executedAt) {
+            if (buy) {
+                book.buy(symbol, quantity, amount);
+            } else {
+                book.sell(symbol, quantity, amount);
+            }
+        }
+
+        @Override
+        public void reject(long row, String reason) {
+            throw new IllegalStateException(reason);
+        }
+    }
+}
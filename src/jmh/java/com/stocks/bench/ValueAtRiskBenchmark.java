@@ -0,0 +1,68 @@
+package com.stocks.bench;
+
+import com.stocks.util.ValueAtRisk;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+// Monte Carlo VaR of a 50-holding portfolio as the fork/join pool grows from 1 to N workers
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ValueAtRiskBenchmark {
+
+    @Param({"1", "2", "4", "8"})
+    private int threads;
+
+    @Param({"100000", "1000000"})
+    private int paths;
+
+    @Param({"50"})
+    private int assets;
+
+    private double[] mean;
+    private double[] cholesky;
+    private double[] exposure;
+    private ForkJoinPool pool;
+
+    @Setup
+    public void setUp() {
+        // A year of daily log returns driven by one market factor, so the covariance is dense
+        SplittableRandom random = new SplittableRandom(42);
+        int days = 252;
+        double[][] returns = new double[assets][days];
+        for (int d = 0; d < days; d++) {
+            double market = random.nextGaussian() * 0.01;
+            for (int i = 0; i < assets; i++) {
+                returns[i][d] = market * (0.5 + random.nextDouble()) + random.nextGaussian() * 0.015;
+            }
+        }
+        mean = ValueAtRisk.mean(returns);
+        cholesky = ValueAtRisk.cholesky(ValueAtRisk.covariance(returns, mean), assets);
+        exposure = new double[assets];
+        for (int i = 0; i < assets; i++) {
+            exposure[i] = 1_000 + random.nextDouble() * 10_000;
+        }
+        pool = new ForkJoinPool(threads);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public ValueAtRisk.Estimate monteCarlo() {
+        return ValueAtRisk.monteCarlo(mean, cholesky, exposure, 1, 0.99, paths, 42, pool);
+    }
+}
@@ -0,0 +1,120 @@
+package com.stocks.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.Executor;
+
+@Configuration
+public class ExecutorConfig {
+
+    // Workers used to fan out batch quote lookups; upstream connections are still capped by the HTTP pool
+    @Value("${market.quotes.fan-out-threads:16}")
+    private int fanOutThreads;
+
+    @Value("${market.quotes.fan-out-queue:500}")
+    private int fanOutQueue;
+
+    // Threads writing to streaming clients; a stalled socket holds one until it is evicted
+    @Value("${quote.stream.writer-threads:8}")
+    private int streamWriterThreads;
+
+    @Value("${quote.stream.max-connections:5000}")
+    private int maxStreamConnections;
+
+    // BCrypt workers for login and registration; 0 = half the cores, so hashing never takes every CPU
+    @Value("${security.bcrypt.threads:0}")
+    private int bcryptThreads;
+
+    // Hashes waiting beyond this are refused (429) instead of queueing up behind a flood
+    @Value("${security.bcrypt.queue:64}")
+    private int bcryptQueue;
+
+    // Registration inserts once the hash is done
+    @Value("${security.registration.threads:2}")
+    private int registrationThreads;
+
+    @Value("${security.registration.queue:64}")
+    private int registrationQueue;
+
+    // Set together with a Java 21 toolchain (./gradlew bootRun -PjavaVersion=21); Spring Boot then
+    // also serves Tomcat requests on virtual threads
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @Bean
+    public Executor quoteExecutor() {
+        if (virtualThreads) {
+            // One virtual thread per lookup; the limit only bounds fan-out, upstream calls are
+            // bounded separately by UpstreamConcurrencyLimiter. At the limit submissions are rejected
+            // like a full pool queue, instead of blocking the submitting thread
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("quote-");
+            executor.setVirtualThreads(true);
+            executor.setConcurrencyLimit(fanOutQueue);
+            executor.setRejectTasksWhenLimitReached(true);
+            return executor;
+        }
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(fanOutThreads);
+        executor.setMaxPoolSize(fanOutThreads);
+        executor.setQueueCapacity(fanOutQueue);
+        executor.setThreadNamePrefix("quote-");
+        // When saturated, submissions are rejected (TaskRejectedException) and callers degrade, e.g. a batch
+        // serves that symbol stale; running lookups on the caller would make a batch fetch them serially,
+        // past its timeout
+        executor.initialize();
+        return executor;
+    }
+
+    // CPU-bound, so platform threads even when virtual threads are enabled; the default abort policy
+    // rejects with TaskRejectedException when the queue is full
+    @Bean
+    public Executor passwordHashExecutor() {
+        int threads = bcryptThreads > 0 ? bcryptThreads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(bcryptQueue);
+        executor.setThreadNamePrefix("bcrypt-");
+        executor.initialize();
+        return executor;
+    }
+
+    // Small and separate, so a slow database backs up registrations only, not hashing or quote lookups;
+    // a full queue rejects and the registration gets 429
+    @Bean
+    public Executor registrationExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(registrationThreads);
+        executor.setMaxPoolSize(registrationThreads);
+        executor.setQueueCapacity(registrationQueue);
+        executor.setThreadNamePrefix("register-");
+        executor.initialize();
+        return executor;
+    }
+
+    @Bean
+    public Executor quoteStreamExecutor() {
+        if (virtualThreads) {
+            // Rejects past the limit; the quote publisher must never block on a drain
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("quote-stream-");
+            executor.setVirtualThreads(true);
+            executor.setConcurrencyLimit(maxStreamConnections);
+            executor.setRejectTasksWhenLimitReached(true);
+            return executor;
+        }
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(streamWriterThreads);
+        executor.setMaxPoolSize(streamWriterThreads);
+        // At most one pending drain per connection
+        executor.setQueueCapacity(maxStreamConnections);
+        executor.setThreadNamePrefix("quote-stream-");
+        executor.initialize();
+        return executor;
+    }
+}
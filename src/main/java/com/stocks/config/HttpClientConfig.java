@@ -0,0 +1,90 @@
+package com.stocks.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+@Configuration
+public class HttpClientConfig {
+
+    // Upper bound on open connections across all upstream hosts
+    @Value("${market.http.max-connections:50}")
+    private int maxConnections;
+
+    // Upper bound on concurrent connections to a single upstream host
+    @Value("${market.http.max-connections-per-host:20}")
+    private int maxConnectionsPerHost;
+
+    @Value("${market.http.connect-timeout-ms:2000}")
+    private long connectTimeoutMs;
+
+    @Value("${market.http.read-timeout-ms:5000}")
+    private long readTimeoutMs;
+
+    // How long a caller waits for a pooled connection before giving up
+    @Value("${market.http.pool-acquire-timeout-ms:1000}")
+    private long poolAcquireTimeoutMs;
+
+    @Value("${market.http.keep-alive-ms:30000}")
+    private long keepAliveMs;
+
+    // In-flight calls allowed per upstream host, enforced by semaphore rather than thread-pool size
+    @Value("${market.upstream.max-concurrent-per-host:20}")
+    private int maxConcurrentPerHost;
+
+    @Value("${market.upstream.acquire-timeout-ms:2000}")
+    private long upstreamAcquireTimeoutMs;
+
+    @Bean(destroyMethod = "close")
+    public PoolingHttpClientConnectionManager marketDataConnectionManager(MeterRegistry meterRegistry) {
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxConnections)
+                .setMaxConnPerRoute(maxConnectionsPerHost)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMs))
+                        .setSocketTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                        .build())
+                .build();
+
+        // Publishes leased / available / pending / max gauges under httpcomponents.httpclient.pool.*
+        new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, "market-data")
+                .bindTo(meterRegistry);
+        return connectionManager;
+    }
+
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient marketDataHttpClient(PoolingHttpClientConnectionManager marketDataConnectionManager) {
+        return HttpClients.custom()
+                .setConnectionManager(marketDataConnectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.ofMilliseconds(poolAcquireTimeoutMs))
+                        .setResponseTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+                        .build())
+                .setKeepAliveStrategy((response, context) -> TimeValue.ofMilliseconds(keepAliveMs))
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofMilliseconds(keepAliveMs))
+                .build();
+    }
+
+    // Shared client used for every market-data call instead of a new RestTemplate per request
+    @Bean
+    public RestTemplate marketDataRestTemplate(CloseableHttpClient marketDataHttpClient, MeterRegistry meterRegistry) {
+        RestTemplate restTemplate = new RestTemplate(new HttpComponentsClientHttpRequestFactory(marketDataHttpClient));
+        restTemplate.getInterceptors().add(
+                new UpstreamConcurrencyLimiter(maxConcurrentPerHost, upstreamAcquireTimeoutMs, meterRegistry));
+        return restTemplate;
+    }
+}
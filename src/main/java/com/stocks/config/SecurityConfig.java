@@ -1,23 +1,48 @@
 package com.stocks.config;
 
+import com.stocks.security.JwtAuthenticationFilter;
+import com.stocks.service.JwtService;
+import jakarta.servlet.DispatcherType;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.HttpStatusEntryPoint;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
 @Configuration
 public class SecurityConfig {
 
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http, JwtService jwtService) throws Exception {
         http
             .csrf(csrf -> csrf.disable()) // Disables CSRF protection (if you don't need it)
+            .cors(Customizer.withDefaults()) // Use the CORS mappings from WebConfig, including preflights
+            .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
             .authorizeHttpRequests(auth -> auth
-                .anyRequest().permitAll()  // Allow all requests without authentication
+                .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()
+                // Streamed responses (holdings, the SSE quote stream) finish on an ASYNC dispatch, and SSE
+                // timeouts on an ERROR one; the JWT filter doesn't see those again and no stateless context
+                // survives, but the REQUEST dispatch already authorized them
+                .dispatcherTypeMatchers(DispatcherType.ASYNC, DispatcherType.ERROR).permitAll()
+                .requestMatchers("/api/stocks/**").authenticated() // Bearer token required
+                // Health stays open for load balancers; metrics and anything else exposed later are not for
+                // API users, so read them through a separate management port (management.server.port)
+                .requestMatchers("/actuator/health", "/actuator/health/**").permitAll()
+                .requestMatchers("/actuator/**").denyAll()
+                .anyRequest().permitAll()  // Login and registration stay open
             )
-            .httpBasic().disable() // Disable HTTP basic authentication
-            .formLogin().disable() // Disable form login
-            .logout().disable(); // Disable logout functionality
+            .addFilterBefore(new JwtAuthenticationFilter(jwtService), UsernamePasswordAuthenticationFilter.class)
+            .exceptionHandling(exceptions -> exceptions
+                .authenticationEntryPoint(new HttpStatusEntryPoint(HttpStatus.UNAUTHORIZED))
+            )
+            .httpBasic(httpBasic -> httpBasic.disable()) // Disable HTTP basic authentication
+            .formLogin(formLogin -> formLogin.disable()) // Disable form login
+            .logout(logout -> logout.disable()); // Disable logout functionality
 
         return http.build();
     }
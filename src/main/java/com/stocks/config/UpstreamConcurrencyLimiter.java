@@ -0,0 +1,113 @@
+package com.stocks.config;
+
+import com.stocks.exceptions.MarketDataException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Caps in-flight calls per upstream host with a semaphore.
+ *
+ * With virtual threads the number of request threads is no longer a natural limit, so this is what
+ * keeps a burst of lookups from opening more upstream calls than the provider (and our quota) can take.
+ * Waiting here parks a virtual thread cheaply instead of tying up a platform thread. A permit is held
+ * until the response is closed, not just until its headers arrive, so a slow body still counts.
+ */
+public class UpstreamConcurrencyLimiter implements ClientHttpRequestInterceptor {
+
+    private final int permitsPerHost;
+    private final long acquireTimeoutMs;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Semaphore> permitsByHost = new ConcurrentHashMap<>();
+
+    public UpstreamConcurrencyLimiter(int permitsPerHost, long acquireTimeoutMs, MeterRegistry meterRegistry) {
+        this.permitsPerHost = permitsPerHost;
+        this.acquireTimeoutMs = acquireTimeoutMs;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+            throws IOException {
+        String host = String.valueOf(request.getURI().getHost());
+        Semaphore permits = permitsByHost.computeIfAbsent(host, this::newSemaphore);
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new MarketDataException("Too many concurrent requests to " + host);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MarketDataException("Interrupted waiting for an upstream slot to " + host, e);
+        }
+        try {
+            return new ReleasingResponse(execution.execute(request, body), permits);
+        } catch (IOException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private Semaphore newSemaphore(String host) {
+        Semaphore semaphore = new Semaphore(permitsPerHost, true);
+        Gauge.builder("market.upstream.permits.available", semaphore, Semaphore::availablePermits)
+                .tag("host", host)
+                .register(meterRegistry);
+        return semaphore;
+    }
+
+    // Gives the permit back once, on the first close
+    private static final class ReleasingResponse implements ClientHttpResponse {
+        private final ClientHttpResponse delegate;
+        private final Semaphore permits;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        ReleasingResponse(ClientHttpResponse delegate, Semaphore permits) {
+            this.delegate = delegate;
+            this.permits = permits;
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() throws IOException {
+            return delegate.getStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return delegate.getStatusText();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return delegate.getHeaders();
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            return delegate.getBody();
+        }
+
+        @Override
+        public void close() {
+            try {
+                delegate.close();
+            } finally {
+                if (released.compareAndSet(false, true)) {
+                    permits.release();
+                }
+            }
+        }
+    }
+}
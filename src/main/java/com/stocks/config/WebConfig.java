@@ -23,6 +23,8 @@ public class WebConfig {
                         .allowedOrigins(frontendUrl) // Replace with your frontend URL
                         .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS") // Allowed HTTP methods
                         .allowedHeaders("*") // Allow all headers
+                        // Keyset cursor of GET /api/stocks pages; Retry-After of throttled logins
+                        .exposedHeaders("X-Next-Cursor", "Retry-After")
                         .allowCredentials(true); // Allow credentials (e.g., cookies, Authorization header)
             }
         };
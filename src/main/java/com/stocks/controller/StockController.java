@@ -1,119 +1,219 @@
 package com.stocks.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stocks.dto.BarHistory;
+import com.stocks.dto.ImportReport;
+import com.stocks.dto.IndicatorSeries;
+import com.stocks.dto.PortfolioAnalytics;
+import com.stocks.dto.PortfolioValuation;
+import com.stocks.dto.QuoteResult;
+import com.stocks.dto.StockView;
+import com.stocks.dto.ValueAtRiskReport;
+import com.stocks.entity.PriceAlert;
 import com.stocks.entity.Stock;
+import com.stocks.exceptions.ImportAlreadyRunningException;
+import com.stocks.exceptions.MarketDataException;
+import com.stocks.service.BarInterval;
+import com.stocks.service.HistoryService;
+import com.stocks.service.HoldingsCache;
+import com.stocks.service.HoldingsService;
+import com.stocks.service.IndicatorService;
+import com.stocks.service.PortfolioAnalyticsService;
+import com.stocks.service.PriceAlertService;
+import com.stocks.service.QuoteStreamService;
 import com.stocks.service.StockService;
-import com.stocks.repository.StockRepository;
-import com.stocks.repository.UserRepository;
-import com.stocks.entity.User;
+import com.stocks.service.TradeImportService;
+import com.stocks.service.TradeService;
+import com.stocks.service.ValueAtRiskService;
+import com.stocks.security.AuthenticatedUser;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
-import com.stocks.service.JwtService;
-import com.stocks.exceptions.UnauthorizedException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
+import java.io.Reader;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
 
 
 @RestController
 @RequestMapping("/api/stocks")
 public class StockController {
-    private static final String BEARER_PREFIX = "Bearer ";
+    private static final int MAX_BATCH_TICKERS = 100;
+    private static final int MAX_HISTORY_BARS = 20000;
+    private static final int MAX_VAR_PATHS = 1_000_000;
+    private static final int MAX_HOLDINGS_PAGE = 1000;
+    private static final String NDJSON = "application/x-ndjson";
     @Autowired
     private StockService stockService;
     @Autowired
-    private StockRepository stockRepository;
+    private TradeService tradeService;
     @Autowired
-    private UserRepository userRepository;
+    private QuoteStreamService quoteStreamService;
     @Autowired
-    private JwtService jwtService;
+    private HistoryService historyService;
+    @Autowired
+    private IndicatorService indicatorService;
+    @Autowired
+    private PortfolioAnalyticsService portfolioAnalyticsService;
+    @Autowired
+    private ValueAtRiskService valueAtRiskService;
+    @Autowired
+    private HoldingsService holdingsService;
+    @Autowired
+    private HoldingsCache holdingsCache;
+    @Autowired
+    private TradeImportService tradeImportService;
+    @Autowired
+    private PriceAlertService priceAlertService;
 
-    @PostMapping
-    public ResponseEntity<Stock> addStock(@RequestBody Stock stock, @RequestHeader("Authorization") String token) {
-        Long userId = jwtService.extractUserId(token.substring(7));
-        User user = userRepository.findById(userId)
-            .orElseThrow(() -> new UnauthorizedException("Invalid token"));
+    private final ObjectMapper objectMapper = new ObjectMapper();
 
-        Optional<Stock> existingStock = stockRepository.findByUserAndSymbol(user, stock.getSymbol());
-        if (existingStock.isPresent()) {
-            Stock updated = existingStock.get();
-            updated.setQuantity(updated.getQuantity() + stock.getQuantity());
-            updated.setPrice(updated.getPrice() + stock.getPrice());
-            return ResponseEntity.ok(stockRepository.save(updated));
+    @PostMapping
+    public ResponseEntity<Stock> addStock(@RequestBody Stock stock, @AuthenticationPrincipal AuthenticatedUser principal) {
+        if (stock.getSymbol() == null || stock.getQuantity() == null || stock.getQuantity() <= 0
+                || stock.getPrice() == null || stock.getPrice() < 0) {
+            return ResponseEntity.badRequest().build();
         }
 
-        stock.setUser(user);
-        return ResponseEntity.status(HttpStatus.CREATED).body(stockRepository.save(stock));
+        // Single INSERT ... ON CONFLICT DO UPDATE, so concurrent buys of one symbol never lose updates
+        Stock saved = tradeService.buy(principal.id(), stock.getSymbol(), stock.getPrice(), stock.getQuantity());
+        return saved.getVersion() == 0
+            ? ResponseEntity.status(HttpStatus.CREATED).body(saved)
+            : ResponseEntity.ok(saved);
     }
 
+    // Holdings as projections. With limit, one keyset page after the given id and X-Next-Cursor when more
+    // follow; without it, every holding streamed from a cursor
     @GetMapping
-    public ResponseEntity<List<Stock>> getStocksByUser(@RequestHeader("Authorization") String token) {
+    public ResponseEntity<StreamingResponseBody> getStocksByUser(@RequestParam(required = false) Integer limit,
+                                                                 @RequestParam(defaultValue = "0") long after,
+                                                                 @AuthenticationPrincipal AuthenticatedUser principal) {
+        Long userId = principal.id();
+        if (limit == null) {
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON)
+                    .body(out -> holdingsService.writeJsonArray(userId, after, out));
+        }
+        if (limit <= 0 || limit > MAX_HOLDINGS_PAGE) {
+            return ResponseEntity.badRequest().build();
+        }
+        HoldingsService.Page page = holdingsService.page(userId, after, limit);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON);
+        if (page.nextCursor() != null) {
+            response.header("X-Next-Cursor", String.valueOf(page.nextCursor()));
+        }
+        return response.body(out -> objectMapper.writeValue(out, page.holdings()));
+    }
+
+    // Same rows as newline-delimited JSON, streamed, for clients that process holdings one at a time
+    @GetMapping(produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamStocksByUser(@RequestParam(defaultValue = "0") long after,
+                                                                    @AuthenticationPrincipal AuthenticatedUser principal) {
+        Long userId = principal.id();
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON))
+                .body(out -> holdingsService.writeNdjson(userId, after, out));
+    }
+
+    // Bulk import of a broker export as CSV (header row required) or a JSON array; read as it arrives and
+    // committed in chunks. 400 when the input broke off part-way, with the committed rows counted
+    @PostMapping(value = "/import", consumes = "text/csv")
+    public ResponseEntity<ImportReport> importCsv(Reader body, @AuthenticationPrincipal AuthenticatedUser principal) {
+        return importResponse(() -> tradeImportService.importCsv(principal.id(), body));
+    }
+
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<ImportReport> importJson(InputStream body, @AuthenticationPrincipal AuthenticatedUser principal) {
+        return importResponse(() -> tradeImportService.importJson(principal.id(), body));
+    }
+
+    private ResponseEntity<ImportReport> importResponse(Supplier<ImportReport> importer) {
         try {
-            if (token == null || !token.startsWith(BEARER_PREFIX)) {
-                throw new UnauthorizedException("Invalid authorization header format");
+            ImportReport report = importer.get();
+            if (report.failure() == null) {
+                return ResponseEntity.ok(report);
             }
-
-            String jwtToken = token.substring(BEARER_PREFIX.length());
-            Long userId = jwtService.extractUserId(jwtToken);
-            
-            User user = userRepository.findById(userId)
-                .orElseThrow(() -> new UnauthorizedException("User not found"));
-            
-            List<Stock> stocks = stockRepository.findByUser(user);
-            return ResponseEntity.ok(stocks);
-            
-        } catch (UnauthorizedException e) {
-            throw e;
-        } catch (NumberFormatException e) {
-            throw new UnauthorizedException("Invalid user ID in token");
-        } catch (Exception e) {
-            throw new RuntimeException("Error retrieving stocks: " + e.getMessage(), e);
+            return report.storageFailed()
+                ? ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(report)
+                : ResponseEntity.badRequest().body(report);
+        } catch (ImportAlreadyRunningException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
         }
     }
 
-    @PutMapping("/sell")
-    public ResponseEntity<Map<String, String>> sellStock(@RequestBody Map<String, Object> payload, @RequestHeader("Authorization") String token) {
+    // Price alerts: {"symbol": ..., "type": "ABOVE" | "BELOW" | "PERCENT_MOVE", "threshold": price or percent}
+    @PostMapping("/alerts")
+    public ResponseEntity<PriceAlert> createAlert(@RequestBody Map<String, Object> payload, @AuthenticationPrincipal AuthenticatedUser principal) {
+        PriceAlert.Type type;
         try {
-            // Extract and validate the token
-            if (token == null || !token.startsWith(BEARER_PREFIX)) {
-                throw new UnauthorizedException("Invalid authorization header format");
-            }
-            String jwtToken = token.substring(BEARER_PREFIX.length());
-            Long userId = jwtService.extractUserId(jwtToken);
+            type = PriceAlert.Type.valueOf(String.valueOf(payload.get("type")).toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (!(payload.get("symbol") instanceof String symbol) || !(payload.get("threshold") instanceof Number threshold)) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            PriceAlert alert = priceAlertService.create(principal.id(), symbol, type, threshold.doubleValue());
+            return ResponseEntity.status(HttpStatus.CREATED).body(alert);
+        } catch (MarketDataException | IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (IllegalStateException e) {
+            // Too many active alerts
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
 
-            User user = userRepository.findById(userId)
-                .orElseThrow(() -> new UnauthorizedException("User not found"));
+    // Active and fired alerts, oldest first
+    @GetMapping("/alerts")
+    public ResponseEntity<List<PriceAlert>> getAlerts(@AuthenticationPrincipal AuthenticatedUser principal) {
+        return ResponseEntity.ok(priceAlertService.list(principal.id()));
+    }
+
+    @DeleteMapping("/alerts/{id}")
+    public ResponseEntity<Void> deleteAlert(@PathVariable Long id, @AuthenticationPrincipal AuthenticatedUser principal) {
+        return priceAlertService.delete(principal.id(), id)
+            ? ResponseEntity.noContent().build()
+            : ResponseEntity.notFound().build();
+    }
 
+    @PutMapping("/sell")
+    public ResponseEntity<Map<String, String>> sellStock(@RequestBody Map<String, Object> payload, @AuthenticationPrincipal AuthenticatedUser principal) {
+        try {
             // Extract payload
             String symbol = (String) payload.get("symbol");
             Integer quantityToSell = (Integer) payload.get("quantity");
-
-            Optional<Stock> existingStockOpt = stockRepository.findByUserAndSymbol(user, symbol);
-            if (existingStockOpt.isEmpty()) {
-                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("msg", "Stock not found"));
+            if (symbol == null || quantityToSell == null || quantityToSell <= 0) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("msg", "Symbol and a positive quantity are required"));
             }
 
-            Stock existingStock = existingStockOpt.get();
-            if (quantityToSell > existingStock.getQuantity()) {
-                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("msg", "You have only " + existingStock.getQuantity() + " stocks of " + symbol));
-            }
+            // Optional sale price, recorded in the trade ledger as proceeds
+            Double proceeds = payload.get("price") instanceof Number price ? price.doubleValue() : null;
 
-            if (quantityToSell.equals(existingStock.getQuantity())) {
-                // If selling all stocks, remove the record
-                stockRepository.delete(existingStock);
-                return ResponseEntity.ok(Map.of("msg", "Sold all stocks of " + symbol));
-            } else {
-                // Update stock details
-                double avgPricePerStock = existingStock.getPrice() / existingStock.getQuantity();
-                existingStock.setQuantity(existingStock.getQuantity() - quantityToSell);
-                existingStock.setPrice(existingStock.getPrice() - avgPricePerStock * quantityToSell);
-                stockRepository.save(existingStock);
-                return ResponseEntity.ok(Map.of("msg", "Sold " + quantityToSell + " stocks of " + symbol));
-            }
-        } catch (UnauthorizedException e) {
-            throw e;
+            // Conditional single-statement updates: the WHERE clause does the balance check atomically
+            TradeService.SellResult result = tradeService.sell(principal.id(), symbol, quantityToSell, proceeds);
+            return switch (result.outcome()) {
+                case SOLD_PART -> ResponseEntity.ok(Map.of("msg", "Sold " + quantityToSell + " stocks of " + symbol));
+                // If selling all stocks, the record is removed
+                case SOLD_ALL -> ResponseEntity.ok(Map.of("msg", "Sold all stocks of " + symbol));
+                case NOT_HELD -> ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("msg", "Stock not found"));
+                case INSUFFICIENT -> ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("msg", "You have only " + result.heldQuantity() + " stocks of " + symbol));
+            };
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("msg", "Error processing the request: " + e.getMessage()));
         }
@@ -121,28 +221,133 @@ public class StockController {
 
 
     @GetMapping("/realtime")
-    public ResponseEntity<Map<String, Object>> getRealTimeStockData(
-            @RequestHeader("Authorization") String token,
-            @RequestParam String ticker) {
-        if (!token.startsWith(BEARER_PREFIX)) {
-            throw new UnauthorizedException("Invalid authorization header format");
-        }
-        jwtService.validateToken(token.substring(BEARER_PREFIX.length()));
+    public ResponseEntity<Map<String, Object>> getRealTimeStockData(@RequestParam String ticker) {
         return stockService.getRealTimeStockData(ticker);
     }
 
     @GetMapping("/search")
-    public ResponseEntity<List<Map<String, String>>> searchStocks(
-            @RequestHeader("Authorization") String token,
-            @RequestParam String keyword) {
-        if (!token.startsWith(BEARER_PREFIX)) {
-            throw new UnauthorizedException("Invalid authorization header format");
-        }
-        jwtService.validateToken(token.substring(BEARER_PREFIX.length()));
+    public ResponseEntity<List<Map<String, String>>> searchStocks(@RequestParam String keyword) {
         try {
             return ResponseEntity.ok(stockService.searchStocks(keyword));
         } catch (Exception e) {
             throw new RuntimeException("Error searching stocks: " + e.getMessage(), e);
         }
     }
+
+    // The limit counts distinct symbols, so "aapl,AAPL, aapl" is one lookup; more than MAX_BATCH_TICKERS is a 400
+    @GetMapping("/quotes")
+    public ResponseEntity<List<QuoteResult>> getQuotes(@RequestParam List<String> tickers) {
+        Set<String> symbols = new LinkedHashSet<>();
+        for (String ticker : tickers) {
+            if (ticker != null && !ticker.isBlank()) {
+                symbols.add(ticker.trim().toUpperCase(Locale.ROOT));
+            }
+        }
+        if (symbols.size() > MAX_BATCH_TICKERS) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(stockService.getQuotes(symbols));
+    }
+
+    // Server-Sent Events stream of quote updates; without tickers it follows the user's holdings
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamQuotes(@RequestParam(required = false) List<String> tickers,
+                                                   @AuthenticationPrincipal AuthenticatedUser principal) {
+        if (tickers == null || tickers.isEmpty()) {
+            tickers = holdingsCache.get(principal.id()).stream().map(StockView::symbol).toList();
+        }
+        SseEmitter emitter = quoteStreamService.subscribe(tickers);
+        if (emitter == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok(emitter);
+    }
+
+    // Historical bars from the local store; from/to take "yyyy-MM-dd[ HH:mm[:ss]]" in exchange time
+    @GetMapping("/history")
+    public ResponseEntity<BarHistory> getHistory(@RequestParam String ticker,
+                                                 @RequestParam(defaultValue = "daily") String interval,
+                                                 @RequestParam(required = false) String from,
+                                                 @RequestParam(required = false) String to,
+                                                 @RequestParam(defaultValue = "500") int limit) {
+        BarInterval barInterval = BarInterval.fromParam(interval);
+        if (barInterval == null || limit <= 0 || limit > MAX_HISTORY_BARS) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            long fromTs = from == null ? Long.MIN_VALUE : epochSeconds(from, false);
+            long toTs = to == null ? Long.MAX_VALUE : epochSeconds(to, true);
+            BarHistory history = historyService.history(ticker, barInterval, fromTs, toTs, limit);
+            // Nothing stored yet and a backfill is running: ask the client to come back
+            if (history.size() == 0 && historyService.isRefreshing(ticker, barInterval)) {
+                return ResponseEntity.status(HttpStatus.ACCEPTED).body(history);
+            }
+            return ResponseEntity.ok(history);
+        } catch (MarketDataException | DateTimeParseException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // "yyyy-MM-dd" or "yyyy-MM-dd HH:mm[:ss]" as epoch seconds of that wall-clock time, the scale stored bars
+    // use; a bare date ending a range covers the whole day
+    private static long epochSeconds(String text, boolean endOfDay) {
+        String value = text.trim();
+        LocalDateTime time = value.length() == 10
+            ? (endOfDay ? LocalDate.parse(value).atTime(LocalTime.MAX) : LocalDate.parse(value).atStartOfDay())
+            : LocalDateTime.parse(value.replace(' ', 'T'));
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    // Indicators over stored bars, e.g. indicators=sma:20,rsi:14,macd:12:26:9; without tickers, the user's holdings
+    @GetMapping("/indicators")
+    public ResponseEntity<List<IndicatorSeries>> getIndicators(@RequestParam(required = false) List<String> tickers,
+                                                               @RequestParam(defaultValue = "daily") String interval,
+                                                               @RequestParam List<String> indicators,
+                                                               @RequestParam(defaultValue = "500") int limit,
+                                                               @AuthenticationPrincipal AuthenticatedUser principal) {
+        BarInterval barInterval = BarInterval.fromParam(interval);
+        if (barInterval == null || indicators.isEmpty() || limit <= 0 || limit > MAX_HISTORY_BARS) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (tickers == null || tickers.isEmpty()) {
+            tickers = holdingsCache.get(principal.id()).stream().map(StockView::symbol).toList();
+        }
+        if (tickers.size() > MAX_BATCH_TICKERS) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(indicatorService.indicators(tickers, barInterval, indicators, limit));
+        } catch (MarketDataException | IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/portfolio/valuation")
+    public ResponseEntity<PortfolioValuation> getPortfolioValuation(@AuthenticationPrincipal AuthenticatedUser principal) {
+        return ResponseEntity.ok(stockService.getPortfolioValuation(holdingsCache.get(principal.id())));
+    }
+
+    // Live P&L, weights, daily return and volatility, maintained server-side as quotes arrive
+    @GetMapping("/portfolio/analytics")
+    public ResponseEntity<PortfolioAnalytics> getPortfolioAnalytics(@AuthenticationPrincipal AuthenticatedUser principal) {
+        return ResponseEntity.ok(portfolioAnalyticsService.analytics(principal.id()));
+    }
+
+    // Historical and Monte Carlo VaR/CVaR of the user's holdings from stored daily closes
+    @GetMapping("/portfolio/var")
+    public ResponseEntity<ValueAtRiskReport> getValueAtRisk(@RequestParam(defaultValue = "0.99") double confidence,
+                                                            @RequestParam(defaultValue = "1") int horizonDays,
+                                                            @RequestParam(defaultValue = "100000") int paths,
+                                                            @AuthenticationPrincipal AuthenticatedUser principal) {
+        if (!(confidence >= 0.5 && confidence < 1) || horizonDays < 1 || horizonDays > 30
+                || paths < 1000 || paths > MAX_VAR_PATHS) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(valueAtRiskService.valueAtRisk(principal.id(), confidence, horizonDays, paths));
+        } catch (RejectedExecutionException e) {
+            // Every simulation slot is busy and this version and horizon are not cached yet
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).header(HttpHeaders.RETRY_AFTER, "1").build();
+        }
+    }
 }
@@ -2,14 +2,26 @@ package com.stocks.controller;
 
 import com.stocks.entity.User;
 import com.stocks.repository.UserRepository;
+import com.stocks.service.LoginThrottle;
 import com.stocks.service.UserService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
+// Password hashing runs on UserService's bounded pool: these handlers return futures, so Tomcat threads
+// are free while a hash is computed, and a full pool or a throttled client gets 429 straight away.
+// The registration insert runs on its own small pool, so hash threads never wait on the database and
+// a slow insert cannot hold up quote lookups
 @RestController
 @RequestMapping("/api/users")
 public class UserController {
@@ -20,48 +32,104 @@ public class UserController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private LoginThrottle loginThrottle;
+
+    @Autowired
+    @Qualifier("registrationExecutor")
+    private Executor registrationExecutor;
+
     @PostMapping("/register")
-    public ResponseEntity<Object> registerUser(@RequestBody User user) {
+    public CompletableFuture<ResponseEntity<Object>> registerUser(@RequestBody User user, HttpServletRequest request) {
+        if (user.getUsername() == null || user.getUsername().isBlank() || user.getPassword() == null) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body("{\"msg\":\"Username and password are required\"}"));
+        }
+        long wait = loginThrottle.checkAttempt(null, request.getRemoteAddr());
+        if (wait > 0) {
+            return CompletableFuture.completedFuture(tooManyRequests(wait));
+        }
+
         // Check if the username already exists
         if (userRepository.existsByUsername(user.getUsername())) {
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
-                    .body("{\"msg\":\"Username already exists\"}");
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body("{\"msg\":\"Username already exists\"}"));
         }
 
-        // Encrypt the password before saving
-        user.setPassword(userService.encodePassword(user.getPassword()));
-        userRepository.save(user);
+        try {
+            // Encrypt the password before saving
+            return userService.encodePasswordAsync(user.getPassword()).thenApplyAsync(hash -> {
+                user.setPassword(hash);
+                userRepository.save(user);
 
-        // Return success message
-        return ResponseEntity.status(HttpStatus.CREATED)
-                .body("{\"msg\":\"" + " User " + user.getUsername() + " registered successfully\"}");
+                // Return success message
+                return ResponseEntity.status(HttpStatus.CREATED)
+                        .body((Object) ("{\"msg\":\"" + " User " + user.getUsername() + " registered successfully\"}"));
+            }, registrationExecutor).exceptionally(e -> {
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                if (cause instanceof RejectedExecutionException) {
+                    // Registration pool saturated when the hash finished
+                    return tooManyRequests(1000);
+                }
+                e.printStackTrace();
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                        .body("{\"msg\":\"An error occurred while processing the registration request\"}");
+            });
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(tooManyRequests(1000));
+        }
     }
 
     @PostMapping("/login")
-    public ResponseEntity<Object> loginUser(@RequestBody User user) {
+    public CompletableFuture<ResponseEntity<Object>> loginUser(@RequestBody User user, HttpServletRequest request) {
+        String username = user.getUsername();
+        if (username == null || user.getPassword() == null) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body("{\"msg\":\"Invalid credentials\"}"));
+        }
+        // Refused before the user lookup and the hash, so a flood costs next to nothing
+        long wait = loginThrottle.checkAttempt(username, request.getRemoteAddr());
+        if (wait > 0) {
+            return CompletableFuture.completedFuture(tooManyRequests(wait));
+        }
+
         try {
             // Find the user by username
-            Optional<User> existingUserOptional = userRepository.findByUsername(user.getUsername());
+            Optional<User> existingUserOptional = userRepository.findByUsername(username);
 
-            // Check if the user exists and the password matches
-            if (existingUserOptional.isEmpty() || !userService.matchPassword(user.getPassword(), existingUserOptional.get().getPassword())) {
-                return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
-                        .body("{\"msg\":\"Invalid credentials\"}");
-            }
+            // Unknown users are checked against a dummy hash, so they fail as slowly as a wrong password
+            String encoded = existingUserOptional.map(User::getPassword).orElse(null);
+            return userService.matchPasswordAsync(user.getPassword(), encoded).thenApply(matched -> {
+                if (!matched) {
+                    loginThrottle.loginFailed(username);
+                    return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                            .body((Object) "{\"msg\":\"Invalid credentials\"}");
+                }
+                loginThrottle.loginSucceeded(username);
 
-            // Get the user from Optional
-            User existingUser = existingUserOptional.get();
-
-            // Generate JWT token with user id
-            String token = userService.generateToken(existingUser.getId());
-
-            return ResponseEntity.ok("{\"access_token\":\"" + token + "\"}");
+                // Generate JWT token with user id
+                String token = userService.generateToken(existingUserOptional.get().getId());
 
+                return ResponseEntity.ok((Object) ("{\"access_token\":\"" + token + "\"}"));
+            }).exceptionally(e -> {
+                // Log the error and return internal server error response
+                e.printStackTrace();
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                        .body("{\"msg\":\"An error occurred while processing the login request\"}");
+            });
+        } catch (RejectedExecutionException e) {
+            // Hashing pool saturated
+            return CompletableFuture.completedFuture(tooManyRequests(1000));
         } catch (Exception e) {
-            // Log the error and return internal server error response
-            e.printStackTrace(); // For debugging purposes, log the exception
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body("{\"msg\":\"An error occurred while processing the login request\"}");
+            e.printStackTrace();
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("{\"msg\":\"An error occurred while processing the login request\"}"));
         }
     }
+
+    private static ResponseEntity<Object> tooManyRequests(long waitMs) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, (waitMs + 999) / 1000)))
+                .body("{\"msg\":\"Too many attempts, try again later\"}");
+    }
 }
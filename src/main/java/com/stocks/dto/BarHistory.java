@@ -0,0 +1,11 @@
+package com.stocks.dto;
+
+// Columnar OHLCV bars, oldest first, as charting libraries take them. Timestamps are epoch seconds
+// of the exchange-local wall-clock time the upstream prints, like TimeSeriesBars
+public record BarHistory(String symbol, String interval, long[] timestamps, double[] open, double[] high,
+                         double[] low, double[] close, long[] volume) {
+
+    public int size() {
+        return timestamps.length;
+    }
+}
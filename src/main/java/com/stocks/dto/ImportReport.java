@@ -0,0 +1,16 @@
+package com.stocks.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+// Outcome of a trade import. imported rows are committed; rejected rows were skipped, with the first
+// few reasons in errors. failure is set when the input stopped being readable part-way or a chunk could
+// not be saved (storageFailed); either way the chunks before it are committed, so the import can be
+// resumed from row imported + rejected + 1
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ImportReport(long imported, long rejected, List<String> errors, int symbols, int chunks,
+                           long elapsedMs, double rowsPerSecond, String failure,
+                           @JsonIgnore boolean storageFailed) {
+}
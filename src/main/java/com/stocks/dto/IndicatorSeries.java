@@ -0,0 +1,8 @@
+package com.stocks.dto;
+
+import java.util.Map;
+
+// Indicator outputs aligned with the bar timestamps (oldest first, as in BarHistory). Entries inside an
+// indicator's warm-up window are NaN, which Jackson writes as the string "NaN"
+public record IndicatorSeries(String symbol, String interval, long[] timestamps, Map<String, double[]> values) {
+}
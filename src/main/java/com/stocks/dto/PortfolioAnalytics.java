@@ -0,0 +1,19 @@
+package com.stocks.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+// Live P&L and risk of a user's holdings. Market value, unrealized P&L and weights only cover priced
+// holdings; the daily figures only those with a previous close as well. Realized P&L counts sells
+// that recorded their proceeds. Volatility is annualized, from daily closes of the current holdings
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record PortfolioAnalytics(List<Position> positions, double totalCost, double marketValue,
+                                 double unrealizedPnl, double realizedPnl, Double dailyPnl, Double dailyReturn,
+                                 Double volatility, int unpricedHoldings, String asOf) {
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record Position(String symbol, int quantity, double cost, Double price, Double previousClose,
+                           Double marketValue, Double unrealizedPnl, Double weight, Double dailyReturn) {
+    }
+}
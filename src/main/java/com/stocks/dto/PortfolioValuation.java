@@ -0,0 +1,15 @@
+package com.stocks.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+// Consolidated valuation of a user's holdings; totals only cover holdings with a price (fresh or stale)
+public record PortfolioValuation(List<Holding> holdings, double totalCost, double totalValue,
+                                 double unrealizedGain, int unpricedHoldings) {
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record Holding(String symbol, int quantity, double cost, String status, String name,
+                          Double marketPrice, Double marketValue, Double unrealizedGain, String error) {
+    }
+}
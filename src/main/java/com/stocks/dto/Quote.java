@@ -0,0 +1,25 @@
+package com.stocks.dto;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+// Latest known price for a ticker, as served by /api/stocks/realtime
+public record Quote(String symbol, String name, String price, long fetchedAt) {
+
+    // Same JSON shape the UI has always received: {"name": ..., "price": ...}
+    public Map<String, Object> toResponse() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("name", name);
+        response.put("price", price);
+        return response;
+    }
+
+    // Served while the upstream is failing; flags the price as stale and says when it was fetched
+    public Map<String, Object> toStaleResponse() {
+        Map<String, Object> response = toResponse();
+        response.put("stale", true);
+        response.put("asOf", Instant.ofEpochMilli(fetchedAt).toString());
+        return response;
+    }
+}
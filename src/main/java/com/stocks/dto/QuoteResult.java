@@ -0,0 +1,38 @@
+package com.stocks.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.Instant;
+
+// One symbol's outcome inside a batch quote response
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record QuoteResult(String symbol, String status, String name, String price, String error, String asOf) {
+
+    public static final String OK = "ok";
+    // Last known good price, served while the upstream is failing; asOf says when it was fetched
+    public static final String STALE = "stale";
+    public static final String ERROR = "error";
+    public static final String TIMEOUT = "timeout";
+
+    public static QuoteResult ok(Quote quote) {
+        return new QuoteResult(quote.symbol(), OK, quote.name(), quote.price(), null, null);
+    }
+
+    public static QuoteResult stale(Quote quote) {
+        return new QuoteResult(quote.symbol(), STALE, quote.name(), quote.price(), null,
+                Instant.ofEpochMilli(quote.fetchedAt()).toString());
+    }
+
+    public static QuoteResult failed(String symbol, String status, String error) {
+        return new QuoteResult(symbol, status, null, null, error, null);
+    }
+
+    public boolean isOk() {
+        return OK.equals(status);
+    }
+
+    // Has a price, possibly a stale one
+    public boolean isPriced() {
+        return OK.equals(status) || STALE.equals(status);
+    }
+}
@@ -0,0 +1,5 @@
+package com.stocks.dto;
+
+// Read-only projection of a holding row; same JSON fields as the Stock entity, without a managed entity behind it
+public record StockView(Long id, String symbol, Double price, Integer quantity, long version) {
+}
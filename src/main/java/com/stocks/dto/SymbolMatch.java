@@ -0,0 +1,5 @@
+package com.stocks.dto;
+
+// One symbol search hit from a market data provider
+public record SymbolMatch(String symbol, String name) {
+}
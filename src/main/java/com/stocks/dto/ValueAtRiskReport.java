@@ -0,0 +1,14 @@
+package com.stocks.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+// VaR and CVaR (expected shortfall) of a user's holdings as positive losses in the holdings' currency.
+// Holdings without enough stored daily closes are listed in excluded and left out of every figure;
+// the estimates are absent when fewer than two return observations remain
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ValueAtRiskReport(double portfolioValue, double confidence, int horizonDays, int observations,
+                                int paths, Double historicalVar, Double historicalCvar, Double monteCarloVar,
+                                Double monteCarloCvar, List<String> excluded, String asOf) {
+}
@@ -0,0 +1,33 @@
+package com.stocks.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Instant;
+
+// Marks the ledger position a user's PositionSnapshot rows were folded up to
+@Getter
+@Setter
+@Entity
+@Table(name = "ledger_snapshots", indexes = {
+    @Index(name = "idx_ledger_snapshots_user_id_last_event_id", columnList = "user_id, last_event_id")
+})
+public class LedgerSnapshot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "last_event_id", nullable = false)
+    private Long lastEventId;
+
+    @Column(name = "taken_at", nullable = false)
+    private Instant takenAt;
+
+    // Realized P&L up to last_event_id; null on snapshots taken before it was tracked
+    private Double realized;
+}
@@ -0,0 +1,31 @@
+package com.stocks.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+// One open position inside a LedgerSnapshot
+@Getter
+@Setter
+@Entity
+@Table(name = "position_snapshots", indexes = {
+    @Index(name = "idx_position_snapshots_snapshot_id", columnList = "snapshot_id")
+})
+public class PositionSnapshot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "snapshot_id", nullable = false)
+    private Long snapshotId;
+
+    @Column(nullable = false)
+    private String symbol;
+
+    @Column(nullable = false)
+    private Integer quantity;
+
+    @Column(nullable = false)
+    private Double cost;
+}
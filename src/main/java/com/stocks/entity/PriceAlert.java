@@ -0,0 +1,71 @@
+package com.stocks.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Instant;
+
+// A user's price alert on one symbol. Fires once: triggeredAt and triggeredPrice are set when a quote
+// crosses it, after which it is kept for the user to see but no longer matched
+@Getter
+@Setter
+@Entity
+@Table(name = "price_alerts", indexes = {
+    @Index(name = "idx_price_alerts_user_id_id", columnList = "user_id, id"),
+    // Startup loads every alert that has not fired yet
+    @Index(name = "idx_price_alerts_triggered_at", columnList = "triggered_at")
+})
+public class PriceAlert {
+
+    // ABOVE / BELOW: threshold is a price. PERCENT_MOVE: threshold is a percentage either way from referencePrice
+    public enum Type { ABOVE, BELOW, PERCENT_MOVE }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(nullable = false, length = 32)
+    private String symbol;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 12)
+    private Type type;
+
+    @Column(nullable = false)
+    private Double threshold;
+
+    // Price when the alert was created
+    @Column(name = "reference_price", nullable = false)
+    private Double referencePrice;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    @Column(name = "triggered_at")
+    private Instant triggeredAt;
+
+    @Column(name = "triggered_price")
+    private Double triggeredPrice;
+
+    // Price at or above which it fires; NaN if it never fires upwards
+    public double abovePrice() {
+        return switch (type) {
+            case ABOVE -> threshold;
+            case BELOW -> Double.NaN;
+            case PERCENT_MOVE -> referencePrice * (1 + threshold / 100);
+        };
+    }
+
+    // Price at or below which it fires; NaN if it never fires downwards
+    public double belowPrice() {
+        return switch (type) {
+            case ABOVE -> Double.NaN;
+            case BELOW -> threshold;
+            case PERCENT_MOVE -> referencePrice * (1 - threshold / 100);
+        };
+    }
+}
@@ -8,7 +8,15 @@ import lombok.Setter;
 @Getter
 @Setter
 @Entity
-@Table(name = "stocks")
+@Table(name = "stocks", uniqueConstraints = {
+    // One holding row per user and symbol; the buy upsert relies on it. Tables written before symbols
+    // were normalized are merged by db/merge-duplicate-holdings.sql before this is added
+    @UniqueConstraint(name = "uk_stocks_user_symbol", columnNames = {"user_id", "symbol"})
+}, indexes = {
+    // Keyset pagination on (user_id, id); the trailing columns make it covering, so holdings reads are
+    // index-only scans
+    @Index(name = "idx_stocks_user_id_id", columnList = "user_id, id, symbol, price, quantity, version")
+})
 public class Stock {
 
     @Id
@@ -19,7 +27,13 @@ public class Stock {
     private Double price;
     private Integer quantity;  // New column for quantity
 
-    @ManyToOne
+    // Optimistic lock for entity updates; the single-statement trade queries bump it too
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private long version;
+
+    // Lazy so reading holdings never issues a SELECT on users
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     @JsonBackReference
     private User user;
@@ -0,0 +1,25 @@
+package com.stocks.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(name = "symbol_directory")
+public class SymbolName {
+
+    @Id
+    @Column(length = 32)
+    private String symbol;
+
+    private String name;
+
+    public SymbolName(String symbol, String name) {
+        this.symbol = symbol;
+        this.name = name;
+    }
+}
@@ -0,0 +1,43 @@
+package com.stocks.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Instant;
+
+// Append-only ledger row; never updated or deleted. Rows are written in JDBC batches by TradeLedger.
+@Getter
+@Setter
+@Entity
+@Table(name = "trade_events", indexes = {
+    @Index(name = "idx_trade_events_user_id_id", columnList = "user_id, id")
+})
+public class TradeEvent {
+
+    public enum Side { BUY, SELL }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "trade_events_seq")
+    @SequenceGenerator(name = "trade_events_seq", sequenceName = "trade_events_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(nullable = false)
+    private String symbol;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 4)
+    private Side side;
+
+    @Column(nullable = false)
+    private Integer quantity;
+
+    // Total cost for a buy; sale proceeds for a sell when the client sent a price, otherwise null
+    private Double amount;
+
+    @Column(name = "executed_at", nullable = false)
+    private Instant executedAt;
+}
@@ -0,0 +1,8 @@
+package com.stocks.exceptions;
+
+// Thrown instead of calling an upstream function whose circuit breaker is open
+public class CircuitOpenException extends UpstreamUnavailableException {
+    public CircuitOpenException(String message) {
+        super(message);
+    }
+}
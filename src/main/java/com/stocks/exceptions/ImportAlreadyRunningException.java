@@ -0,0 +1,8 @@
+package com.stocks.exceptions;
+
+// Thrown when a user starts a trade import while another one of theirs is still running
+public class ImportAlreadyRunningException extends RuntimeException {
+    public ImportAlreadyRunningException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,11 @@
+package com.stocks.exceptions;
+
+public class MarketDataException extends RuntimeException {
+    public MarketDataException(String message) {
+        super(message);
+    }
+
+    public MarketDataException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
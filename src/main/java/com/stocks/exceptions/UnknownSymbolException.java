@@ -0,0 +1,8 @@
+package com.stocks.exceptions;
+
+// The provider answered but has no data for this symbol (typo, delisted); says nothing about its health
+public class UnknownSymbolException extends MarketDataException {
+    public UnknownSymbolException(String message) {
+        super(message);
+    }
+}
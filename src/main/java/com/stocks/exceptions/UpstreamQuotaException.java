@@ -0,0 +1,8 @@
+package com.stocks.exceptions;
+
+// Thrown when an upstream call is refused by the client-side quota rather than by the provider
+public class UpstreamQuotaException extends UpstreamUnavailableException {
+    public UpstreamQuotaException(String message) {
+        super(message);
+    }
+}
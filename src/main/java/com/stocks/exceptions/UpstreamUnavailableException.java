@@ -0,0 +1,8 @@
+package com.stocks.exceptions;
+
+// Market data could not be fetched right now, without the provider having been asked; maps to 503
+public class UpstreamUnavailableException extends MarketDataException {
+    public UpstreamUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -1,8 +1,14 @@
 package com.stocks.repository;
 
+import com.stocks.dto.StockView;
 import com.stocks.entity.Stock;
 import com.stocks.entity.User;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -10,4 +16,54 @@ import java.util.Optional;
 public interface StockRepository extends JpaRepository<Stock, Long> {
     List<Stock> findByUser(User user);
     Optional<Stock> findByUserAndSymbol(User user, String symbol);
-}
\ No newline at end of file
+
+    // Id-based variants: filter on the user_id column without loading the User
+    List<Stock> findByUserId(Long userId);
+    Optional<Stock> findByUserIdAndSymbol(Long userId, String symbol);
+
+    // Keyset page of holdings as projections, ordered by id; served from idx_stocks_user_id_id
+    @Query("select new com.stocks.dto.StockView(s.id, s.symbol, s.price, s.quantity, s.version) from Stock s "
+            + "where s.user.id = :userId and s.id > :afterId order by s.id")
+    List<StockView> findViewsByUserId(@Param("userId") Long userId, @Param("afterId") long afterId, Limit limit);
+
+    // Every held symbol with the number of users holding it
+    @Query("select s.symbol as symbol, count(s) as holders from Stock s group by s.symbol")
+    List<SymbolHolders> countHoldersBySymbol();
+
+    interface SymbolHolders {
+        String getSymbol();
+        long getHolders();
+    }
+
+    @Query("select s.quantity from Stock s where s.user.id = :userId and s.symbol = :symbol")
+    Optional<Integer> findQuantity(@Param("userId") Long userId, @Param("symbol") String symbol);
+
+    // Buy: insert the holding or add to it in one statement (needs uk_stocks_user_symbol).
+    // A returned version of 0 means the row was created.
+    @Transactional
+    @Query(value = """
+            INSERT INTO stocks (user_id, symbol, price, quantity, version)
+            VALUES (:userId, :symbol, :price, :quantity, 0)
+            ON CONFLICT (user_id, symbol) DO UPDATE
+            SET quantity = stocks.quantity + EXCLUDED.quantity,
+                price = stocks.price + EXCLUDED.price,
+                version = stocks.version + 1
+            RETURNING *
+            """, nativeQuery = true)
+    Stock upsertBuy(@Param("userId") Long userId, @Param("symbol") String symbol,
+                    @Param("price") double price, @Param("quantity") int quantity);
+
+    // Partial sell: only succeeds while more than the sold quantity is held; cost shrinks at average price
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update Stock s set s.price = s.price - (s.price / s.quantity) * :quantity, "
+            + "s.quantity = s.quantity - :quantity, s.version = s.version + 1 "
+            + "where s.user.id = :userId and s.symbol = :symbol and s.quantity > :quantity")
+    int sellPartial(@Param("userId") Long userId, @Param("symbol") String symbol, @Param("quantity") int quantity);
+
+    // Full sell: removes the holding only if exactly this quantity is still held
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("delete from Stock s where s.user.id = :userId and s.symbol = :symbol and s.quantity = :quantity")
+    int sellAll(@Param("userId") Long userId, @Param("symbol") String symbol, @Param("quantity") int quantity);
+}
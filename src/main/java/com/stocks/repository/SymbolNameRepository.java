@@ -0,0 +1,7 @@
+package com.stocks.repository;
+
+import com.stocks.entity.SymbolName;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface SymbolNameRepository extends JpaRepository<SymbolName, String> {
+}
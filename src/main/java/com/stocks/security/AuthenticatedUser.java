@@ -0,0 +1,5 @@
+package com.stocks.security;
+
+// Principal placed in the security context by JwtAuthenticationFilter; the id is all handlers need
+public record AuthenticatedUser(Long id) {
+}
@@ -0,0 +1,54 @@
+package com.stocks.security;
+
+import com.stocks.exceptions.UnauthorizedException;
+import com.stocks.service.JwtService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Resolves the bearer token once per request and stores an {@link AuthenticatedUser} in the
+ * security context. The user id comes from the token; JwtService checks once per cached token that
+ * the user still exists. A missing or invalid token leaves the request anonymous, so open endpoints
+ * such as login still work with a stale header and protected ones get the 401 of the entry point.
+ */
+public class JwtAuthenticationFilter extends OncePerRequestFilter {
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final JwtService jwtService;
+
+    public JwtAuthenticationFilter(JwtService jwtService) {
+        this.jwtService = jwtService;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (header == null || !header.startsWith(BEARER_PREFIX)) {
+            // Anonymous; protected endpoints are rejected by the entry point in SecurityConfig
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        try {
+            Long userId = jwtService.extractUserId(header.substring(BEARER_PREFIX.length()));
+            UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
+                    new AuthenticatedUser(userId), null, AuthorityUtils.NO_AUTHORITIES);
+            SecurityContextHolder.getContext().setAuthentication(authentication);
+        } catch (UnauthorizedException e) {
+            // Expired, forged or of a deleted user: carry on as anonymous
+            SecurityContextHolder.clearContext();
+        }
+        filterChain.doFilter(request, response);
+    }
+}
@@ -0,0 +1,216 @@
+package com.stocks.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stocks.dto.Quote;
+import com.stocks.dto.SymbolMatch;
+import com.stocks.exceptions.MarketDataException;
+import com.stocks.exceptions.UnknownSymbolException;
+import com.stocks.exceptions.UpstreamQuotaException;
+import com.stocks.util.CsvUtils;
+import com.stocks.util.TimeSeriesBars;
+import com.stocks.util.TimeSeriesParser;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Alpha Vantage over the pooled RestTemplate. Every call spends the shared client-side quota
+ * ({@link UpstreamRateLimiter}) and goes through the circuit breaker of its function.
+ */
+@Component
+@ConditionalOnProperty(name = "market.data.provider", havingValue = "alphavantage", matchIfMissing = true)
+public class AlphaVantageProvider implements MarketDataProvider {
+
+    private static final int COMPACT_BARS = 100;
+
+    @Value("${alpha.vantage.api.url}")
+    private String apiUrl;
+
+    @Value("${alpha.vantage.api.key}")
+    private String apiKey;
+
+    // Pooled, keep-alive client shared by every Alpha Vantage call (see HttpClientConfig)
+    @Autowired
+    private RestTemplate restTemplate;
+
+    @Autowired
+    private UpstreamRateLimiter rateLimiter;
+
+    @Autowired
+    private UpstreamCircuitBreakers circuitBreakers;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Override
+    public Quote latestQuote(String symbol, UpstreamPriority priority) {
+        // Construct the API URL for both real-time and previous closing price
+        String realTimeUrl = UriComponentsBuilder.fromHttpUrl(apiUrl)
+                .queryParam("function", "TIME_SERIES_INTRADAY")
+                .queryParam("symbol", symbol)
+                .queryParam("interval", "1min")
+                .queryParam("apikey", apiKey)
+                .toUriString();
+
+        String dailyUrl = UriComponentsBuilder.fromHttpUrl(apiUrl)
+                .queryParam("function", "TIME_SERIES_DAILY")
+                .queryParam("symbol", symbol)
+                .queryParam("apikey", apiKey)
+                .toUriString();
+
+        String price;
+        try {
+            // First, try fetching real-time data (1-minute interval)
+            price = latestClose(UpstreamFunction.INTRADAY, realTimeUrl, symbol, priority);
+        } catch (UpstreamQuotaException | UnknownSymbolException e) {
+            // Neither is helped by asking the daily series
+            throw e;
+        } catch (RuntimeException e) {
+            // If real-time data fails, fall back to previous closing price
+            price = latestClose(UpstreamFunction.DAILY, dailyUrl, symbol, priority);
+        }
+        // Names come from SYMBOL_SEARCH via the symbol directory
+        return new Quote(symbol, null, price, System.currentTimeMillis());
+    }
+
+    // compact returns the latest 100 bars; anything more needs the full series
+    @Override
+    public TimeSeriesBars history(String symbol, BarInterval interval, int maxBars, UpstreamPriority priority) {
+        UriComponentsBuilder url = UriComponentsBuilder.fromHttpUrl(apiUrl)
+                .queryParam("symbol", symbol)
+                .queryParam("outputsize", maxBars > COMPACT_BARS ? "full" : "compact")
+                .queryParam("apikey", apiKey);
+        if (interval == BarInterval.INTRADAY) {
+            url.queryParam("function", "TIME_SERIES_INTRADAY").queryParam("interval", "1min");
+        } else {
+            url.queryParam("function", "TIME_SERIES_DAILY");
+        }
+        UpstreamFunction function = interval == BarInterval.INTRADAY ? UpstreamFunction.INTRADAY : UpstreamFunction.DAILY;
+        String historyUrl = url.toUriString();
+
+        return circuitBreakers.call(function, () -> {
+            ResponseEntity<String> response = callUpstream(historyUrl, priority);
+            try {
+                TimeSeriesBars bars = TimeSeriesParser.parseLatest(response.getBody(), maxBars);
+                if (bars.isEmpty()) {
+                    throw noData(symbol, response.getBody());
+                }
+                return bars;
+            } catch (IOException e) {
+                throw new MarketDataException("Unreadable market data for " + symbol, e);
+            }
+        });
+    }
+
+    @Override
+    public List<SymbolMatch> search(String keywords, UpstreamPriority priority) {
+        String searchUrl = UriComponentsBuilder.fromHttpUrl(apiUrl)
+                .queryParam("function", "SYMBOL_SEARCH")
+                .queryParam("keywords", keywords)
+                .queryParam("apikey", apiKey)
+                .toUriString();
+
+        return circuitBreakers.call(UpstreamFunction.SEARCH, () -> {
+            ResponseEntity<String> response = callUpstream(searchUrl, priority);
+            List<SymbolMatch> matches = new ArrayList<>();
+            if (response.getStatusCode() != HttpStatus.OK) {
+                return matches;
+            }
+            try {
+                JsonNode bestMatches = objectMapper.readTree(response.getBody()).path("bestMatches");
+                for (JsonNode match : bestMatches) {
+                    matches.add(new SymbolMatch(match.path("1. symbol").asText(), match.path("2. name").asText()));
+                }
+            } catch (IOException e) {
+                throw new MarketDataException("Unreadable search results for " + keywords, e);
+            }
+            return matches;
+        });
+    }
+
+    // LISTING_STATUS is a CSV of every active symbol, streamed line by line
+    @Override
+    public Map<String, String> listing() {
+        String listingUrl = UriComponentsBuilder.fromHttpUrl(apiUrl)
+                .queryParam("function", "LISTING_STATUS")
+                .queryParam("apikey", apiKey)
+                .toUriString();
+
+        rateLimiter.acquire(UpstreamPriority.BACKGROUND);
+        Map<String, String> listing = restTemplate.execute(listingUrl, HttpMethod.GET, null, response -> {
+            Map<String, String> parsed = new HashMap<>();
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(response.getBody(), StandardCharsets.UTF_8))) {
+                String line = reader.readLine(); // header: symbol,name,exchange,assetType,...
+                while ((line = reader.readLine()) != null) {
+                    List<String> fields = CsvUtils.splitLine(line);
+                    if (fields.size() >= 2 && !fields.get(0).isEmpty() && !fields.get(1).isEmpty()) {
+                        parsed.put(fields.get(0).trim().toUpperCase(Locale.ROOT), fields.get(1));
+                    }
+                }
+            }
+            return parsed;
+        });
+        return listing == null ? Map.of() : listing;
+    }
+
+    // Most recent close of a time series call; an answer without bars never becomes a price
+    private String latestClose(UpstreamFunction function, String url, String symbol, UpstreamPriority priority) {
+        return circuitBreakers.call(function, () -> {
+            ResponseEntity<String> response = callUpstream(url, priority);
+            if (response.getStatusCode() != HttpStatus.OK) {
+                throw new MarketDataException("Error fetching stock data for " + symbol + " - " + response.getStatusCode());
+            }
+            TimeSeriesBars latest;
+            try {
+                // Stream to the most recent bar without building a tree of the whole series
+                latest = TimeSeriesParser.parseLatest(response.getBody());
+            } catch (IOException e) {
+                throw new MarketDataException("Unreadable market data for " + symbol, e);
+            }
+            if (latest.isEmpty() || Double.isNaN(latest.latestClose())) {
+                throw noData(symbol, response.getBody());
+            }
+            return BigDecimal.valueOf(latest.latestClose()).toPlainString();
+        });
+    }
+
+    // Alpha Vantage answers 200 either way: "Note" / "Information" is its rate limit and counts against the
+    // circuit breaker, "Error Message" (or no series at all) means it doesn't know the symbol, which must not
+    // let a handful of typos open the circuit for everyone
+    private MarketDataException noData(String symbol, String body) {
+        JsonNode root;
+        try {
+            root = objectMapper.readTree(body == null ? "{}" : body);
+        } catch (IOException e) {
+            return new MarketDataException("Unreadable market data for " + symbol, e);
+        }
+        if (root.has("Note") || root.has("Information")) {
+            return new MarketDataException("Market data provider is rate limiting requests for " + symbol);
+        }
+        return new UnknownSymbolException("No market data available for " + symbol);
+    }
+
+    // Every Alpha Vantage call goes through the shared quota budget first
+    private ResponseEntity<String> callUpstream(String url, UpstreamPriority priority) {
+        rateLimiter.acquire(priority);
+        return restTemplate.getForEntity(url, String.class);
+    }
+}
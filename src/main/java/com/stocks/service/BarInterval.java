@@ -0,0 +1,35 @@
+package com.stocks.service;
+
+import java.util.Locale;
+
+// Bar sizes kept in the history store; the name doubles as the store's directory
+public enum BarInterval {
+    INTRADAY(60),
+    DAILY(86_400);
+
+    private final long seconds;
+
+    BarInterval(long seconds) {
+        this.seconds = seconds;
+    }
+
+    public long seconds() {
+        return seconds;
+    }
+
+    public String id() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    // Accepts "daily", "intraday" or "1min"; null for anything else
+    public static BarInterval fromParam(String value) {
+        if (value == null) {
+            return DAILY;
+        }
+        return switch (value.trim().toLowerCase(Locale.ROOT)) {
+            case "daily", "1d" -> DAILY;
+            case "intraday", "1min" -> INTRADAY;
+            default -> null;
+        };
+    }
+}
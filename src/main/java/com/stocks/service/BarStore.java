@@ -0,0 +1,290 @@
+package com.stocks.service;
+
+import com.stocks.dto.BarHistory;
+import com.stocks.exceptions.MarketDataException;
+import com.stocks.util.TimeSeriesBars;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Local store of historical OHLCV bars, one directory per interval and symbol.
+ *
+ * Each series is six append-only column files of 8-byte values (ts, open, high, low, close, volume),
+ * oldest first. Reads go through read-only memory maps, so a chart request is two binary searches on
+ * the ts column plus bulk copies out of the page cache. Appends only add bars newer than the last
+ * stored one; a bar with the same timestamp as the last one replaces it, since the latest daily bar
+ * keeps changing until the session closes. After an append the columns are remapped and the new view
+ * published, so readers never wait on a write. Open series are kept in an LRU of
+ * bars.store.max-open-series entries; an evicted one is simply mapped again from its files when next
+ * read. Opening and appending are serialized per lock stripe rather than per open series, so an evicted
+ * series and its replacement never write at the same time.
+ */
+@Component
+public class BarStore {
+
+    private static final String[] COLUMNS = {"ts", "open", "high", "low", "close", "volume"};
+    private static final Pattern VALID_SYMBOL = Pattern.compile("[A-Z0-9.^=-]{1,16}");
+    private static final int STRIPES = 64;
+
+    @Value("${bars.store.dir:data/bars}")
+    private String storeDir;
+
+    @Value("${bars.store.max-open-series:2000}")
+    private int maxOpenSeries;
+
+    // Guarded by itself
+    private final Map<String, Series> series = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Series> eldest) {
+            return size() > Math.max(1, maxOpenSeries);
+        }
+    };
+
+    private final Object[] locks = new Object[STRIPES];
+
+    {
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    // One mapped snapshot of a series' columns
+    private record Columns(int size, LongBuffer ts, DoubleBuffer open, DoubleBuffer high, DoubleBuffer low,
+                           DoubleBuffer close, LongBuffer volume) {
+
+        static final Columns EMPTY = new Columns(0, null, null, null, null, null, null);
+    }
+
+    private static final class Series {
+        final Path dir;
+        volatile Columns columns;
+
+        Series(Path dir, Columns columns) {
+            this.dir = dir;
+            this.columns = columns;
+        }
+    }
+
+    public int size(String symbol, BarInterval interval) {
+        return series(symbol, interval).columns.size();
+    }
+
+    // Timestamp of the newest stored bar, or Long.MIN_VALUE when there is none
+    public long lastTimestamp(String symbol, BarInterval interval) {
+        Columns columns = series(symbol, interval).columns;
+        return columns.size() == 0 ? Long.MIN_VALUE : columns.ts().get(columns.size() - 1);
+    }
+
+    // Bars with from <= ts <= to, oldest first; if more than limit match, the newest limit of them
+    public BarHistory range(String symbol, BarInterval interval, long from, long to, int limit) {
+        Columns columns = series(symbol, interval).columns;
+        int start = lowerBound(columns, from);
+        int end = upperBound(columns, to);
+        if (end - start > limit) {
+            start = end - limit;
+        }
+        return copy(symbol, interval, columns, start, end);
+    }
+
+    // Bars from index from (0 = oldest stored) to the newest, for callers that track how far they have read
+    public BarHistory read(String symbol, BarInterval interval, int from) {
+        Columns columns = series(symbol, interval).columns;
+        return copy(symbol, interval, columns, Math.max(0, from), columns.size());
+    }
+
+    private static BarHistory copy(String symbol, BarInterval interval, Columns columns, int start, int end) {
+        int count = Math.max(0, end - start);
+
+        long[] ts = new long[count];
+        double[] open = new double[count];
+        double[] high = new double[count];
+        double[] low = new double[count];
+        double[] close = new double[count];
+        long[] volume = new long[count];
+        if (count > 0) {
+            columns.ts().get(start, ts);
+            columns.open().get(start, open);
+            columns.high().get(start, high);
+            columns.low().get(start, low);
+            columns.close().get(start, close);
+            columns.volume().get(start, volume);
+        }
+        return new BarHistory(normalize(symbol), interval.id(), ts, open, high, low, close, volume);
+    }
+
+    // Append the bars (newest first, as parsed) that are not older than the last stored one
+    public int append(String symbol, BarInterval interval, TimeSeriesBars bars) {
+        synchronized (lock(key(symbol, interval))) {
+            Series target = series(symbol, interval);
+            Columns current = target.columns;
+            long last = current.size() == 0 ? Long.MIN_VALUE : current.ts().get(current.size() - 1);
+
+            // Bars come newest first, so the fresh ones are a prefix; firstFresh is the oldest of them and
+            // is the only one that can share the stored last bar's timestamp
+            int firstFresh = -1;
+            for (int i = 0; i < bars.size() && bars.timestamp(i) >= last; i++) {
+                firstFresh = i;
+            }
+            if (firstFresh < 0) {
+                return 0;
+            }
+
+            int count = firstFresh + 1;
+            int position = current.size() > 0 && bars.timestamp(firstFresh) == last ? current.size() - 1 : current.size();
+            ByteBuffer[] data = new ByteBuffer[COLUMNS.length];
+            for (int c = 0; c < COLUMNS.length; c++) {
+                data[c] = ByteBuffer.allocate(count * 8);
+            }
+            for (int i = firstFresh; i >= 0; i--) {
+                data[0].putLong(bars.timestamp(i));
+                data[1].putDouble(bars.open(i));
+                data[2].putDouble(bars.high(i));
+                data[3].putDouble(bars.low(i));
+                data[4].putDouble(bars.close(i));
+                data[5].putLong(bars.volume(i));
+            }
+
+            try {
+                Files.createDirectories(target.dir);
+                for (int c = 0; c < COLUMNS.length; c++) {
+                    data[c].flip();
+                    try (FileChannel channel = FileChannel.open(target.dir.resolve(COLUMNS[c]),
+                            StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                        long offset = position * 8L;
+                        while (data[c].hasRemaining()) {
+                            offset += channel.write(data[c], offset);
+                        }
+                    }
+                }
+                target.columns = map(target.dir, position + count);
+            } catch (IOException e) {
+                throw new MarketDataException("Could not store bars for " + symbol, e);
+            }
+            return count;
+        }
+    }
+
+    private Series series(String symbol, BarInterval interval) {
+        String key = key(symbol, interval);
+        Series found;
+        synchronized (series) {
+            found = series.get(key);
+        }
+        if (found != null) {
+            return found;
+        }
+        // Mapped under the stripe lock, so the size read from disk includes every finished append
+        synchronized (lock(key)) {
+            synchronized (series) {
+                found = series.get(key);
+            }
+            if (found != null) {
+                return found;
+            }
+            Path dir = Paths.get(storeDir, interval.id(), normalize(symbol));
+            try {
+                found = new Series(dir, map(dir, storedSize(dir)));
+            } catch (IOException e) {
+                throw new MarketDataException("Could not open bar store for " + normalize(symbol), e);
+            }
+            synchronized (series) {
+                series.put(key, found);
+            }
+            return found;
+        }
+    }
+
+    // Also rejects symbols that could not be a directory name
+    private static String key(String symbol, BarInterval interval) {
+        String normalized = normalize(symbol);
+        if (!VALID_SYMBOL.matcher(normalized).matches()) {
+            throw new MarketDataException("Invalid symbol " + symbol);
+        }
+        return interval.id() + "/" + normalized;
+    }
+
+    private Object lock(String key) {
+        int h = key.hashCode();
+        return locks[(h ^ (h >>> 16)) & (STRIPES - 1)];
+    }
+
+    // Package-private for tests
+    int openSeries() {
+        synchronized (series) {
+            return series.size();
+        }
+    }
+
+    // A crash between column writes can leave columns of different lengths; the shortest one wins
+    private static int storedSize(Path dir) throws IOException {
+        long bytes = Long.MAX_VALUE;
+        for (String column : COLUMNS) {
+            Path file = dir.resolve(column);
+            bytes = Math.min(bytes, Files.exists(file) ? Files.size(file) : 0);
+        }
+        return (int) (bytes / 8);
+    }
+
+    private static Columns map(Path dir, int size) throws IOException {
+        if (size == 0) {
+            return Columns.EMPTY;
+        }
+        MappedByteBuffer[] mapped = new MappedByteBuffer[COLUMNS.length];
+        for (int c = 0; c < COLUMNS.length; c++) {
+            try (FileChannel channel = FileChannel.open(dir.resolve(COLUMNS[c]), StandardOpenOption.READ)) {
+                mapped[c] = channel.map(FileChannel.MapMode.READ_ONLY, 0, size * 8L);
+            }
+        }
+        return new Columns(size, mapped[0].asLongBuffer(), mapped[1].asDoubleBuffer(), mapped[2].asDoubleBuffer(),
+                mapped[3].asDoubleBuffer(), mapped[4].asDoubleBuffer(), mapped[5].asLongBuffer());
+    }
+
+    // First index with ts >= from
+    private static int lowerBound(Columns columns, long from) {
+        int low = 0;
+        int high = columns.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (columns.ts().get(mid) < from) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // First index with ts > to
+    private static int upperBound(Columns columns, long to) {
+        int low = 0;
+        int high = columns.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (columns.ts().get(mid) <= to) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static String normalize(String symbol) {
+        return symbol.trim().toUpperCase(Locale.ROOT);
+    }
+}
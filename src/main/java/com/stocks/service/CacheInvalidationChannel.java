@@ -0,0 +1,18 @@
+package com.stocks.service;
+
+import java.util.function.BiConsumer;
+
+/**
+ * Carries cache invalidations between application nodes, so a write on one instance evicts the
+ * entry everywhere. Chosen by cache.invalidation.channel: local (default, a single node) or postgres
+ * (LISTEN/NOTIFY on the application database).
+ */
+public interface CacheInvalidationChannel {
+
+    // Tell the other nodes to drop key from the named cache; not delivered back to this node
+    void publish(String cache, String key);
+
+    // Called with (cache, key) for every invalidation from another node. (null, null) means messages
+    // may have been missed, e.g. after a reconnect, and everything cached should be dropped
+    void subscribe(BiConsumer<String, String> listener);
+}
@@ -0,0 +1,119 @@
+package com.stocks.service;
+
+import com.stocks.exceptions.CircuitOpenException;
+import com.stocks.exceptions.MarketDataException;
+import com.stocks.exceptions.UnknownSymbolException;
+import com.stocks.exceptions.UpstreamUnavailableException;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
+
+import java.util.function.Supplier;
+
+/**
+ * Consecutive-failure circuit breaker for one upstream function.
+ *
+ * CLOSED passes every call and opens after {@code failureThreshold} failures in a row. OPEN rejects
+ * calls immediately until {@code openMs} has passed, then HALF_OPEN lets up to {@code halfOpenProbes}
+ * calls through: one success closes the circuit again, one failure re-opens it for another period.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openMs;
+    private final int halfOpenProbes;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private int probesInFlight;
+
+    public CircuitBreaker(String name, int failureThreshold, long openMs, int halfOpenProbes) {
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.openMs = openMs;
+        this.halfOpenProbes = halfOpenProbes;
+    }
+
+    public <T> T call(Supplier<T> upstreamCall) {
+        boolean probe = acquirePermission();
+        try {
+            T result = upstreamCall.get();
+            onSuccess(probe);
+            return result;
+        } catch (RuntimeException e) {
+            if (countsAsFailure(e)) {
+                onFailure(probe);
+            } else {
+                // Not the provider's fault; just give back the probe slot if we held one
+                release(probe);
+            }
+            throw e;
+        }
+    }
+
+    public synchronized State state() {
+        if (state == State.OPEN && System.currentTimeMillis() - openedAt >= openMs) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    // Returns whether this call is a half-open probe
+    private synchronized boolean acquirePermission() {
+        if (state == State.OPEN) {
+            if (System.currentTimeMillis() - openedAt < openMs) {
+                throw new CircuitOpenException("Market data temporarily unavailable (" + name + " circuit open)");
+            }
+            state = State.HALF_OPEN;
+            probesInFlight = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (probesInFlight >= halfOpenProbes) {
+                throw new CircuitOpenException("Market data temporarily unavailable (" + name + " circuit probing)");
+            }
+            probesInFlight++;
+            return true;
+        }
+        return false;
+    }
+
+    private synchronized void onSuccess(boolean probe) {
+        release(probe);
+        consecutiveFailures = 0;
+        state = State.CLOSED;
+    }
+
+    private synchronized void onFailure(boolean probe) {
+        release(probe);
+        consecutiveFailures++;
+        if (probe || state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+        }
+    }
+
+    private synchronized void release(boolean probe) {
+        if (probe && probesInFlight > 0) {
+            probesInFlight--;
+        }
+    }
+
+    // Only the provider being down or throttling us counts: 5xx, 429, I/O errors and its rate-limit or
+    // unreadable answers. Our own shedding, unknown symbols, other 4xx and bugs on our side do not
+    static boolean countsAsFailure(RuntimeException e) {
+        if (e instanceof UpstreamUnavailableException || e instanceof UnknownSymbolException) {
+            return false;
+        }
+        if (e instanceof HttpClientErrorException clientError) {
+            return clientError.getStatusCode().value() == 429;
+        }
+        return e instanceof RestClientException || e instanceof MarketDataException;
+    }
+}
@@ -0,0 +1,259 @@
+package com.stocks.service;
+
+import com.stocks.dto.BarHistory;
+import com.stocks.exceptions.UnknownSymbolException;
+import com.stocks.exceptions.UpstreamUnavailableException;
+import com.stocks.repository.StockRepository;
+import com.stocks.util.TimeSeriesBars;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serves historical bars from the local {@link BarStore} and keeps it filled.
+ *
+ * Reads never go upstream. A series nobody has asked for yet is backfilled in the background on first
+ * request; after that, held symbols (daily) and recently requested series are topped up on a schedule
+ * with a compact fetch that only adds bars newer than the last stored one. A series whose backfill finds
+ * no data upstream is not tracked or fetched again until its retry time, and at most
+ * {@code bars.refresh.max-tracked} requested series are tracked, least recently requested dropped first.
+ * Scheduled top-ups are queued and run on the quote executor, at most {@code bars.refresh.max-in-flight}
+ * at a time, so the scheduler thread only builds the queue.
+ */
+@Service
+public class HistoryService {
+
+    // Bars asked for on a first backfill (Alpha Vantage then returns the full series)
+    @Value("${bars.backfill-bars:20000}")
+    private int backfillBars;
+
+    // Bars asked for on a top-up; if the newest stored bar is older than all of them we backfill instead
+    @Value("${bars.incremental-bars:100}")
+    private int incrementalBars;
+
+    // Requested series keep being refreshed for this long after the last request
+    @Value("${bars.refresh.track-ms:86400000}")
+    private long trackMs;
+
+    @Value("${bars.refresh.max-tracked:5000}")
+    private int maxTracked;
+
+    // A series the provider has no data for is not asked about again for this long
+    @Value("${bars.refresh.empty-retry-ms:86400000}")
+    private long emptyRetryMs;
+
+    // Scheduled top-ups running at once, so they never take over the quote executor
+    @Value("${bars.refresh.max-in-flight:4}")
+    private int maxInFlight;
+
+    @Autowired
+    private BarStore barStore;
+
+    @Autowired
+    private MarketDataProvider marketDataProvider;
+
+    @Autowired
+    private StockRepository stockRepository;
+
+    @Autowired
+    @Qualifier("quoteExecutor")
+    private Executor quoteExecutor;
+
+    // interval/symbol -> last request time
+    private final Map<String, Long> requested = new ConcurrentHashMap<>();
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+    // interval/symbol -> when a backfill may be tried again
+    private final Map<String, Long> unavailable = new ConcurrentHashMap<>();
+    // Series still to top up in this scheduled run
+    private final Queue<String> backlog = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    // Stored bars in [from, to]; an empty result for a series we have never stored starts a backfill
+    public BarHistory history(String ticker, BarInterval interval, long from, long to, int limit) {
+        String symbol = QuoteCache.normalize(ticker);
+        BarHistory history = barStore.range(symbol, interval, from, to, limit);
+        track(symbol, interval);
+        return history;
+    }
+
+    // Keep a series that was just read from the store topped up, backfilling it if it is empty
+    public void track(String ticker, BarInterval interval) {
+        String symbol = QuoteCache.normalize(ticker);
+        // size() rejects invalid symbols before we start tracking them
+        boolean empty = barStore.size(symbol, interval) == 0;
+        String key = key(symbol, interval);
+        long now = System.currentTimeMillis();
+        if (isUnavailable(key, now)) {
+            return;
+        }
+        if (requested.put(key, now) == null && requested.size() > maxTracked) {
+            dropLeastRecentlyRequested(key);
+        }
+        if (empty) {
+            refreshAsync(symbol, interval, UpstreamPriority.SEARCH);
+        }
+    }
+
+    public boolean isRefreshing(String ticker, BarInterval interval) {
+        return refreshing.contains(key(QuoteCache.normalize(ticker), interval));
+    }
+
+    // Fetch only what is missing and append it; returns the number of bars written
+    public int refresh(String symbol, BarInterval interval, UpstreamPriority priority) {
+        long last = barStore.lastTimestamp(symbol, interval);
+        boolean empty = last == Long.MIN_VALUE;
+        TimeSeriesBars bars;
+        try {
+            bars = marketDataProvider.history(symbol, interval, empty ? backfillBars : incrementalBars, priority);
+        } catch (UnknownSymbolException e) {
+            if (empty) {
+                markUnavailable(symbol, interval);
+            }
+            throw e;
+        }
+        if (empty && bars.isEmpty()) {
+            markUnavailable(symbol, interval);
+            return 0;
+        }
+        if (!empty && bars.size() >= incrementalBars && bars.timestamp(bars.size() - 1) > last) {
+            // The short window doesn't reach back to what we have; fetch enough to close the gap
+            bars = marketDataProvider.history(symbol, interval, backfillBars, priority);
+        }
+        return barStore.append(symbol, interval, bars);
+    }
+
+    @Scheduled(fixedDelayString = "${bars.refresh.interval-ms:3600000}",
+               initialDelayString = "${bars.refresh.initial-delay-ms:60000}")
+    public void refreshTracked() {
+        long now = System.currentTimeMillis();
+        requested.values().removeIf(at -> now - at > trackMs);
+        unavailable.values().removeIf(until -> until <= now);
+
+        Set<String> keys = ConcurrentHashMap.newKeySet();
+        keys.addAll(requested.keySet());
+        for (StockRepository.SymbolHolders row : stockRepository.countHoldersBySymbol()) {
+            keys.add(key(QuoteCache.normalize(row.getSymbol()), BarInterval.DAILY));
+        }
+        keys.removeAll(unavailable.keySet());
+        // Whatever the last run did not get to is superseded by this one
+        backlog.clear();
+        backlog.addAll(keys);
+        drainBacklog();
+    }
+
+    // Starts queued top-ups up to maxInFlight; each one that finishes starts the next
+    private void drainBacklog() {
+        while (inFlight.incrementAndGet() <= maxInFlight) {
+            String key = backlog.poll();
+            if (key == null) {
+                inFlight.decrementAndGet();
+                return;
+            }
+            if (!refreshing.add(key)) {
+                // Already being refreshed
+                inFlight.decrementAndGet();
+                continue;
+            }
+            int slash = key.indexOf('/');
+            BarInterval interval = BarInterval.valueOf(key.substring(0, slash));
+            String symbol = key.substring(slash + 1);
+            try {
+                quoteExecutor.execute(() -> {
+                    try {
+                        runRefresh(symbol, interval, UpstreamPriority.BACKGROUND);
+                    } finally {
+                        inFlight.decrementAndGet();
+                        drainBacklog();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // Pool busy; the rest waits for the next run
+                refreshing.remove(key);
+                inFlight.decrementAndGet();
+                return;
+            }
+        }
+        inFlight.decrementAndGet();
+    }
+
+    private void refreshAsync(String symbol, BarInterval interval, UpstreamPriority priority) {
+        // Claimed before submitting, so callers see the series as refreshing straight away
+        if (!refreshing.add(key(symbol, interval))) {
+            return;
+        }
+        try {
+            quoteExecutor.execute(() -> runRefresh(symbol, interval, priority));
+        } catch (RuntimeException e) {
+            refreshing.remove(key(symbol, interval));
+            e.printStackTrace();
+        }
+    }
+
+    // The caller has claimed the series in refreshing, so there is at most one refresh per series at a time
+    private void runRefresh(String symbol, BarInterval interval, UpstreamPriority priority) {
+        try {
+            refresh(symbol, interval, priority);
+        } catch (UpstreamUnavailableException e) {
+            // Quota or circuit breaker said no; the series is tried again on the next run
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            refreshing.remove(key(symbol, interval));
+        }
+    }
+
+    private boolean isUnavailable(String key, long now) {
+        Long until = unavailable.get(key);
+        if (until == null) {
+            return false;
+        }
+        if (until > now) {
+            return true;
+        }
+        unavailable.remove(key, until);
+        return false;
+    }
+
+    // No upstream data: stop tracking the series and leave it alone until the retry time
+    private void markUnavailable(String symbol, BarInterval interval) {
+        String key = key(symbol, interval);
+        requested.remove(key);
+        long now = System.currentTimeMillis();
+        if (unavailable.size() >= maxTracked) {
+            unavailable.values().removeIf(until -> until <= now);
+        }
+        if (unavailable.size() < maxTracked) {
+            unavailable.put(key, now + emptyRetryMs);
+        }
+    }
+
+    // Trims a tenth of the bound at a time, so a flood of new symbols doesn't rescan on every request
+    private synchronized void dropLeastRecentlyRequested(String keep) {
+        int excess = requested.size() - maxTracked;
+        if (excess <= 0) {
+            return;
+        }
+        requested.entrySet().stream()
+                .filter(entry -> !entry.getKey().equals(keep))
+                .sorted(Map.Entry.comparingByValue())
+                .limit(excess + maxTracked / 10)
+                .map(Map.Entry::getKey)
+                .toList()
+                .forEach(requested::remove);
+    }
+
+    private static String key(String symbol, BarInterval interval) {
+        return interval.name() + "/" + symbol;
+    }
+}
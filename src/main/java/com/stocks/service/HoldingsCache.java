@@ -0,0 +1,142 @@
+package com.stocks.service;
+
+import com.stocks.dto.StockView;
+import com.stocks.repository.StockRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Read-through cache of each user's holdings, as immutable snapshots of projection rows.
+ *
+ * Bounded by user count with least-recently-used eviction; portfolios larger than a per-user limit are
+ * never cached. The trade paths invalidate a user's entry once their transaction commits, and publish
+ * the invalidation on the {@link CacheInvalidationChannel} so other nodes drop their copy too. A load
+ * racing an invalidation never stores what it read: each load leaves a token that invalidation removes,
+ * and the result is only kept if the token is still there.
+ */
+@Component
+public class HoldingsCache {
+
+    static final String NAME = "holdings";
+
+    private final int maxUsers;
+    private final int maxHoldingsPerUser;
+    private final StockRepository stockRepository;
+    private final CacheInvalidationChannel channel;
+
+    private final Map<Long, List<StockView>> snapshots;
+    private final Map<Long, Object> loading = new ConcurrentHashMap<>();
+
+    // Notified with the user id after each invalidation (null: every user), e.g. to rebuild derived state
+    private final List<Consumer<Long>> listeners = new CopyOnWriteArrayList<>();
+
+    private final Counter hits;
+    private final Counter misses;
+
+    public HoldingsCache(@Value("${holdings.cache.max-users:10000}") int maxUsers,
+                         @Value("${holdings.cache.max-holdings-per-user:5000}") int maxHoldingsPerUser,
+                         StockRepository stockRepository,
+                         CacheInvalidationChannel channel,
+                         MeterRegistry meterRegistry) {
+        this.maxUsers = maxUsers;
+        this.maxHoldingsPerUser = maxHoldingsPerUser;
+        this.stockRepository = stockRepository;
+        this.channel = channel;
+        this.snapshots = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, List<StockView>> eldest) {
+                return size() > HoldingsCache.this.maxUsers;
+            }
+        };
+        this.hits = meterRegistry.counter("holdings.cache.requests", "result", "hit");
+        this.misses = meterRegistry.counter("holdings.cache.requests", "result", "miss");
+        channel.subscribe(this::onRemoteInvalidation);
+    }
+
+    // The user's holdings ordered by id
+    public List<StockView> get(Long userId) {
+        synchronized (snapshots) {
+            List<StockView> cached = snapshots.get(userId);
+            if (cached != null) {
+                hits.increment();
+                return cached;
+            }
+        }
+        misses.increment();
+        Object token = new Object();
+        loading.put(userId, token);
+        List<StockView> holdings = List.copyOf(stockRepository.findViewsByUserId(userId, 0, Limit.unlimited()));
+        if (holdings.size() <= maxHoldingsPerUser && loading.remove(userId, token)) {
+            synchronized (snapshots) {
+                snapshots.put(userId, holdings);
+            }
+        }
+        return holdings;
+    }
+
+    // Called inside a trade's transaction; takes effect after it commits (immediately without one)
+    public void invalidateAfterCommit(Long userId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidate(userId);
+            channel.publish(NAME, String.valueOf(userId));
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidate(userId);
+                channel.publish(NAME, String.valueOf(userId));
+            }
+        });
+    }
+
+    public void addListener(Consumer<Long> listener) {
+        listeners.add(listener);
+    }
+
+    private void invalidate(Long userId) {
+        loading.remove(userId);
+        synchronized (snapshots) {
+            snapshots.remove(userId);
+        }
+        notifyListeners(userId);
+    }
+
+    private void onRemoteInvalidation(String cache, String key) {
+        if (cache == null) {
+            loading.clear();
+            synchronized (snapshots) {
+                snapshots.clear();
+            }
+            notifyListeners(null);
+        } else if (NAME.equals(cache)) {
+            try {
+                invalidate(Long.valueOf(key));
+            } catch (NumberFormatException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private void notifyListeners(Long userId) {
+        for (Consumer<Long> listener : listeners) {
+            try {
+                listener.accept(userId);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.stocks.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stocks.dto.StockView;
+import com.stocks.repository.StockRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Reads a user's holdings as projections, never as managed entities.
+ *
+ * Pages are keyset queries on (user_id, id): "id > after ORDER BY id LIMIT n", so page 1000 costs the
+ * same as page 1. Full reads stream rows from a server-side cursor straight into the response, as a
+ * JSON array or as NDJSON, so memory stays flat whatever the size of the portfolio.
+ */
+@Service
+public class HoldingsService {
+
+    // Rows fetched per round-trip while streaming
+    @Value("${holdings.stream.fetch-size:500}")
+    private int fetchSize;
+
+    @Autowired
+    private StockRepository stockRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public record Page(List<StockView> holdings, Long nextCursor) {
+    }
+
+    // Up to limit holdings with id > after; nextCursor is set only when more follow
+    @Transactional(readOnly = true)
+    public Page page(Long userId, long after, int limit) {
+        List<StockView> rows = stockRepository.findViewsByUserId(userId, after, Limit.of(limit + 1));
+        if (rows.size() <= limit) {
+            return new Page(rows, null);
+        }
+        List<StockView> holdings = rows.subList(0, limit);
+        return new Page(holdings, holdings.get(limit - 1).id());
+    }
+
+    // The cursor only stays open inside a transaction (the driver fetches everything up front otherwise)
+    @Transactional(readOnly = true)
+    public void writeJsonArray(Long userId, long after, OutputStream out) throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.writeStartArray();
+            stream(userId, after, row -> write(generator, row));
+            generator.writeEndArray();
+        }
+    }
+
+    // One JSON object per line (application/x-ndjson)
+    @Transactional(readOnly = true)
+    public void writeNdjson(Long userId, long after, OutputStream out) throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.setRootValueSeparator(null);
+            stream(userId, after, row -> {
+                write(generator, row);
+                writeNewline(generator);
+            });
+        }
+    }
+
+    private void stream(Long userId, long after, Consumer<StockView> sink) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(
+                    "SELECT id, symbol, price, quantity, version FROM stocks WHERE user_id = ? AND id > ? ORDER BY id");
+            ps.setFetchSize(fetchSize);
+            ps.setLong(1, userId);
+            ps.setLong(2, after);
+            return ps;
+        }, rs -> {
+            double price = rs.getDouble(3);
+            Double nullablePrice = rs.wasNull() ? null : price;
+            int quantity = rs.getInt(4);
+            Integer nullableQuantity = rs.wasNull() ? null : quantity;
+            sink.accept(new StockView(rs.getLong(1), rs.getString(2), nullablePrice, nullableQuantity, rs.getLong(5)));
+        });
+    }
+
+    // Written field by field: ObjectMapper.writeValue would flush the response after every row
+    private static void write(JsonGenerator generator, StockView row) {
+        try {
+            generator.writeStartObject();
+            generator.writeNumberField("id", row.id());
+            generator.writeStringField("symbol", row.symbol());
+            if (row.price() == null) {
+                generator.writeNullField("price");
+            } else {
+                generator.writeNumberField("price", row.price());
+            }
+            if (row.quantity() == null) {
+                generator.writeNullField("quantity");
+            } else {
+                generator.writeNumberField("quantity", row.quantity());
+            }
+            generator.writeNumberField("version", row.version());
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeNewline(JsonGenerator generator) {
+        try {
+            generator.writeRaw('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
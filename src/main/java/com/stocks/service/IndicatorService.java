@@ -0,0 +1,230 @@
+package com.stocks.service;
+
+import com.stocks.dto.BarHistory;
+import com.stocks.dto.IndicatorSeries;
+import com.stocks.util.Indicator;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Technical indicators over the bars in the local {@link BarStore}.
+ *
+ * Indicator state is kept per series and indicator set, advanced over the closed bars only: every
+ * stored bar but the newest, which the store may still replace while its session is open. A request
+ * reads just the bars appended since the last one, folds them into the state, then evaluates the newest
+ * bar on a copy of it. Symbols of one request are computed in parallel on a dedicated fork/join pool.
+ * The kept state is bounded by the number of doubles it holds (computed values plus indicator windows),
+ * least recently used first, since one entry can range from a few hundred values to millions.
+ */
+@Service
+public class IndicatorService {
+
+    // Upper bound on the bars returned per series; computed values older than that are dropped
+    public static final int MAX_BARS = 20000;
+
+    // Indicators per request; each one multiplies the work and the state kept per series
+    public static final int MAX_SPECS = 10;
+
+    // Fork/join parallelism across symbols; 0 uses one worker per core
+    @Value("${indicators.parallelism:0}")
+    private int parallelism;
+
+    // Doubles of indicator state kept between requests across all series (8 bytes each)
+    @Value("${indicators.cache.max-values:16000000}")
+    private long maxValues;
+
+    @Autowired
+    private BarStore barStore;
+
+    @Autowired
+    private HistoryService historyService;
+
+    private ForkJoinPool pool;
+    // Access-ordered, so iteration starts at the least recently used entry
+    private final Map<String, Computed> computed = new LinkedHashMap<>(16, 0.75f, true);
+    // Sum of accounted over computed; guarded by computed
+    private long retainedValues;
+
+    // Indicator state and values for one series; values[k][o][i] is output o of indicator k at bar base + i
+    private static final class Computed {
+        final List<String> specs;
+        Indicator[] states;
+        double[][][] values;
+        int base;
+        int closed;
+        // Weight last added to retainedValues
+        long accounted;
+
+        Computed(List<String> specs) {
+            this.specs = specs;
+            reset();
+        }
+
+        void reset() {
+            states = new Indicator[specs.size()];
+            values = new double[specs.size()][][];
+            for (int k = 0; k < states.length; k++) {
+                states[k] = Indicator.parse(specs.get(k));
+                values[k] = new double[states[k].outputs().length][0];
+            }
+            base = 0;
+            closed = 0;
+        }
+
+        long weight() {
+            long weight = 0;
+            for (int k = 0; k < states.length; k++) {
+                weight += states[k].stateSize();
+                for (double[] output : values[k]) {
+                    weight += output.length;
+                }
+            }
+            return weight;
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        pool.shutdownNow();
+    }
+
+    // The newest limit bars of each symbol with the given indicators; throws IllegalArgumentException for a bad spec
+    public List<IndicatorSeries> indicators(List<String> tickers, BarInterval interval, List<String> specs, int limit) {
+        List<String> normalized = specs.stream().map(spec -> spec.trim().toLowerCase(Locale.ROOT)).distinct().toList();
+        if (normalized.size() > MAX_SPECS) {
+            throw new IllegalArgumentException("At most " + MAX_SPECS + " indicators per request");
+        }
+        // Reject bad specs up front rather than from inside the pool
+        normalized.forEach(Indicator::parse);
+        int bars = Math.min(limit, MAX_BARS);
+        return pool.submit(() -> tickers.parallelStream()
+                .map(QuoteCache::normalize)
+                .distinct()
+                .map(symbol -> series(symbol, interval, normalized, bars))
+                .toList()).join();
+    }
+
+    private IndicatorSeries series(String symbol, BarInterval interval, List<String> specs, int limit) {
+        historyService.track(symbol, interval);
+        String key = interval.id() + "/" + symbol + "/" + String.join(",", specs);
+        Computed state = state(key, specs);
+        synchronized (state) {
+            // Everything from the first bar we still need, closed or returned, to the newest stored one
+            int size = barStore.size(symbol, interval);
+            if (size - 1 < state.closed) {
+                // The store was cleared underneath us; start over
+                state.reset();
+            }
+            int from = Math.min(state.closed, Math.max(0, size - limit));
+            BarHistory bars = barStore.read(symbol, interval, from);
+            int end = from + bars.size();
+            if (end == 0) {
+                return new IndicatorSeries(symbol, interval.id(), new long[0], Map.of());
+            }
+
+            advance(state, bars, from, end - 1);
+            account(key, state);
+
+            int count = Math.min(limit, end);
+            int first = end - count;
+            long[] timestamps = new long[count];
+            System.arraycopy(bars.timestamps(), first - from, timestamps, 0, count);
+            Map<String, double[]> values = new LinkedHashMap<>();
+            int newest = end - 1 - from;
+            for (int k = 0; k < state.states.length; k++) {
+                String[] outputs = state.states[k].outputs();
+                double[][] out = new double[outputs.length][count];
+                for (int o = 0; o < outputs.length; o++) {
+                    System.arraycopy(state.values[k][o], first - state.base, out[o], 0, count - 1);
+                }
+                // The newest bar may still change, so it is evaluated without committing it
+                state.states[k].copy().update(bars.timestamps()[newest], bars.high()[newest], bars.low()[newest],
+                        bars.close()[newest], bars.volume()[newest], out, count - 1);
+                for (int o = 0; o < outputs.length; o++) {
+                    values.put(outputs[o], out[o]);
+                }
+            }
+            return new IndicatorSeries(symbol, interval.id(), timestamps, values);
+        }
+    }
+
+    // Fold bars [state.closed, closed) into the state in chunks, keeping at most 2 * MAX_BARS values per output
+    private static void advance(Computed state, BarHistory bars, int from, int closed) {
+        while (state.closed < closed) {
+            int chunkEnd = Math.min(closed, state.closed + MAX_BARS);
+            if (chunkEnd - state.base > 2 * MAX_BARS) {
+                // Only the newest MAX_BARS values can still be returned
+                int drop = state.closed - MAX_BARS - state.base;
+                for (double[][] outputs : state.values) {
+                    for (double[] output : outputs) {
+                        System.arraycopy(output, drop, output, 0, MAX_BARS);
+                    }
+                }
+                state.base += drop;
+            }
+            int needed = chunkEnd - state.base;
+            for (double[][] outputs : state.values) {
+                for (int o = 0; o < outputs.length; o++) {
+                    if (outputs[o].length < needed) {
+                        outputs[o] = Arrays.copyOf(outputs[o], Math.min(2 * MAX_BARS, Math.max(needed, outputs[o].length * 2)));
+                    }
+                }
+            }
+            for (int k = 0; k < state.states.length; k++) {
+                state.states[k].run(bars.timestamps(), bars.high(), bars.low(), bars.close(), bars.volume(),
+                        state.closed - from, chunkEnd - from, state.values[k], state.closed - state.base);
+            }
+            state.closed = chunkEnd;
+        }
+    }
+
+    private Computed state(String key, List<String> specs) {
+        synchronized (computed) {
+            return computed.computeIfAbsent(key, k -> new Computed(specs));
+        }
+    }
+
+    // Brings the state's weight up to date, then drops least recently used entries until the total fits;
+    // the entry being served is kept even if it alone is over budget
+    private void account(String key, Computed state) {
+        long weight = state.weight();
+        synchronized (computed) {
+            if (computed.get(key) != state) {
+                return; // evicted while we were computing; nothing of it is counted
+            }
+            retainedValues += weight - state.accounted;
+            state.accounted = weight;
+            Iterator<Map.Entry<String, Computed>> eldest = computed.entrySet().iterator();
+            while (retainedValues > maxValues && eldest.hasNext()) {
+                Map.Entry<String, Computed> entry = eldest.next();
+                if (entry.getValue() != state) {
+                    retainedValues -= entry.getValue().accounted;
+                    eldest.remove();
+                }
+            }
+        }
+    }
+
+    // Values currently held by the cache
+    long retainedValues() {
+        synchronized (computed) {
+            return retainedValues;
+        }
+    }
+}
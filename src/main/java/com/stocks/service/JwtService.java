@@ -1,34 +1,110 @@
 package com.stocks.service;
 
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import com.stocks.exceptions.UnauthorizedException;
+import com.stocks.repository.UserRepository;
+
+import java.util.Date;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongPredicate;
 
 
 @Service
 public class JwtService {
-    @Value("${jwt.secret}")
-    private String secret;
 
-    public Long extractUserId(String token) {
-        return Long.parseLong(Jwts.parserBuilder()
+    // Tokens without an exp claim are still re-verified at least this often
+    private static final long MAX_CACHE_TTL_MS = 5 * 60 * 1000;
+
+    // Signing key and parser are built once; JwtParser is immutable and thread-safe
+    private final JwtParser parser;
+
+    // Verified token -> user id, so repeat requests with the same token skip the HMAC check
+    private final Map<String, VerifiedToken> verifiedTokens = new ConcurrentHashMap<>();
+    private final int maxCacheSize;
+
+    // Checked when a token is verified, so a deleted user's tokens stop working within MAX_CACHE_TTL_MS
+    private final LongPredicate userExists;
+
+    @Autowired
+    public JwtService(@Value("${jwt.secret}") String secret,
+                      @Value("${jwt.cache.max-size:10000}") int maxCacheSize,
+                      UserRepository userRepository) {
+        this(secret, maxCacheSize, userRepository::existsById);
+    }
+
+    // Without a user store, e.g. in benchmarks: every correctly signed token is accepted
+    public JwtService(String secret, int maxCacheSize) {
+        this(secret, maxCacheSize, userId -> true);
+    }
+
+    private JwtService(String secret, int maxCacheSize, LongPredicate userExists) {
+        this.parser = Jwts.parserBuilder()
             .setSigningKey(Keys.hmacShaKeyFor(secret.getBytes()))
-            .build()
-            .parseClaimsJws(token)
-            .getBody()
-            .getSubject());
+            .build();
+        this.maxCacheSize = maxCacheSize;
+        this.userExists = userExists;
+    }
+
+    public Long extractUserId(String token) {
+        return verify(token).userId();
     }
 
     public void validateToken(String token) {
+        verify(token);
+    }
+
+    private VerifiedToken verify(String token) {
+        long now = System.currentTimeMillis();
+        VerifiedToken cached = verifiedTokens.get(token);
+        if (cached != null) {
+            if (cached.expiresAt() > now) {
+                return cached;
+            }
+            verifiedTokens.remove(token, cached);
+        }
+
+        VerifiedToken verified;
         try {
-            Jwts.parserBuilder()
-                .setSigningKey(Keys.hmacShaKeyFor(secret.getBytes()))
-                .build()
-                .parseClaimsJws(token);
+            Claims claims = parser.parseClaimsJws(token).getBody();
+            Date expiration = claims.getExpiration();
+            long cacheUntil = now + MAX_CACHE_TTL_MS;
+            if (expiration != null && expiration.getTime() < cacheUntil) {
+                cacheUntil = expiration.getTime();
+            }
+            verified = new VerifiedToken(Long.parseLong(claims.getSubject()), cacheUntil);
         } catch (Exception e) {
             throw new UnauthorizedException("Invalid token");
         }
+        if (!userExists.test(verified.userId())) {
+            throw new UnauthorizedException("Invalid token");
+        }
+
+        if (verifiedTokens.size() >= maxCacheSize) {
+            evict(now);
+        }
+        verifiedTokens.put(token, verified);
+        return verified;
+    }
+
+    // Drop expired entries; if the cache is still full, drop a slice of arbitrary ones
+    private void evict(long now) {
+        verifiedTokens.values().removeIf(entry -> entry.expiresAt() <= now);
+        int toRemove = verifiedTokens.size() - maxCacheSize + Math.max(1, maxCacheSize / 10);
+        Iterator<String> keys = verifiedTokens.keySet().iterator();
+        while (toRemove-- > 0 && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+    }
+
+    private record VerifiedToken(Long userId, long expiresAt) {
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,48 @@
+package com.stocks.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+
+/**
+ * In-JVM channel. The bean is a single node with no peers, so publishing is a no-op; tests join more
+ * "nodes" to the same bus with {@link #peer()} and get synchronous delivery between them.
+ */
+@Component
+@ConditionalOnProperty(name = "cache.invalidation.channel", havingValue = "local", matchIfMissing = true)
+public class LocalInvalidationChannel implements CacheInvalidationChannel {
+
+    private final List<LocalInvalidationChannel> bus;
+    private final List<BiConsumer<String, String>> listeners = new CopyOnWriteArrayList<>();
+
+    public LocalInvalidationChannel() {
+        this(new CopyOnWriteArrayList<>());
+    }
+
+    private LocalInvalidationChannel(List<LocalInvalidationChannel> bus) {
+        this.bus = bus;
+        bus.add(this);
+    }
+
+    // Another node on the same bus
+    public LocalInvalidationChannel peer() {
+        return new LocalInvalidationChannel(bus);
+    }
+
+    @Override
+    public void publish(String cache, String key) {
+        for (LocalInvalidationChannel node : bus) {
+            if (node != this) {
+                node.listeners.forEach(listener -> listener.accept(cache, key));
+            }
+        }
+    }
+
+    @Override
+    public void subscribe(BiConsumer<String, String> listener) {
+        listeners.add(listener);
+    }
+}
@@ -0,0 +1,117 @@
+package com.stocks.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * In-memory throttling of login and registration attempts, checked before any password is hashed.
+ *
+ * Each client IP gets a budget of attempts and each username a budget of failed logins per fixed
+ * window; once either is spent, further attempts are refused until the window ends, and a successful
+ * login clears the username's failures. Counters live in lock-striped LRU maps, so concurrent logins
+ * only contend when their keys share a stripe and memory stays bounded under username spraying.
+ */
+@Component
+public class LoginThrottle {
+
+    private static final int STRIPES = 64;
+
+    private final long windowMs;
+    private final int maxAttemptsPerIp;
+    private final int maxFailuresPerUser;
+
+    private final Object[] locks = new Object[STRIPES];
+    private final Map<String, Window>[] stripes;
+
+    private static final class Window {
+        long start;
+        int count;
+    }
+
+    @SuppressWarnings("unchecked")
+    public LoginThrottle(@Value("${security.login.window-ms:900000}") long windowMs,
+                         @Value("${security.login.max-attempts-per-ip:100}") int maxAttemptsPerIp,
+                         @Value("${security.login.max-failures-per-user:5}") int maxFailuresPerUser,
+                         @Value("${security.login.max-tracked-keys:100000}") int maxTrackedKeys) {
+        this.windowMs = windowMs;
+        this.maxAttemptsPerIp = maxAttemptsPerIp;
+        this.maxFailuresPerUser = maxFailuresPerUser;
+        int perStripe = Math.max(1, maxTrackedKeys / STRIPES);
+        stripes = new Map[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new Object();
+            stripes[i] = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Window> eldest) {
+                    return size() > perStripe;
+                }
+            };
+        }
+    }
+
+    // Counts an attempt from ip and returns how long to wait before trying again, 0 if it may go ahead.
+    // username may be null (registration)
+    public long checkAttempt(String username, String ip) {
+        long now = System.currentTimeMillis();
+        long wait = 0;
+        if (username != null) {
+            wait = waitFor(userKey(username), maxFailuresPerUser, false, now);
+        }
+        if (ip != null) {
+            wait = Math.max(wait, waitFor("ip:" + ip, maxAttemptsPerIp, true, now));
+        }
+        return wait;
+    }
+
+    public void loginFailed(String username) {
+        if (username != null) {
+            waitFor(userKey(username), Integer.MAX_VALUE, true, System.currentTimeMillis());
+        }
+    }
+
+    public void loginSucceeded(String username) {
+        if (username != null) {
+            String key = userKey(username);
+            int stripe = stripe(key);
+            synchronized (locks[stripe]) {
+                stripes[stripe].remove(key);
+            }
+        }
+    }
+
+    // Time left in key's window once limit is reached; count adds this attempt to the window first
+    private long waitFor(String key, int limit, boolean count, long now) {
+        int stripe = stripe(key);
+        synchronized (locks[stripe]) {
+            Window window = stripes[stripe].get(key);
+            if (window == null || now - window.start >= windowMs) {
+                if (!count) {
+                    return 0;
+                }
+                window = new Window();
+                window.start = now;
+                stripes[stripe].put(key, window);
+            }
+            if (window.count >= limit) {
+                return window.start + windowMs - now;
+            }
+            if (count) {
+                window.count++;
+            }
+            return 0;
+        }
+    }
+
+    private static String userKey(String username) {
+        return "user:" + username.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static int stripe(String key) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & (STRIPES - 1);
+    }
+}
@@ -0,0 +1,34 @@
+package com.stocks.service;
+
+import com.stocks.dto.Quote;
+import com.stocks.dto.SymbolMatch;
+import com.stocks.util.TimeSeriesBars;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Source of market data. Exactly one implementation is active, selected with market.data.provider:
+ * alphavantage (default), yahoo, or replay for offline runs from tick files on disk.
+ *
+ * Implementations throw {@link com.stocks.exceptions.MarketDataException} when they have no answer;
+ * the priority lets rate-limited providers decide which calls to shed first.
+ */
+public interface MarketDataProvider {
+
+    // Latest price for a normalized symbol; the name may be null if the provider doesn't return one
+    Quote latestQuote(String symbol, UpstreamPriority priority);
+
+    // Symbols matching the keywords, best match first
+    List<SymbolMatch> search(String keywords, UpstreamPriority priority);
+
+    // Newest bars first, at most maxBars of them; empty if the provider keeps no history at this interval
+    default TimeSeriesBars history(String symbol, BarInterval interval, int maxBars, UpstreamPriority priority) {
+        return new TimeSeriesBars(1);
+    }
+
+    // Full symbol -> name universe, for bulk-loading the symbol directory; empty if not supported
+    default Map<String, String> listing() {
+        return Map.of();
+    }
+}
@@ -0,0 +1,490 @@
+package com.stocks.service;
+
+import com.stocks.dto.BarHistory;
+import com.stocks.dto.PortfolioAnalytics;
+import com.stocks.dto.Quote;
+import com.stocks.dto.StockView;
+import com.stocks.exceptions.MarketDataException;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Server-side P&L and risk per user, kept current as quotes arrive instead of recomputed per request.
+ *
+ * A user's holdings are loaded once (stocks rows, plus realized P&L from the trade ledger) into flat
+ * arrays and indexed by symbol. A price change for a symbol then touches only the portfolios holding
+ * it, adjusting each one's running totals in O(1); a read copies those totals and the holding rows out
+ * under the portfolio's lock. Ticks are applied off the quote-writing thread and conflated per symbol,
+ * so a burst for a widely held symbol costs one pass over its holders. A portfolio is rebuilt whenever
+ * {@link HoldingsCache} invalidates its user, i.e. after a trade here or on another node. Loads read the
+ * database outside any map operation and are installed with putIfAbsent / replace; each holdings change
+ * bumps a striped version first, so a load that overlapped a trade is noticed and done again. Previous
+ * closes and volatility come from daily bars in the {@link BarStore}.
+ */
+@Service
+public class PortfolioAnalyticsService {
+
+    private static final double TRADING_DAYS_PER_YEAR = 252;
+    private static final int VERSION_STRIPES = 64;
+
+    // Daily returns used for volatility
+    @Value("${analytics.volatility-days:60}")
+    private int volatilityDays;
+
+    // Portfolios nobody has read for this long are dropped from memory (and from the symbol index)
+    @Value("${analytics.idle-ms:3600000}")
+    private long idleMs;
+
+    // Bar timestamps are exchange-local, so "today" (and with it the previous close) is taken in this zone
+    @Value("${analytics.exchange-zone:America/New_York}")
+    private String exchangeZone;
+
+    @Autowired
+    private HoldingsCache holdingsCache;
+
+    @Autowired
+    private TradeLedger tradeLedger;
+
+    @Autowired
+    private QuoteCache quoteCache;
+
+    @Autowired
+    private BarStore barStore;
+
+    @Autowired
+    @Qualifier("quoteExecutor")
+    private Executor quoteExecutor;
+
+    private final Map<Long, Portfolio> portfolios = new ConcurrentHashMap<>();
+
+    // Bumped on every holdings change, per stripe of users; a stripe shared with another user only costs a reload
+    private final AtomicLongArray versions = new AtomicLongArray(VERSION_STRIPES);
+
+    // Reverse index: symbol -> the loaded portfolios holding it
+    private final Map<String, Holders> holders = new ConcurrentHashMap<>();
+
+    private record Holding(Portfolio portfolio, int slot) {
+    }
+
+    private static final class Holders {
+        // Copy-on-write, so ticks iterate without locking; changed only inside holders.compute()
+        volatile Holding[] holdings = new Holding[0];
+        volatile double price = Double.NaN;
+        volatile double previousClose;
+        final AtomicBoolean applying = new AtomicBoolean();
+
+        Holders(double previousClose) {
+            this.previousClose = previousClose;
+        }
+
+        void add(Portfolio portfolio, int slot) {
+            Holding[] next = Arrays.copyOf(holdings, holdings.length + 1);
+            next[holdings.length] = new Holding(portfolio, slot);
+            holdings = next;
+        }
+
+        void remove(Portfolio portfolio) {
+            holdings = Arrays.stream(holdings).filter(h -> h.portfolio() != portfolio).toArray(Holding[]::new);
+        }
+    }
+
+    // One user's holdings; running totals cover priced holdings (daily ones also need a previous close)
+    private static final class Portfolio {
+        final String[] symbols;
+        final int[] quantity;
+        final double[] cost;
+        final double[] price;
+        final double[] previousClose;
+        final double realized;
+
+        double pricedCost;
+        double marketValue;
+        double dailyBase;
+        double dailyValue;
+        int unpriced;
+
+        volatile long lastRead = System.currentTimeMillis();
+        volatile long volatilityDay = Long.MIN_VALUE;
+        volatile double volatility = Double.NaN;
+
+        Portfolio(List<StockView> stocks, double realized) {
+            int n = stocks.size();
+            symbols = new String[n];
+            quantity = new int[n];
+            cost = new double[n];
+            price = new double[n];
+            previousClose = new double[n];
+            for (int i = 0; i < n; i++) {
+                StockView stock = stocks.get(i);
+                symbols[i] = QuoteCache.normalize(stock.symbol());
+                quantity[i] = stock.quantity() == null ? 0 : stock.quantity();
+                cost[i] = stock.price() == null ? 0 : stock.price();
+            }
+            Arrays.fill(price, Double.NaN);
+            Arrays.fill(previousClose, Double.NaN);
+            this.realized = realized;
+        }
+
+        synchronized void updatePrice(int slot, double next) {
+            double old = price[slot];
+            double q = quantity[slot];
+            boolean daily = !Double.isNaN(previousClose[slot]);
+            if (Double.isNaN(old)) {
+                unpriced--;
+                pricedCost += cost[slot];
+                marketValue += q * next;
+                if (daily) {
+                    dailyBase += q * previousClose[slot];
+                    dailyValue += q * next;
+                }
+            } else {
+                marketValue += q * (next - old);
+                if (daily) {
+                    dailyValue += q * (next - old);
+                }
+            }
+            price[slot] = next;
+        }
+
+        synchronized void updatePreviousClose(int slot, double close) {
+            previousClose[slot] = close;
+            recompute();
+        }
+
+        // Full pass over the holdings; used on load and whenever a previous close changes
+        synchronized void recompute() {
+            pricedCost = 0;
+            marketValue = 0;
+            dailyBase = 0;
+            dailyValue = 0;
+            unpriced = 0;
+            for (int i = 0; i < symbols.length; i++) {
+                if (Double.isNaN(price[i])) {
+                    unpriced++;
+                    continue;
+                }
+                pricedCost += cost[i];
+                marketValue += quantity[i] * price[i];
+                if (!Double.isNaN(previousClose[i])) {
+                    dailyBase += quantity[i] * previousClose[i];
+                    dailyValue += quantity[i] * price[i];
+                }
+            }
+        }
+
+        synchronized PortfolioAnalytics snapshot() {
+            List<PortfolioAnalytics.Position> positions = new ArrayList<>(symbols.length);
+            for (int i = 0; i < symbols.length; i++) {
+                Double last = value(price[i]);
+                Double close = value(previousClose[i]);
+                Double holdingValue = last == null ? null : quantity[i] * last;
+                positions.add(new PortfolioAnalytics.Position(symbols[i], quantity[i], cost[i], last, close,
+                        holdingValue,
+                        holdingValue == null ? null : holdingValue - cost[i],
+                        holdingValue == null || marketValue <= 0 ? null : holdingValue / marketValue,
+                        last == null || close == null || close == 0 ? null : last / close - 1));
+            }
+            boolean daily = dailyBase > 0;
+            return new PortfolioAnalytics(positions, pricedCost, marketValue, marketValue - pricedCost, realized,
+                    daily ? dailyValue - dailyBase : null,
+                    daily ? dailyValue / dailyBase - 1 : null,
+                    value(volatility), unpriced, Instant.now().toString());
+        }
+
+        private static Double value(double x) {
+            return Double.isNaN(x) ? null : x;
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        quoteCache.addListener(this::onQuote);
+        holdingsCache.addListener(this::onHoldingsChanged);
+    }
+
+    public PortfolioAnalytics analytics(Long userId) {
+        Portfolio portfolio = portfolios.get(userId);
+        if (portfolio == null) {
+            portfolio = install(userId);
+        }
+        portfolio.lastRead = System.currentTimeMillis();
+        long today = todayStart();
+        if (portfolio.volatilityDay != today) {
+            // Holdings are fixed for the life of a Portfolio, so this runs once per trade or trading day
+            portfolio.volatility = volatility(portfolio, today);
+            portfolio.volatilityDay = today;
+        }
+        return portfolio.snapshot();
+    }
+
+    // Runs after a trade commits on this node, or when another node reports one
+    private void onHoldingsChanged(Long userId) {
+        if (userId != null) {
+            versions.incrementAndGet(stripe(userId));
+            reload(userId);
+            return;
+        }
+        for (int i = 0; i < VERSION_STRIPES; i++) {
+            versions.incrementAndGet(i);
+        }
+        portfolios.forEach((id, portfolio) -> {
+            if (portfolios.remove(id, portfolio)) {
+                unindex(portfolio);
+            }
+        });
+    }
+
+    // First load of a user; if another thread got there first its portfolio wins
+    private Portfolio install(Long userId) {
+        long version = versions.get(stripe(userId));
+        Portfolio fresh = read(userId);
+        index(fresh);
+        Portfolio current = portfolios.putIfAbsent(userId, fresh);
+        if (current != null) {
+            unindex(fresh);
+            return current;
+        }
+        if (versions.get(stripe(userId)) != version) {
+            // A trade committed while this was loading; its own reload may have found nothing to replace
+            reload(userId);
+            Portfolio reloaded = portfolios.get(userId);
+            return reloaded == null ? fresh : reloaded;
+        }
+        return fresh;
+    }
+
+    // Replaces a loaded portfolio, again until a load starts after the last change; no-op if none is loaded
+    private void reload(Long userId) {
+        try {
+            while (true) {
+                Portfolio old = portfolios.get(userId);
+                if (old == null) {
+                    return;
+                }
+                long version = versions.get(stripe(userId));
+                Portfolio fresh = read(userId);
+                fresh.lastRead = old.lastRead;
+                index(fresh);
+                if (!portfolios.replace(userId, old, fresh)) {
+                    // Replaced or dropped meanwhile; look again
+                    unindex(fresh);
+                    continue;
+                }
+                unindex(old);
+                if (versions.get(stripe(userId)) == version) {
+                    return;
+                }
+            }
+        } catch (RuntimeException e) {
+            // The trade itself has committed; drop the stale view and load it again on the next read
+            e.printStackTrace();
+            Portfolio stale = portfolios.remove(userId);
+            if (stale != null) {
+                unindex(stale);
+            }
+        }
+    }
+
+    // Previous closes roll over once a day and daily bars arrive through HistoryService's top-ups
+    @Scheduled(fixedDelayString = "${analytics.previous-close.refresh-ms:300000}",
+               initialDelayString = "${analytics.previous-close.refresh-ms:300000}")
+    public void refreshPreviousCloses() {
+        long today = todayStart();
+        holders.forEach((symbol, entry) -> {
+            double close = previousClose(symbol, today);
+            if (Double.compare(close, entry.previousClose) != 0) {
+                entry.previousClose = close;
+                for (Holding holding : entry.holdings) {
+                    holding.portfolio().updatePreviousClose(holding.slot(), close);
+                }
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${analytics.evict-interval-ms:300000}")
+    public void evictIdle() {
+        long cutoff = System.currentTimeMillis() - idleMs;
+        portfolios.forEach((userId, portfolio) -> {
+            if (portfolio.lastRead < cutoff && portfolios.remove(userId, portfolio)) {
+                unindex(portfolio);
+            }
+        });
+    }
+
+    // The database reads behind a portfolio; not yet visible to ticks
+    private Portfolio read(Long userId) {
+        return new Portfolio(holdingsCache.get(userId), tradeLedger.rebuild(userId).realized());
+    }
+
+    private void index(Portfolio portfolio) {
+        long today = todayStart();
+        // Indexed first, so a tick racing the load is applied either by the tick or by the price read below
+        for (int slot = 0; slot < portfolio.symbols.length; slot++) {
+            int held = slot;
+            holders.compute(portfolio.symbols[slot], (symbol, entry) -> {
+                Holders target = entry == null ? new Holders(previousClose(symbol, today)) : entry;
+                target.add(portfolio, held);
+                return target;
+            });
+        }
+        synchronized (portfolio) {
+            for (int slot = 0; slot < portfolio.symbols.length; slot++) {
+                Holders entry = holders.get(portfolio.symbols[slot]);
+                portfolio.previousClose[slot] = entry.previousClose;
+                double price = Double.isNaN(entry.price) ? lastKnownPrice(portfolio.symbols[slot]) : entry.price;
+                if (Double.isNaN(price)) {
+                    // Let the refresher know someone is waiting on this one
+                    quoteCache.recordDemand(portfolio.symbols[slot], 1);
+                }
+                portfolio.price[slot] = price;
+            }
+            portfolio.recompute();
+        }
+    }
+
+    private static int stripe(Long userId) {
+        return Long.hashCode(userId) & (VERSION_STRIPES - 1);
+    }
+
+    private void unindex(Portfolio portfolio) {
+        for (String symbol : portfolio.symbols) {
+            holders.computeIfPresent(symbol, (s, entry) -> {
+                entry.remove(portfolio);
+                return entry.holdings.length == 0 ? null : entry;
+            });
+        }
+    }
+
+    private void onQuote(Quote quote) {
+        Holders entry = holders.get(QuoteCache.normalize(quote.symbol()));
+        double price = parsePrice(quote.price());
+        if (entry == null || Double.isNaN(price)) {
+            return;
+        }
+        entry.price = price;
+        if (entry.applying.compareAndSet(false, true)) {
+            try {
+                quoteExecutor.execute(() -> apply(entry));
+            } catch (RuntimeException e) {
+                entry.applying.set(false);
+                e.printStackTrace();
+            }
+        }
+    }
+
+    // Applies the symbol's latest price to every holder; ticks arriving meanwhile collapse into one more pass
+    private void apply(Holders entry) {
+        double price;
+        do {
+            price = entry.price;
+            for (Holding holding : entry.holdings) {
+                holding.portfolio().updatePrice(holding.slot(), price);
+            }
+            entry.applying.set(false);
+        } while (Double.compare(price, entry.price) != 0 && entry.applying.compareAndSet(false, true));
+    }
+
+    private double lastKnownPrice(String symbol) {
+        Quote quote = quoteCache.getLastKnown(symbol, Long.MAX_VALUE);
+        return quote == null ? Double.NaN : parsePrice(quote.price());
+    }
+
+    // Close of the newest stored daily bar before today, or NaN
+    private double previousClose(String symbol, long todayStart) {
+        try {
+            BarHistory bars = barStore.range(symbol, BarInterval.DAILY, Long.MIN_VALUE, todayStart - 1, 1);
+            return bars.size() == 0 ? Double.NaN : bars.close()[0];
+        } catch (MarketDataException e) {
+            return Double.NaN;
+        }
+    }
+
+    /*
+     * Annualized standard deviation of the daily returns the current holdings would have had over the
+     * last volatilityDays sessions. Holdings without any stored bars are left out; a day is only used
+     * once every other holding has a close on or before it.
+     */
+    private double volatility(Portfolio portfolio, long todayStart) {
+        int n = portfolio.symbols.length;
+        BarHistory[] series = new BarHistory[n];
+        BarHistory calendar = null;
+        for (int i = 0; i < n; i++) {
+            try {
+                series[i] = barStore.range(portfolio.symbols[i], BarInterval.DAILY, Long.MIN_VALUE, todayStart - 1,
+                        volatilityDays + 1);
+            } catch (MarketDataException e) {
+                continue;
+            }
+            if (calendar == null || series[i].size() > calendar.size()) {
+                calendar = series[i];
+            }
+        }
+        if (calendar == null || calendar.size() < 3) {
+            return Double.NaN;
+        }
+
+        int[] cursor = new int[n];
+        double[] close = new double[n];
+        Arrays.fill(close, Double.NaN);
+        double previous = Double.NaN;
+        int count = 0;
+        double mean = 0;
+        double m2 = 0;
+        for (long day : calendar.timestamps()) {
+            double value = 0;
+            boolean complete = true;
+            for (int i = 0; i < n; i++) {
+                if (series[i] == null || series[i].size() == 0) {
+                    continue;
+                }
+                while (cursor[i] < series[i].size() && series[i].timestamps()[cursor[i]] <= day) {
+                    close[i] = series[i].close()[cursor[i]++];
+                }
+                if (Double.isNaN(close[i])) {
+                    complete = false;
+                    break;
+                }
+                value += portfolio.quantity[i] * close[i];
+            }
+            if (complete && previous > 0) {
+                // Welford's running variance
+                double r = value / previous - 1;
+                count++;
+                double delta = r - mean;
+                mean += delta / count;
+                m2 += delta * (r - mean);
+            }
+            previous = complete ? value : Double.NaN;
+        }
+        return count < 2 ? Double.NaN : Math.sqrt(m2 / (count - 1) * TRADING_DAYS_PER_YEAR);
+    }
+
+    // Start of today in the exchange's wall-clock time, in the same epoch seconds as bar timestamps
+    private long todayStart() {
+        return LocalDate.now(ZoneId.of(exchangeZone)).toEpochDay() * 86_400L;
+    }
+
+    private static double parsePrice(String price) {
+        try {
+            return price == null ? Double.NaN : Double.parseDouble(price);
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.stocks.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+
+/**
+ * Invalidations over PostgreSQL LISTEN/NOTIFY, so every instance pointed at the same database sees
+ * the others' writes. One pooled connection is held by the listener thread for the node's lifetime.
+ * Payloads are "node\tcache\tkey"; a node ignores its own. After the listener (re)connects it reports
+ * (null, null), because notifications sent while it was away are lost.
+ */
+@Component
+@ConditionalOnProperty(name = "cache.invalidation.channel", havingValue = "postgres")
+public class PostgresInvalidationChannel implements CacheInvalidationChannel {
+
+    private static final String CHANNEL = "stocks_cache_invalidation";
+
+    // How long one wait for notifications blocks before checking for shutdown
+    @Value("${cache.invalidation.poll-ms:500}")
+    private int pollMs;
+
+    @Value("${cache.invalidation.reconnect-ms:5000}")
+    private long reconnectMs;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final List<BiConsumer<String, String>> listeners = new CopyOnWriteArrayList<>();
+    private volatile boolean running = true;
+    private Thread listener;
+
+    @PostConstruct
+    void start() {
+        listener = new Thread(this::listen, "cache-invalidation");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        listener.interrupt();
+    }
+
+    // On a connection of its own: callers publish after their transaction committed, and a NOTIFY
+    // issued inside a transaction is only sent when that transaction commits
+    @Override
+    public void publish(String cache, String key) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement ps = connection.prepareStatement("SELECT pg_notify(?, ?)")) {
+            ps.setString(1, CHANNEL);
+            ps.setString(2, nodeId + "\t" + cache + "\t" + (key == null ? "" : key));
+            ps.execute();
+            if (!connection.getAutoCommit()) {
+                connection.commit();
+            }
+        } catch (SQLException e) {
+            // Other nodes keep serving their cached copy until it is evicted or rewritten
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public void subscribe(BiConsumer<String, String> listener) {
+        listeners.add(listener);
+    }
+
+    private void listen() {
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                connection.setAutoCommit(true);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                deliver(null, null);
+                PGConnection pg = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pg.getNotifications(pollMs);
+                    if (notifications == null) {
+                        continue;
+                    }
+                    for (PGNotification notification : notifications) {
+                        String[] parts = notification.getParameter().split("\t", 3);
+                        if (parts.length == 3 && !parts[0].equals(nodeId)) {
+                            deliver(parts[1], parts[2].isEmpty() ? null : parts[2]);
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                e.printStackTrace();
+                try {
+                    Thread.sleep(reconnectMs);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void deliver(String cache, String key) {
+        for (BiConsumer<String, String> listener : listeners) {
+            try {
+                listener.accept(cache, key);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
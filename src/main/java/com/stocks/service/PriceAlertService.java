@@ -0,0 +1,294 @@
+package com.stocks.service;
+
+import com.stocks.dto.Quote;
+import com.stocks.dto.QuoteResult;
+import com.stocks.entity.PriceAlert;
+import com.stocks.exceptions.MarketDataException;
+import com.stocks.repository.PriceAlertRepository;
+import com.stocks.util.AlertIndex;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Price alerts: above / below a price, or a percent move either way from the price at creation.
+ *
+ * Every active alert lives in an {@link AlertIndex} keyed by symbol and threshold, and each quote
+ * written to the {@link QuoteCache} is matched against it on the writing thread; that only touches the
+ * alerts the price crosses. Fired alerts are queued and recorded on the quote executor in JDBC batches,
+ * conditionally on not having fired yet, so with several nodes matching the same alerts each one is
+ * recorded once. A batch that fails to record goes back on the queue and is retried every
+ * alerts.retry-ms. The per-user limit is checked and the alert inserted while holding the user's row
+ * lock, so concurrent creations on any node cannot overshoot it. Creations and deletions are published on the {@link CacheInvalidationChannel} so the
+ * other nodes' indexes follow; symbols with alerts are reported as quote demand so they keep ticking.
+ */
+@Service
+public class PriceAlertService {
+
+    static final String CHANNEL = "alerts";
+
+    private static final String MARK_FIRED =
+            "UPDATE price_alerts SET triggered_at = ?, triggered_price = ? WHERE id = ? AND triggered_at IS NULL";
+
+    // Serializes alert creation per user, across nodes, for the length of the transaction
+    private static final String LOCK_USER = "SELECT id FROM users WHERE id = ? FOR UPDATE";
+
+    // Active alerts a user may have at once
+    @Value("${alerts.max-per-user:100}")
+    private int maxPerUser;
+
+    @Value("${alerts.fire-batch-size:500}")
+    private int fireBatchSize;
+
+    @Value("${alerts.load-fetch-size:10000}")
+    private int loadFetchSize;
+
+    @Autowired
+    private PriceAlertRepository priceAlertRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private QuoteCache quoteCache;
+
+    @Autowired
+    private StockService stockService;
+
+    @Autowired
+    private CacheInvalidationChannel channel;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    @Qualifier("quoteExecutor")
+    private Executor quoteExecutor;
+
+    private final AlertIndex index = new AlertIndex();
+
+    private record Fired(long id, double price, Instant at) {
+    }
+
+    private final Queue<Fired> fired = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean recording = new AtomicBoolean();
+
+    private Counter firedCounter;
+
+    @PostConstruct
+    void init() {
+        firedCounter = meterRegistry.counter("alerts.fired");
+        Gauge.builder("alerts.active", index, AlertIndex::size).register(meterRegistry);
+        quoteCache.addListener(this::onQuote);
+        channel.subscribe(this::onRemoteChange);
+        loadActive();
+    }
+
+    public PriceAlert create(Long userId, String ticker, PriceAlert.Type type, double threshold) {
+        String symbol = QuoteCache.normalize(ticker);
+        boolean percent = type == PriceAlert.Type.PERCENT_MOVE;
+        if (symbol.isEmpty() || symbol.length() > 32 || !(threshold > 0) || Double.isInfinite(threshold)
+                || (percent && threshold >= 100)) {
+            throw new IllegalArgumentException("Invalid alert");
+        }
+        QuoteResult quote = stockService.getQuotes(List.of(symbol)).get(0);
+        double price = parsePrice(quote.price());
+        if (Double.isNaN(price) || price <= 0) {
+            throw new MarketDataException("No price for " + symbol);
+        }
+
+        PriceAlert alert = new PriceAlert();
+        alert.setUserId(userId);
+        alert.setSymbol(symbol);
+        alert.setType(type);
+        alert.setThreshold(threshold);
+        alert.setReferencePrice(price);
+        alert.setCreatedAt(Instant.now());
+        PriceAlert saved = new TransactionTemplate(transactionManager).execute(status -> {
+            jdbcTemplate.queryForList(LOCK_USER, Long.class, userId);
+            if (priceAlertRepository.countByUserIdAndTriggeredAtIsNull(userId) >= maxPerUser) {
+                throw new IllegalStateException("At most " + maxPerUser + " active alerts per user");
+            }
+            return priceAlertRepository.save(alert);
+        });
+        index(saved);
+        channel.publish(CHANNEL, "add:" + saved.getId());
+        return saved;
+    }
+
+    public List<PriceAlert> list(Long userId) {
+        return priceAlertRepository.findByUserIdOrderById(userId);
+    }
+
+    // False if the user has no such alert
+    public boolean delete(Long userId, Long id) {
+        Optional<PriceAlert> alert = priceAlertRepository.findByIdAndUserId(id, userId);
+        if (alert.isEmpty() || priceAlertRepository.deleteByIdAndUserId(id, userId) == 0) {
+            return false;
+        }
+        if (alert.get().getTriggeredAt() == null) {
+            index.remove(alert.get().getSymbol(), id);
+            channel.publish(CHANNEL, "remove:" + id + ":" + alert.get().getSymbol());
+        }
+        return true;
+    }
+
+    // Keeps every symbol with alerts in the refresher's hot set
+    @Scheduled(fixedDelayString = "${alerts.demand-ms:60000}")
+    public void reportDemand() {
+        for (String symbol : index.symbols()) {
+            quoteCache.recordDemand(symbol, 1);
+        }
+    }
+
+    // Retries batches that failed to record; a no-op while the queue is empty
+    @Scheduled(fixedDelayString = "${alerts.retry-ms:5000}")
+    public void retryFired() {
+        if (!fired.isEmpty()) {
+            startRecording();
+        }
+    }
+
+    private void onQuote(Quote quote) {
+        double price = parsePrice(quote.price());
+        Instant at = Instant.ofEpochMilli(quote.fetchedAt());
+        int count = index.match(QuoteCache.normalize(quote.symbol()), price, id -> fired.add(new Fired(id, price, at)));
+        if (count > 0) {
+            startRecording();
+        }
+    }
+
+    private void startRecording() {
+        if (recording.compareAndSet(false, true)) {
+            try {
+                quoteExecutor.execute(this::recordFired);
+            } catch (RuntimeException e) {
+                recording.set(false);
+                e.printStackTrace();
+            }
+        }
+    }
+
+    // Drains the fired queue in batches; alerts fired meanwhile are picked up by another pass. A failed
+    // batch is queued again and the pass ends, leaving it to retryFired rather than spinning on the error
+    private void recordFired() {
+        do {
+            List<Fired> batch = new ArrayList<>(fireBatchSize);
+            boolean recorded = true;
+            Fired next;
+            while (recorded && (next = fired.poll()) != null) {
+                batch.add(next);
+                if (batch.size() == fireBatchSize) {
+                    recorded = record(batch);
+                    batch.clear();
+                }
+            }
+            if (recorded) {
+                recorded = record(batch);
+            }
+            recording.set(false);
+            if (!recorded) {
+                return;
+            }
+        } while (!fired.isEmpty() && recording.compareAndSet(false, true));
+    }
+
+    // False, with the batch back on the queue, if it could not be recorded
+    private boolean record(List<Fired> batch) {
+        if (batch.isEmpty()) {
+            return true;
+        }
+        try {
+            int[][] updated = jdbcTemplate.batchUpdate(MARK_FIRED, batch, batch.size(), (ps, alert) -> {
+                ps.setTimestamp(1, Timestamp.from(alert.at()));
+                ps.setDouble(2, alert.price());
+                ps.setLong(3, alert.id());
+            });
+            for (int[] counts : updated) {
+                for (int count : counts) {
+                    // 0: another node recorded it first, or it was deleted meanwhile
+                    if (count != 0) {
+                        firedCounter.increment();
+                    }
+                }
+            }
+            return true;
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            fired.addAll(batch);
+            return false;
+        }
+    }
+
+    // Rebuilds the index from every alert that has not fired, streamed from a cursor
+    private void loadActive() {
+        index.clear();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(
+                    "SELECT id, symbol, type, threshold, reference_price FROM price_alerts WHERE triggered_at IS NULL");
+            ps.setFetchSize(loadFetchSize);
+            return ps;
+        }, rs -> {
+            PriceAlert alert = new PriceAlert();
+            alert.setId(rs.getLong(1));
+            alert.setSymbol(rs.getString(2));
+            alert.setType(PriceAlert.Type.valueOf(rs.getString(3)));
+            alert.setThreshold(rs.getDouble(4));
+            alert.setReferencePrice(rs.getDouble(5));
+            index(alert);
+        }));
+    }
+
+    private void index(PriceAlert alert) {
+        index.add(alert.getSymbol(), alert.getId(), alert.abovePrice(), alert.belowPrice());
+    }
+
+    // "add:<id>" or "remove:<id>:<symbol>" from another node; (null, null) after missed messages
+    private void onRemoteChange(String cache, String key) {
+        try {
+            if (cache == null) {
+                loadActive();
+            } else if (CHANNEL.equals(cache) && key.startsWith("add:")) {
+                priceAlertRepository.findById(Long.valueOf(key.substring(4)))
+                        .filter(alert -> alert.getTriggeredAt() == null)
+                        .ifPresent(this::index);
+            } else if (CHANNEL.equals(cache) && key.startsWith("remove:")) {
+                String[] parts = key.split(":", 3);
+                index.remove(parts[2], Long.parseLong(parts[1]));
+            }
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static double parsePrice(String price) {
+        try {
+            return price == null ? Double.NaN : Double.parseDouble(price);
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.stocks.service;
+
+import com.stocks.dto.Quote;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * In-process quote store keyed by ticker, shared by request handlers and the background refresher.
+ *
+ * On-demand entries live for a configurable TTL; the refresher writes entries with a longer expiry
+ * matched to its own schedule. The store is bounded in size; the last quote seen per ticker is kept
+ * apart from it, for up to {@code max-stale-ms}, so a full cache never costs us the last known good
+ * price we fall back to when the provider is unavailable. Concurrent misses for the same ticker
+ * are coalesced: the first caller runs the upstream fetch and every other caller waits on the same
+ * future, so N simultaneous requests for AAPL cost exactly one upstream round-trip.
+ */
+@Component
+public class QuoteCache {
+
+    private final long ttlMs;
+    private final int maxSize;
+    private final long maxStaleMs;
+    private final int maxStaleEntries;
+
+    private final Map<String, Entry> quotes = new ConcurrentHashMap<>();
+    // Last quote per ticker whatever its expiry; only dropped once older than maxStaleMs or when over
+    // maxStaleEntries
+    private final Map<String, Quote> lastKnown = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Quote>> inFlight = new ConcurrentHashMap<>();
+
+    // Requests per ticker since the refresher last looked; tells it which symbols are hot
+    private final Map<String, LongAdder> demand = new ConcurrentHashMap<>();
+
+    // Notified with every quote whose price changed, e.g. to push it to streaming clients
+    private final List<Consumer<Quote>> listeners = new CopyOnWriteArrayList<>();
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter coalesced;
+
+    private record Entry(Quote quote, long expiresAt) {
+    }
+
+    public QuoteCache(@Value("${quote.cache.ttl-ms:15000}") long ttlMs,
+                      @Value("${quote.cache.max-size:2000}") int maxSize,
+                      @Value("${quote.cache.max-stale-ms:86400000}") long maxStaleMs,
+                      @Value("${quote.cache.max-stale-entries:50000}") int maxStaleEntries,
+                      MeterRegistry meterRegistry) {
+        this.ttlMs = ttlMs;
+        this.maxSize = maxSize;
+        this.maxStaleMs = maxStaleMs;
+        this.maxStaleEntries = maxStaleEntries;
+        this.hits = meterRegistry.counter("quote.cache.requests", "result", "hit");
+        this.misses = meterRegistry.counter("quote.cache.requests", "result", "miss");
+        this.coalesced = meterRegistry.counter("quote.cache.requests", "result", "coalesced");
+        Gauge.builder("quote.cache.size", quotes, Map::size).register(meterRegistry);
+        Gauge.builder("quote.cache.last-known.size", lastKnown, Map::size).register(meterRegistry);
+    }
+
+    // Return a fresh cached quote, or load it once no matter how many callers are waiting
+    public Quote get(String ticker, Supplier<Quote> loader) {
+        String key = normalize(ticker);
+        recordDemand(key, 1);
+        Quote cached = getIfFresh(key);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+
+        CompletableFuture<Quote> mine = new CompletableFuture<>();
+        CompletableFuture<Quote> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            coalesced.increment();
+            return await(existing);
+        }
+
+        try {
+            // Another caller may have finished loading between our lookup and claiming the slot
+            Quote quote = getIfFresh(key);
+            if (quote != null) {
+                hits.increment();
+            } else {
+                misses.increment();
+                quote = loader.get();
+                put(quote);
+            }
+            mine.complete(quote);
+            return quote;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    public Quote getIfFresh(String ticker) {
+        Entry entry = quotes.get(normalize(ticker));
+        if (entry == null || System.currentTimeMillis() > entry.expiresAt()) {
+            return null;
+        }
+        return entry.quote();
+    }
+
+    // Last quote stored for the ticker even if expired, as long as it is no older than maxAgeMs
+    public Quote getLastKnown(String ticker, long maxAgeMs) {
+        Quote quote = lastKnown.get(normalize(ticker));
+        if (quote == null || System.currentTimeMillis() - quote.fetchedAt() > maxAgeMs) {
+            return null;
+        }
+        return quote;
+    }
+
+    public void put(Quote quote) {
+        put(quote, ttlMs);
+    }
+
+    // Store with an explicit lifetime, e.g. long enough to bridge the refresher's next run
+    public void put(Quote quote, long lifetimeMs) {
+        String key = normalize(quote.symbol());
+        quotes.put(key, new Entry(quote, quote.fetchedAt() + lifetimeMs));
+        Quote previous = lastKnown.put(key, quote);
+        if (quotes.size() > maxSize) {
+            evict();
+        }
+        if (lastKnown.size() > maxStaleEntries) {
+            evictLastKnown();
+        }
+        if (previous == null || !Objects.equals(previous.price(), quote.price())) {
+            for (Consumer<Quote> listener : listeners) {
+                listener.accept(quote);
+            }
+        }
+    }
+
+    // Listeners run on the writing thread, so they must hand off anything slow
+    public void addListener(Consumer<Quote> listener) {
+        listeners.add(listener);
+    }
+
+    // Count interest in a ticker that did not come through get(), e.g. an open stream
+    public void recordDemand(String ticker, long requests) {
+        demand.computeIfAbsent(normalize(ticker), k -> new LongAdder()).add(requests);
+    }
+
+    // Request counts per ticker since the previous call
+    public Map<String, Long> drainDemand() {
+        Map<String, Long> counts = new HashMap<>();
+        demand.forEach((symbol, requests) -> {
+            long count = requests.sumThenReset();
+            if (count > 0) {
+                counts.put(symbol, count);
+            }
+        });
+        demand.values().removeIf(requests -> requests.sum() == 0);
+        return counts;
+    }
+
+    // Drop expired entries first, then the oldest ones until we are back under the bound; their last
+    // known quotes stay in lastKnown
+    private synchronized void evict() {
+        long now = System.currentTimeMillis();
+        quotes.values().removeIf(entry -> now > entry.expiresAt());
+        while (quotes.size() > maxSize) {
+            String oldest = null;
+            long oldestAt = Long.MAX_VALUE;
+            for (Map.Entry<String, Entry> entry : quotes.entrySet()) {
+                if (entry.getValue().quote().fetchedAt() < oldestAt) {
+                    oldestAt = entry.getValue().quote().fetchedAt();
+                    oldest = entry.getKey();
+                }
+            }
+            if (oldest == null) {
+                return;
+            }
+            quotes.remove(oldest);
+        }
+    }
+
+    // Quotes too old to serve go first; past that the oldest, trimming a tenth of the bound at a time
+    // so the scan is not repeated on every put
+    private synchronized void evictLastKnown() {
+        long now = System.currentTimeMillis();
+        lastKnown.values().removeIf(quote -> now - quote.fetchedAt() > maxStaleMs);
+        int target = maxStaleEntries - maxStaleEntries / 10;
+        if (lastKnown.size() <= maxStaleEntries) {
+            return;
+        }
+        lastKnown.entrySet().stream()
+                .sorted(Map.Entry.comparingByValue(Comparator.comparingLong(Quote::fetchedAt)))
+                .limit(Math.max(0, lastKnown.size() - target))
+                .map(Map.Entry::getKey)
+                .toList()
+                .forEach(lastKnown::remove);
+    }
+
+    private static Quote await(CompletableFuture<Quote> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    static String normalize(String ticker) {
+        return ticker.trim().toUpperCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,187 @@
+package com.stocks.service;
+
+import com.stocks.dto.Quote;
+import com.stocks.repository.StockRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Keeps the hot ticker set warm in {@link QuoteCache} so /api/stocks/realtime is served from memory.
+ *
+ * The hot set is every symbol held in the stocks table plus everything requested recently. Each
+ * tick refreshes the symbols that are due, most popular first, capped by a per-minute call budget
+ * so the refresher never eats the interactive share of the upstream quota. Popular symbols are
+ * refreshed more often, and everything slows down outside US market hours.
+ */
+@Component
+public class QuoteRefresher {
+
+    private static final ZoneId MARKET_ZONE = ZoneId.of("America/New_York");
+    private static final LocalTime MARKET_OPEN = LocalTime.of(9, 30);
+    private static final LocalTime MARKET_CLOSE = LocalTime.of(16, 0);
+
+    @Value("${quote.refresh.enabled:true}")
+    private boolean enabled;
+
+    // Refresh interval for a symbol with a single holder during market hours
+    @Value("${quote.refresh.base-interval-ms:60000}")
+    private long baseIntervalMs;
+
+    // Floor for the most popular symbols
+    @Value("${quote.refresh.min-interval-ms:15000}")
+    private long minIntervalMs;
+
+    @Value("${quote.refresh.off-hours-multiplier:15}")
+    private int offHoursMultiplier;
+
+    // Upstream calls the refresher may spend per minute (a quote costs one or two calls)
+    @Value("${quote.refresh.max-calls-per-minute:30}")
+    private int maxCallsPerMinute;
+
+    // Symbols that are neither held nor requested for this long drop out of the hot set
+    @Value("${quote.refresh.idle-eviction-ms:1800000}")
+    private long idleEvictionMs;
+
+    @Value("${quote.refresh.holdings-reload-ms:60000}")
+    private long holdingsReloadMs;
+
+    @Autowired
+    private QuoteCache quoteCache;
+
+    @Autowired
+    private StockService stockService;
+
+    @Autowired
+    private StockRepository stockRepository;
+
+    @Autowired
+    @Qualifier("quoteExecutor")
+    private Executor quoteExecutor;
+
+    private final Map<String, HotSymbol> hotSymbols = new ConcurrentHashMap<>();
+    private long holdingsLoadedAt;
+    private long budgetWindowStart;
+    private int callsInWindow;
+
+    private static final class HotSymbol {
+        long holders;
+        double recentRequests; // decayed request count
+        long lastRequestedAt;
+        long nextRefreshAt;
+
+        double popularity() {
+            return holders + recentRequests;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${quote.refresh.tick-ms:5000}", initialDelayString = "${quote.refresh.tick-ms:5000}")
+    public void refreshDueQuotes() {
+        if (!enabled) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        updateHotSet(now);
+
+        if (now - budgetWindowStart >= 60_000) {
+            budgetWindowStart = now;
+            callsInWindow = 0;
+        }
+        // Budget as if every refresh needs the daily fallback, so we never overshoot
+        int available = (maxCallsPerMinute - callsInWindow) / 2;
+        if (available <= 0) {
+            return;
+        }
+
+        List<Map.Entry<String, HotSymbol>> due = new ArrayList<>();
+        for (Map.Entry<String, HotSymbol> entry : hotSymbols.entrySet()) {
+            if (entry.getValue().nextRefreshAt <= now) {
+                due.add(entry);
+            }
+        }
+        due.sort(Comparator.comparingDouble(
+                (Map.Entry<String, HotSymbol> entry) -> entry.getValue().popularity()).reversed());
+
+        boolean marketOpen = isMarketOpen(ZonedDateTime.now(MARKET_ZONE));
+        List<CompletableFuture<Void>> batch = new ArrayList<>();
+        for (Map.Entry<String, HotSymbol> entry : due.subList(0, Math.min(available, due.size()))) {
+            String symbol = entry.getKey();
+            long interval = intervalFor(entry.getValue(), marketOpen);
+            try {
+                batch.add(CompletableFuture.runAsync(() -> refresh(symbol, interval), quoteExecutor));
+            } catch (RejectedExecutionException e) {
+                // Pool busy with requests; the rest of the due symbols wait for the next tick
+                break;
+            }
+            entry.getValue().nextRefreshAt = now + interval;
+            callsInWindow += 2;
+        }
+        CompletableFuture.allOf(batch.toArray(new CompletableFuture[0])).join();
+    }
+
+    private void refresh(String symbol, long interval) {
+        try {
+            Quote quote = stockService.fetchQuote(symbol, UpstreamPriority.BACKGROUND);
+            // Keep serving it until well after the next scheduled refresh
+            quoteCache.put(quote, interval * 2);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void updateHotSet(long now) {
+        if (now - holdingsLoadedAt >= holdingsReloadMs) {
+            holdingsLoadedAt = now;
+            Map<String, Long> holders = new HashMap<>();
+            for (StockRepository.SymbolHolders row : stockRepository.countHoldersBySymbol()) {
+                holders.put(QuoteCache.normalize(row.getSymbol()), row.getHolders());
+            }
+            hotSymbols.forEach((symbol, hot) -> hot.holders = holders.getOrDefault(symbol, 0L));
+            holders.forEach((symbol, count) -> hotSymbols.computeIfAbsent(symbol, s -> new HotSymbol()).holders = count);
+        }
+
+        Map<String, Long> requested = quoteCache.drainDemand();
+        for (HotSymbol hot : hotSymbols.values()) {
+            hot.recentRequests *= 0.9; // decays to ~1/3 per ten ticks
+        }
+        requested.forEach((symbol, count) -> {
+            HotSymbol hot = hotSymbols.computeIfAbsent(symbol, s -> new HotSymbol());
+            hot.recentRequests += count;
+            hot.lastRequestedAt = now;
+        });
+
+        hotSymbols.values().removeIf(hot -> hot.holders == 0 && now - hot.lastRequestedAt > idleEvictionMs);
+    }
+
+    // base / (1 + log2(1 + popularity)), floored at minIntervalMs and stretched outside market hours
+    private long intervalFor(HotSymbol hot, boolean marketOpen) {
+        double speedUp = 1 + Math.log(1 + hot.popularity()) / Math.log(2);
+        long interval = Math.max(minIntervalMs, (long) (baseIntervalMs / speedUp));
+        return marketOpen ? interval : interval * offHoursMultiplier;
+    }
+
+    static boolean isMarketOpen(ZonedDateTime now) {
+        DayOfWeek day = now.getDayOfWeek();
+        if (day == DayOfWeek.SATURDAY || day == DayOfWeek.SUNDAY) {
+            return false;
+        }
+        LocalTime time = now.toLocalTime();
+        return !time.isBefore(MARKET_OPEN) && time.isBefore(MARKET_CLOSE);
+    }
+}
@@ -0,0 +1,327 @@
+package com.stocks.service;
+
+import com.stocks.dto.Quote;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes quote updates to clients over Server-Sent Events.
+ *
+ * Every quote written to {@link QuoteCache} is fanned out to the connections subscribed to its
+ * ticker, so one upstream refresh reaches all of them. The publishing thread never writes to a
+ * socket: each connection keeps at most one pending quote per ticker (a newer price replaces an
+ * unsent one) and is drained on a writer pool. A connection whose write has been stuck for longer
+ * than the allowed lag is closed rather than allowed to buffer without bound.
+ */
+@Service
+public class QuoteStreamService {
+
+    @Value("${quote.stream.max-connections:5000}")
+    private int maxConnections;
+
+    @Value("${quote.stream.max-tickers:100}")
+    private int maxTickers;
+
+    // Connections are closed after this long; EventSource clients reconnect on their own
+    @Value("${quote.stream.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    // A connection that has not finished a write for this long is considered too slow and evicted
+    @Value("${quote.stream.max-lag-ms:10000}")
+    private long maxLagMs;
+
+    @Autowired
+    private QuoteCache quoteCache;
+
+    @Autowired
+    private StockService stockService;
+
+    @Autowired
+    @Qualifier("quoteStreamExecutor")
+    private Executor streamExecutor;
+
+    @Autowired
+    @Qualifier("quoteExecutor")
+    private Executor quoteExecutor;
+
+    // Ticker -> connections subscribed to it
+    private final Map<String, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger connections = new AtomicInteger();
+
+    private final Counter evicted;
+    private final Counter conflated;
+
+    public QuoteStreamService(MeterRegistry meterRegistry) {
+        Gauge.builder("quote.stream.connections", connections, AtomicInteger::get).register(meterRegistry);
+        this.evicted = meterRegistry.counter("quote.stream.evicted");
+        this.conflated = meterRegistry.counter("quote.stream.conflated");
+    }
+
+    @PostConstruct
+    void listen() {
+        quoteCache.addListener(this::publish);
+    }
+
+    // Returns null when the server is already at its connection limit
+    public SseEmitter subscribe(List<String> tickers) {
+        if (connections.incrementAndGet() > maxConnections) {
+            connections.decrementAndGet();
+            return null;
+        }
+
+        Set<String> symbols = new LinkedHashSet<>();
+        for (String ticker : tickers) {
+            if (!ticker.isBlank() && symbols.size() < maxTickers) {
+                symbols.add(QuoteCache.normalize(ticker));
+            }
+        }
+
+        SseEmitter emitter = newEmitter();
+        Subscriber subscriber = new Subscriber(emitter, symbols);
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(() -> unsubscribe(subscriber));
+        emitter.onError(e -> unsubscribe(subscriber));
+
+        for (String symbol : symbols) {
+            subscribers.computeIfAbsent(symbol, s -> ConcurrentHashMap.newKeySet()).add(subscriber);
+            Quote cached = quoteCache.getIfFresh(symbol);
+            if (cached != null) {
+                subscriber.offer(cached);
+            } else {
+                // Loading through the cache publishes the quote to every subscriber once it arrives
+                try {
+                    quoteExecutor.execute(() -> warm(symbol));
+                } catch (RejectedExecutionException e) {
+                    // Pool saturated; the refresher picks the symbol up through the stream's demand
+                }
+            }
+        }
+        return emitter;
+    }
+
+    // Keep streamed tickers in the refresher's hot set, weighted by how many clients watch them
+    @Scheduled(fixedDelayString = "${quote.refresh.tick-ms:5000}")
+    public void recordStreamDemand() {
+        subscribers.forEach((symbol, watching) -> {
+            if (!watching.isEmpty()) {
+                quoteCache.recordDemand(symbol, watching.size());
+            }
+        });
+    }
+
+    // Comment lines keep idle connections open through proxies and surface dead ones
+    @Scheduled(fixedDelayString = "${quote.stream.heartbeat-ms:15000}")
+    public void heartbeat() {
+        Set<Subscriber> all = ConcurrentHashMap.newKeySet();
+        subscribers.values().forEach(all::addAll);
+        for (Subscriber subscriber : all) {
+            subscriber.requestHeartbeat();
+        }
+    }
+
+    SseEmitter newEmitter() {
+        return new SseEmitter(timeoutMs);
+    }
+
+    private void publish(Quote quote) {
+        Set<Subscriber> watching = subscribers.get(QuoteCache.normalize(quote.symbol()));
+        if (watching == null) {
+            return;
+        }
+        for (Subscriber subscriber : watching) {
+            subscriber.offer(quote);
+        }
+    }
+
+    private void warm(String symbol) {
+        try {
+            quoteCache.get(symbol, () -> stockService.fetchQuote(symbol, UpstreamPriority.INTERACTIVE));
+        } catch (Exception e) {
+            // The refresher picks the symbol up on its next tick
+            e.printStackTrace();
+        }
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        if (!subscriber.close()) {
+            return;
+        }
+        connections.decrementAndGet();
+        for (String symbol : subscriber.symbols) {
+            subscribers.computeIfPresent(symbol, (s, watching) -> {
+                watching.remove(subscriber);
+                return watching.isEmpty() ? null : watching;
+            });
+        }
+    }
+
+    // Runs on the publishing or scheduler thread, so it must not wait on the emitter: complete() shares
+    // send()'s lock, and a stuck send would block the caller too. With a write in flight the writer
+    // completes the emitter once that write returns
+    private void evict(Subscriber subscriber) {
+        evicted.increment();
+        unsubscribe(subscriber);
+        if (subscriber.completeIfIdle()) {
+            subscriber.emitter.complete();
+        }
+    }
+
+    private final class Subscriber {
+        final SseEmitter emitter;
+        final Set<String> symbols;
+
+        // Latest unsent quote per ticker, guarded by this
+        private final Map<String, Quote> pending = new LinkedHashMap<>();
+        private boolean heartbeatDue;
+        private boolean draining;
+        private boolean closed;
+        private boolean released;
+        // Evicted while a write was in flight; the writer completes the emitter on its way out
+        private boolean completeWhenDrained;
+        // When the current write batch started, or 0 when idle
+        private long busySince;
+
+        Subscriber(SseEmitter emitter, Set<String> symbols) {
+            this.emitter = emitter;
+            this.symbols = symbols;
+        }
+
+        void offer(Quote quote) {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                if (pending.put(quote.symbol(), quote) != null) {
+                    conflated.increment();
+                }
+            }
+            schedule();
+        }
+
+        void requestHeartbeat() {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                heartbeatDue = true;
+            }
+            schedule();
+        }
+
+        private void schedule() {
+            boolean lagging = false;
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                if (draining) {
+                    // A write is already queued or running; only step in if it has stalled
+                    if (busySince == 0 || System.currentTimeMillis() - busySince <= maxLagMs) {
+                        return;
+                    }
+                    lagging = true;
+                } else {
+                    draining = true;
+                }
+            }
+            if (lagging) {
+                evict(this);
+                return;
+            }
+            try {
+                streamExecutor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                synchronized (this) {
+                    draining = false;
+                }
+                evict(this);
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                List<Quote> batch;
+                boolean heartbeat;
+                boolean complete = false;
+                synchronized (this) {
+                    if (closed || (pending.isEmpty() && !heartbeatDue)) {
+                        draining = false;
+                        busySince = 0;
+                        complete = completeWhenDrained;
+                        completeWhenDrained = false;
+                        batch = null;
+                        heartbeat = false;
+                    } else {
+                        batch = new ArrayList<>(pending.values());
+                        pending.clear();
+                        heartbeat = heartbeatDue;
+                        heartbeatDue = false;
+                        busySince = System.currentTimeMillis();
+                    }
+                }
+                if (batch == null) {
+                    if (complete) {
+                        emitter.complete();
+                    }
+                    return;
+                }
+                try {
+                    for (Quote quote : batch) {
+                        emitter.send(SseEmitter.event().name("quote").data(quote));
+                    }
+                    if (heartbeat) {
+                        emitter.send(SseEmitter.event().comment("keep-alive"));
+                    }
+                } catch (IOException | IllegalStateException e) {
+                    // Client went away; the container reports completion, but don't rely on it
+                    synchronized (this) {
+                        draining = false;
+                        completeWhenDrained = false;
+                    }
+                    unsubscribe(this);
+                    return;
+                }
+            }
+        }
+
+        // True if no write is in flight, so completing now cannot block; otherwise the writer does it
+        synchronized boolean completeIfIdle() {
+            if (draining) {
+                completeWhenDrained = true;
+                return false;
+            }
+            return true;
+        }
+
+        // True only for the first caller, so the connection is counted down once
+        synchronized boolean close() {
+            closed = true;
+            pending.clear();
+            if (released) {
+                return false;
+            }
+            released = true;
+            return true;
+        }
+    }
+}
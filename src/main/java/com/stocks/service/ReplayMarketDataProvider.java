@@ -0,0 +1,251 @@
+package com.stocks.service;
+
+import com.stocks.dto.Quote;
+import com.stocks.dto.SymbolMatch;
+import com.stocks.exceptions.MarketDataException;
+import com.stocks.util.CsvUtils;
+import com.stocks.util.TickFile;
+import com.stocks.util.TimeSeriesBars;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Offline market data served from tick files on disk (see {@link TickFile}), one SYMBOL.ticks file per
+ * symbol in market.replay.dir. Lets the whole stack run throughput and latency tests without an API key.
+ *
+ * Playback is deterministic: with a rate, the tick served is a pure function of the time since startup;
+ * with rate 0 every quote request for a symbol advances it by exactly one tick. Symbols without a file
+ * get a synthetic random walk seeded from the symbol, built in memory rather than written to the replay
+ * directory. Loaded series are kept in an LRU of market.replay.max-series entries; an evicted one is
+ * reopened or regenerated identically on its next request, and in step mode plays from its first tick
+ * again. An optional names.csv (symbol,name) supplies company names for quotes and search.
+ */
+@Component
+@ConditionalOnProperty(name = "market.data.provider", havingValue = "replay")
+public class ReplayMarketDataProvider implements MarketDataProvider {
+
+    private static final String EXTENSION = ".ticks";
+    private static final DateTimeFormatter BAR_TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final Pattern VALID_SYMBOL = Pattern.compile("[A-Z0-9.^=-]{1,16}");
+    private static final long SYNTHETIC_START = Instant.parse("2024-01-02T14:30:00Z").toEpochMilli();
+
+    @Value("${market.replay.dir:replay}")
+    private String replayDir;
+
+    // Ticks advanced per second of wall-clock time; 0 advances one tick per quote request instead
+    @Value("${market.replay.ticks-per-second:1}")
+    private double ticksPerSecond;
+
+    // Start over at the first tick after the last one, instead of holding the last price
+    @Value("${market.replay.loop:true}")
+    private boolean loop;
+
+    // Simulated upstream round-trip, so load tests see realistic request-thread occupancy
+    @Value("${market.replay.latency-ms:0}")
+    private long latencyMs;
+
+    @Value("${market.replay.synthesize-missing:true}")
+    private boolean synthesizeMissing;
+
+    @Value("${market.replay.synthetic-ticks:100000}")
+    private int syntheticTicks;
+
+    // A synthetic series takes synthetic-ticks * 16 bytes of heap
+    @Value("${market.replay.max-series:64}")
+    private int maxSeries;
+
+    // Ticks plus the step-mode cursor, which goes with them on eviction
+    private record Series(TickFile ticks, AtomicLong cursor) {
+    }
+
+    private final Map<String, Series> series = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Series> eldest) {
+            return size() > Math.max(1, maxSeries);
+        }
+    };
+    private Map<String, String> names = Map.of();
+    private long startedAt;
+
+    @PostConstruct
+    void init() throws IOException {
+        startedAt = System.nanoTime();
+        Path dir = Paths.get(replayDir);
+        Map<String, String> loaded = new HashMap<>();
+        if (Files.isDirectory(dir)) {
+            try (DirectoryStream<Path> ticks = Files.newDirectoryStream(dir, "*" + EXTENSION)) {
+                for (Path file : ticks) {
+                    String name = file.getFileName().toString();
+                    String symbol = normalize(name.substring(0, name.length() - EXTENSION.length()));
+                    loaded.put(symbol, symbol);
+                }
+            }
+            Path namesFile = dir.resolve("names.csv");
+            if (Files.isRegularFile(namesFile)) {
+                try (BufferedReader reader = Files.newBufferedReader(namesFile, StandardCharsets.UTF_8)) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        List<String> fields = CsvUtils.splitLine(line);
+                        if (fields.size() >= 2 && !fields.get(0).isEmpty()) {
+                            loaded.put(normalize(fields.get(0)), fields.get(1));
+                        }
+                    }
+                }
+            }
+        }
+        names = Map.copyOf(loaded);
+    }
+
+    @Override
+    public Quote latestQuote(String symbol, UpstreamPriority priority) {
+        Series found = series(normalize(symbol));
+        TickFile ticks = found.ticks();
+        if (ticks.size() == 0) {
+            throw new MarketDataException("No market data available for " + symbol);
+        }
+        simulateLatency();
+
+        int index = currentIndex(found, true);
+        String price = BigDecimal.valueOf(ticks.price(index)).toPlainString();
+        return new Quote(normalize(symbol), names.get(normalize(symbol)), price, System.currentTimeMillis());
+    }
+
+    // Ticks up to the current replay position, rolled up into bars of the interval (UTC buckets)
+    @Override
+    public TimeSeriesBars history(String symbol, BarInterval interval, int maxBars, UpstreamPriority priority) {
+        Series found = series(normalize(symbol));
+        TickFile ticks = found.ticks();
+        TimeSeriesBars bars = new TimeSeriesBars(maxBars);
+        if (ticks.size() == 0) {
+            return bars;
+        }
+        long bucketMillis = interval.seconds() * 1000;
+        int i = currentIndex(found, false);
+        while (i >= 0 && bars.size() < maxBars) {
+            long bucket = Math.floorDiv(ticks.timestamp(i), bucketMillis);
+            double close = ticks.price(i);
+            double high = close;
+            double low = close;
+            double open = close;
+            for (; i >= 0 && Math.floorDiv(ticks.timestamp(i), bucketMillis) == bucket; i--) {
+                open = ticks.price(i);
+                high = Math.max(high, open);
+                low = Math.min(low, open);
+            }
+            LocalDateTime start = LocalDateTime.ofEpochSecond(bucket * interval.seconds(), 0, ZoneOffset.UTC);
+            String timestamp = interval == BarInterval.DAILY
+                    ? start.toLocalDate().toString()
+                    : start.format(BAR_TIMESTAMP);
+            bars.offer(timestamp, open, high, low, close, 0);
+        }
+        return bars;
+    }
+
+    // Symbol prefix or name substring over the symbols we have files or names for
+    @Override
+    public List<SymbolMatch> search(String keywords, UpstreamPriority priority) {
+        String needle = keywords.trim().toUpperCase(Locale.ROOT);
+        List<SymbolMatch> matches = new ArrayList<>();
+        names.forEach((symbol, name) -> {
+            if (symbol.startsWith(needle) || name.toUpperCase(Locale.ROOT).contains(needle)) {
+                matches.add(new SymbolMatch(symbol, name));
+            }
+        });
+        // Exact and shorter symbols first, like the remote search ranks them
+        matches.sort(Comparator.comparing((SymbolMatch match) -> !match.symbol().equals(needle))
+                .thenComparingInt(match -> match.symbol().length()));
+        return matches;
+    }
+
+    @Override
+    public Map<String, String> listing() {
+        return names;
+    }
+
+    // Clock mode derives the position from the time since startup; step mode keeps a cursor per symbol
+    private int currentIndex(Series found, boolean advance) {
+        TickFile ticks = found.ticks();
+        long position;
+        if (ticksPerSecond > 0) {
+            position = (long) ((System.nanoTime() - startedAt) / 1e9 * ticksPerSecond);
+        } else {
+            AtomicLong cursor = found.cursor();
+            position = advance ? cursor.getAndIncrement() : Math.max(0, cursor.get() - 1);
+        }
+        return (int) (loop ? position % ticks.size() : Math.min(position, ticks.size() - 1));
+    }
+
+    // Loaded outside the lock, so a slow load or synthesis only holds up its own symbol
+    private Series series(String symbol) {
+        synchronized (series) {
+            Series found = series.get(symbol);
+            if (found != null) {
+                return found;
+            }
+        }
+        Series loaded = new Series(load(symbol), new AtomicLong());
+        synchronized (series) {
+            return series.computeIfAbsent(symbol, s -> loaded);
+        }
+    }
+
+    private TickFile load(String symbol) {
+        // The symbol becomes a file name, so keep it to ticker characters
+        if (!VALID_SYMBOL.matcher(symbol).matches()) {
+            throw new MarketDataException("No replay data for " + symbol);
+        }
+        Path path = Paths.get(replayDir).resolve(symbol + EXTENSION);
+        try {
+            if (!Files.exists(path)) {
+                if (!synthesizeMissing) {
+                    throw new MarketDataException("No replay data for " + symbol);
+                }
+                // One tick a minute from a fixed start, so every run sees the same series
+                return TickFile.synthetic(symbol, syntheticTicks, SYNTHETIC_START, 60_000);
+            }
+            return TickFile.open(path);
+        } catch (IOException e) {
+            throw new MarketDataException("Could not load replay data for " + symbol, e);
+        }
+    }
+
+    private void simulateLatency() {
+        if (latencyMs <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(latencyMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MarketDataException("Interrupted during simulated upstream call", e);
+        }
+    }
+
+    private static String normalize(String symbol) {
+        return symbol.trim().toUpperCase(Locale.ROOT);
+    }
+}
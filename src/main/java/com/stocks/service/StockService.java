@@ -1,42 +1,89 @@
 package com.stocks.service;
 
+import com.stocks.dto.PortfolioValuation;
+import com.stocks.dto.Quote;
+import com.stocks.dto.QuoteResult;
+import com.stocks.dto.StockView;
+import com.stocks.dto.SymbolMatch;
 import com.stocks.entity.Stock;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.stocks.entity.User;
+import com.stocks.exceptions.MarketDataException;
+import com.stocks.exceptions.UpstreamUnavailableException;
 import com.stocks.repository.StockRepository;
 import com.stocks.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.HttpStatus;
-import org.springframework.web.util.UriComponentsBuilder;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Optional;
 import java.util.Map;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.ArrayList;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 
 @Service
 public class StockService {
 
-    @Value("${alpha.vantage.api.url}")
-    private String apiUrl;
-
-    @Value("${alpha.vantage.api.key}")
-    private String apiKey;
-
     @Autowired
     private StockRepository stockRepository;
 
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private QuoteCache quoteCache;
+
+    // Alpha Vantage, Yahoo or offline replay, depending on market.data.provider
+    @Autowired
+    private MarketDataProvider marketDataProvider;
+
+    @Autowired
+    private UpstreamCircuitBreakers circuitBreakers;
+
+    @Autowired
+    private SymbolDirectory symbolDirectory;
+
+    @Autowired
+    private SymbolSearchIndex symbolSearchIndex;
+
+    @Autowired
+    @Qualifier("quoteExecutor")
+    private Executor quoteExecutor;
+
+    // Per-symbol deadline inside a batch quote request
+    @Value("${market.quotes.batch-timeout-ms:4000}")
+    private long batchTimeoutMs;
+
+    // Oldest last-known-good quote still served while the upstream is failing
+    @Value("${quote.cache.max-stale-ms:86400000}")
+    private long maxStaleMs;
+
+    // Tickers with a background revalidation already queued
+    private final Set<String> revalidating = ConcurrentHashMap.newKeySet();
+
+    private record ServedQuote(Quote quote, boolean stale) {
+    }
+
+    @Value("${symbols.search.limit:10}")
+    private int searchLimit;
+
+    // Fall back to Alpha Vantage SYMBOL_SEARCH when the local index has no match
+    @Value("${symbols.search.remote-fallback:true}")
+    private boolean remoteSearchFallback;
+
     // Method to add stock to the user's portfolio
     public Stock addStock(Stock stock, String username) {
         Optional<User> userOptional = userRepository.findByUsername(username);
@@ -58,137 +105,183 @@ public class StockService {
         throw new RuntimeException("User not found");
     }
 
-    // Fetch real-time stock data from Alpha Vantage
+    // Fetch real-time stock data, served from the quote cache while it is fresh
     public ResponseEntity<Map<String, Object>> getRealTimeStockData(String ticker) {
         try {
-            // Construct the API URL for both real-time and previous closing price
-            String realTimeUrl = UriComponentsBuilder.fromHttpUrl(apiUrl)
-                    .queryParam("function", "TIME_SERIES_INTRADAY")
-                    .queryParam("symbol", ticker)
-                    .queryParam("interval", "1min")
-                    .queryParam("apikey", apiKey)
-                    .toUriString();
-
-            String dailyUrl = UriComponentsBuilder.fromHttpUrl(apiUrl)
-                    .queryParam("function", "TIME_SERIES_DAILY")
-                    .queryParam("symbol", ticker)
-                    .queryParam("apikey", apiKey)
-                    .toUriString();
-
-            // Create RestTemplate instance to make API calls
-            RestTemplate restTemplate = new RestTemplate();
-
-            // First, try fetching real-time data (1-minute interval)
-            ResponseEntity<String> realTimeResponse = restTemplate.getForEntity(realTimeUrl, String.class);
-
-            if (realTimeResponse.getStatusCode() == HttpStatus.OK) {
-                // Parse the real-time data (the JSON response may vary based on the API)
-                String realTimeData = realTimeResponse.getBody();
-
-                // Parse the real-time data and get the most recent price
-                String realTimePrice = extractRealTimePrice(realTimeData);
-
-                // Get the stock name using SYMBOL_SEARCH API
-                String stockName = getStockNameFromSymbol(ticker);
-
-                // Create a map to return the data in JSON format
-                Map<String, Object> response = new HashMap<>();
-                response.put("name", stockName);
-                response.put("price", realTimePrice);
-
-                return ResponseEntity.ok(response);
-            } else {
-                // If real-time data fails, fall back to previous closing price
-                ResponseEntity<String> dailyResponse = restTemplate.getForEntity(dailyUrl, String.class);
-
-                if (dailyResponse.getStatusCode() == HttpStatus.OK) {
-                    // Parse the daily data to extract the previous closing price
-                    String dailyData = dailyResponse.getBody();
-
-                    // Extract the last "close" price from the daily time series
-                    String previousClosePrice = extractPreviousClosePrice(dailyData);
-
-                    // Get the stock name using SYMBOL_SEARCH API
-                    String stockName = getStockNameFromSymbol(ticker);
-
-                    // Return in the JSON format as expected by the UI
-                    Map<String, Object> response = new HashMap<>();
-                    response.put("name", stockName);
-                    response.put("price", previousClosePrice);
-
-                    return ResponseEntity.ok(response);
-                } else {
-                    Map<String, Object> errorResponse = new HashMap<>();
-                    errorResponse.put("error", "Error fetching stock data for " + ticker + " - " + dailyResponse.getStatusCode());
-                    return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
-                }
-            }
+            ServedQuote served = quoteOrStale(ticker);
+            return ResponseEntity.ok(served.stale() ? served.quote().toStaleResponse() : served.quote().toResponse());
+        } catch (UpstreamUnavailableException e) {
+            // Quota or circuit breaker refused the call and there is no last known price to fall back on
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(errorResponse);
         } catch (Exception e) {
             // Catch any exceptions (e.g., network errors, API issues)
             e.printStackTrace();
             Map<String, Object> errorResponse = new HashMap<>();
-            errorResponse.put("error", "Error fetching stock data for " + ticker);
+            errorResponse.put("error", e instanceof MarketDataException ? e.getMessage() : "Error fetching stock data for " + ticker);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
         }
     }
 
-    // Helper method to extract the real-time price from the intraday data
-    private String extractRealTimePrice(String realTimeData) {
+    // Stale-while-revalidate: while the upstream is failing, answer from the last known good quote
+    // at once and let a background task retry, so outages never hold request threads
+    private ServedQuote quoteOrStale(String ticker) {
+        if (upstreamDegraded()) {
+            Quote lastKnown = quoteCache.getIfFresh(ticker);
+            if (lastKnown != null) {
+                return new ServedQuote(lastKnown, false);
+            }
+            lastKnown = quoteCache.getLastKnown(ticker, maxStaleMs);
+            if (lastKnown != null) {
+                revalidate(ticker);
+                return new ServedQuote(lastKnown, true);
+            }
+        }
         try {
-            // Parse the JSON data
-            ObjectMapper objectMapper = new ObjectMapper();
-            JsonNode rootNode = objectMapper.readTree(realTimeData);
-            JsonNode timeSeriesNode = rootNode.path("Time Series (1min)");
-
-            // Extract the most recent timestamp and its closing price
-            Iterator<Map.Entry<String, JsonNode>> fields = timeSeriesNode.fields();
-            Map.Entry<String, JsonNode> latestEntry = null;
-            while (fields.hasNext()) {
-                latestEntry = fields.next();  // Get the last entry in the time series (latest data)
+            return new ServedQuote(quoteCache.get(ticker, () -> fetchQuote(ticker, UpstreamPriority.INTERACTIVE)), false);
+        } catch (RuntimeException e) {
+            Quote lastKnown = quoteCache.getLastKnown(ticker, maxStaleMs);
+            if (lastKnown == null) {
+                throw e;
             }
+            revalidate(ticker);
+            return new ServedQuote(lastKnown, true);
+        }
+    }
 
-            // Extract the real-time price (closing price for the most recent timestamp)
-            if (latestEntry != null) {
-                String realTimePrice = latestEntry.getValue().path("4. close").asText();
-                return realTimePrice;
-            } else {
-                // Return default value of "1" if no real-time data is available
-                return "1";
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-            // Return default value of "1" in case of an error
-            return "1";
+    // Both price functions are failing or still being probed
+    private boolean upstreamDegraded() {
+        return circuitBreakers.state(UpstreamFunction.INTRADAY) != CircuitBreaker.State.CLOSED
+                && circuitBreakers.state(UpstreamFunction.DAILY) != CircuitBreaker.State.CLOSED;
+    }
+
+    private void revalidate(String ticker) {
+        String symbol = QuoteCache.normalize(ticker);
+        if (!revalidating.add(symbol)) {
+            return;
+        }
+        try {
+            quoteExecutor.execute(() -> {
+                try {
+                    quoteCache.get(symbol, () -> fetchQuote(symbol, UpstreamPriority.BACKGROUND));
+                } catch (Exception e) {
+                    // Still failing; the next stale read schedules another attempt
+                } finally {
+                    revalidating.remove(symbol);
+                }
+            });
+        } catch (RuntimeException e) {
+            revalidating.remove(symbol);
         }
     }
 
+    // Fetch the latest quote from the configured market data provider, at the given priority
+    Quote fetchQuote(String ticker, UpstreamPriority priority) {
+        String symbol = QuoteCache.normalize(ticker);
+        Quote quote = marketDataProvider.latestQuote(symbol, priority);
+        if (quote.name() != null) {
+            return quote;
+        }
+        // Get the stock name from the symbol directory (SYMBOL_SEARCH the first time)
+        return new Quote(symbol, getStockNameFromSymbol(symbol), quote.price(), quote.fetchedAt());
+    }
+
+    // Quote several tickers at once; distinct symbols are fetched concurrently and each reports its own status
+    public List<QuoteResult> getQuotes(Collection<String> tickers) {
+        Map<String, CompletableFuture<QuoteResult>> pending = new LinkedHashMap<>();
+        for (String ticker : tickers) {
+            if (ticker == null || ticker.isBlank()) {
+                continue;
+            }
+            pending.computeIfAbsent(QuoteCache.normalize(ticker), this::quoteAsync);
+        }
+
+        List<QuoteResult> results = new ArrayList<>(pending.size());
+        pending.forEach((symbol, future) -> {
+            QuoteResult result = future.join();
+            if (result == null) {
+                // Out of time, but a last known price still beats no price
+                Quote lastKnown = quoteCache.getLastKnown(symbol, maxStaleMs);
+                result = lastKnown != null
+                        ? QuoteResult.stale(lastKnown)
+                        : QuoteResult.failed(symbol, QuoteResult.TIMEOUT, "No quote for " + symbol + " within " + batchTimeoutMs + " ms");
+            }
+            results.add(result);
+        });
+        return results;
+    }
 
-    // Helper method to extract the previous closing price from the daily time series response
-    private String extractPreviousClosePrice(String dailyData) {
+    private CompletableFuture<QuoteResult> quoteAsync(String symbol) {
         try {
-            // Parse the JSON data
-            ObjectMapper objectMapper = new ObjectMapper();
-            JsonNode rootNode = objectMapper.readTree(dailyData);
-            JsonNode timeSeriesNode = rootNode.path("Time Series (Daily)");
-
-            // Extract the last available day from the time series
-            Iterator<Map.Entry<String, JsonNode>> fields = timeSeriesNode.fields();
-            Map.Entry<String, JsonNode> lastEntry = null;
-            while (fields.hasNext()) {
-                lastEntry = fields.next();  // Get the last entry in the time series
+            return CompletableFuture
+                    .supplyAsync(() -> {
+                        ServedQuote served = quoteOrStale(symbol);
+                        return served.stale() ? QuoteResult.stale(served.quote()) : QuoteResult.ok(served.quote());
+                    }, quoteExecutor)
+                    // A slow symbol only costs its own slot; the fetch keeps running and still warms the cache
+                    .completeOnTimeout(null, batchTimeoutMs, TimeUnit.MILLISECONDS)
+                    .exceptionally(e -> QuoteResult.failed(symbol, QuoteResult.ERROR, errorMessage(symbol, e)));
+        } catch (RejectedExecutionException e) {
+            // Fan-out pool saturated: answer from the cache now rather than fetching on this thread
+            Quote fresh = quoteCache.getIfFresh(symbol);
+            if (fresh != null) {
+                return CompletableFuture.completedFuture(QuoteResult.ok(fresh));
             }
+            Quote lastKnown = quoteCache.getLastKnown(symbol, maxStaleMs);
+            return CompletableFuture.completedFuture(lastKnown != null
+                    ? QuoteResult.stale(lastKnown)
+                    : QuoteResult.failed(symbol, QuoteResult.ERROR, "Too busy to fetch " + symbol + ", try again shortly"));
+        }
+    }
 
-            // Extract the previous closing price
-            if (lastEntry != null) {
-                String previousClosePrice = lastEntry.getValue().path("4. close").asText();
-                return previousClosePrice;
-            } else {
-                return "No previous closing price available.";
+    // Value every holding against live quotes fetched in one concurrent batch
+    public PortfolioValuation getPortfolioValuation(List<StockView> stocks) {
+        Map<String, QuoteResult> quotes = new HashMap<>();
+        for (QuoteResult result : getQuotes(stocks.stream().map(StockView::symbol).toList())) {
+            quotes.put(result.symbol(), result);
+        }
+
+        List<PortfolioValuation.Holding> holdings = new ArrayList<>(stocks.size());
+        double totalCost = 0;
+        double totalValue = 0;
+        int unpriced = 0;
+        for (StockView stock : stocks) {
+            QuoteResult quote = quotes.get(QuoteCache.normalize(stock.symbol()));
+            double cost = stock.price() == null ? 0 : stock.price();
+            int quantity = stock.quantity() == null ? 0 : stock.quantity();
+            Double marketPrice = quote != null && quote.isPriced() ? parsePrice(quote.price()) : null;
+
+            if (marketPrice == null) {
+                unpriced++;
+                boolean failed = quote != null && !quote.isPriced();
+                String status = failed ? quote.status() : QuoteResult.ERROR;
+                String error = failed ? quote.error() : "No usable price for " + stock.symbol();
+                holdings.add(new PortfolioValuation.Holding(stock.symbol(), quantity, cost, status,
+                        quote == null ? null : quote.name(), null, null, null, error));
+                continue;
             }
-        } catch (Exception e) {
-            e.printStackTrace();
-            return "Error parsing daily data";
+
+            double marketValue = marketPrice * quantity;
+            totalCost += cost;
+            totalValue += marketValue;
+            holdings.add(new PortfolioValuation.Holding(stock.symbol(), quantity, cost, quote.status(),
+                    quote.name(), marketPrice, marketValue, marketValue - cost, null));
         }
+        return new PortfolioValuation(holdings, totalCost, totalValue, totalValue - totalCost, unpriced);
+    }
+
+    private static Double parsePrice(String price) {
+        try {
+            return price == null ? null : Double.valueOf(price);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String errorMessage(String symbol, Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        return cause instanceof MarketDataException ? cause.getMessage() : "Error fetching stock data for " + symbol;
     }
 
     // public List<Map<String, String>> searchStocks(String keyword) {
@@ -246,45 +339,33 @@ public class StockService {
     //     return stockList;
     // }
 
+    // Search the local symbol index; Alpha Vantage is only asked when the index has no answer
     public List<Map<String, String>> searchStocks(String keyword) {
+        List<Map<String, String>> localResults = symbolSearchIndex.search(keyword, searchLimit);
+        if (!localResults.isEmpty() || !remoteSearchFallback) {
+            return localResults.isEmpty() && symbolSearchIndex.size() == 0 ? getStaticStockData() : localResults;
+        }
+        return searchStocksRemote(keyword);
+    }
+
+    private List<Map<String, String>> searchStocksRemote(String keyword) {
     List<Map<String, String>> stockList = new ArrayList<>();
     try {
-        // Construct API URL to search for stocks
-        String searchUrl = UriComponentsBuilder.fromHttpUrl(apiUrl)
-                .queryParam("function", "SYMBOL_SEARCH")
-                .queryParam("keywords", keyword)
-                .queryParam("apikey", apiKey)
-                .toUriString();
-
-        // Create RestTemplate instance to make the API call
-        RestTemplate restTemplate = new RestTemplate();
-
-        // Make GET request to Alpha Vantage API
-        ResponseEntity<String> response = restTemplate.getForEntity(searchUrl, String.class);
-
-        // Check if the response is OK
-        if (response.getStatusCode() == HttpStatus.OK) {
-            // Parse the response to extract the stock results
-            ObjectMapper objectMapper = new ObjectMapper();
-            JsonNode rootNode = objectMapper.readTree(response.getBody());
-
-            // Extract the list of matching stocks
-            JsonNode bestMatchesNode = rootNode.path("bestMatches");
-
-            if (bestMatchesNode.isArray() && bestMatchesNode.size() > 0) {
-                for (JsonNode matchNode : bestMatchesNode) {
-                    String symbol = matchNode.path("1. symbol").asText();
-                    String name = matchNode.path("2. name").asText();
-
-                    // Create a map for each stock with symbol and name
-                    Map<String, String> stockInfo = new HashMap<>();
-                    stockInfo.put("symbol", symbol);
-                    stockInfo.put("name", name);
-
-                    // Add map to the list
-                    stockList.add(stockInfo);
-                }
+        List<SymbolMatch> matches = marketDataProvider.search(keyword, UpstreamPriority.SEARCH);
+        if (!matches.isEmpty()) {
+            Map<String, String> learnedNames = new HashMap<>();
+            for (SymbolMatch match : matches) {
+                // Create a map for each stock with symbol and name
+                Map<String, String> stockInfo = new HashMap<>();
+                stockInfo.put("symbol", match.symbol());
+                stockInfo.put("name", match.name());
+
+                // Add map to the list
+                stockList.add(stockInfo);
+                learnedNames.put(match.symbol(), match.name());
             }
+            // Search results double as free symbol-directory entries
+            symbolDirectory.remember(learnedNames);
         }
 
         // If no results are found, provide static fallback data
@@ -339,44 +420,8 @@ public class StockService {
         }
     }
 
+    // Served from the symbol directory; only unknown symbols trigger a SYMBOL_SEARCH call
     private String getStockNameFromSymbol(String ticker) {
-        try {
-            String symbolSearchUrl = UriComponentsBuilder.fromHttpUrl("https://www.alphavantage.co/query")
-                    .queryParam("function", "SYMBOL_SEARCH")
-                    .queryParam("keywords", ticker)
-                    .queryParam("apikey", apiKey)
-                    .toUriString();
-
-            RestTemplate restTemplate = new RestTemplate();
-            ResponseEntity<String> response = restTemplate.getForEntity(symbolSearchUrl, String.class);
-
-            if (response.getStatusCode() == HttpStatus.OK) {
-                // Parse the response to extract the name of the stock
-                String responseBody = response.getBody();
-                String stockName = extractStockNameFromSearchResponse(responseBody);
-                return stockName;
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-
-        return "Unknown Stock";  // Return default value if name cannot be fetched
-    }
-
-    private String extractStockNameFromSearchResponse(String responseBody) {
-        try {
-            ObjectMapper objectMapper = new ObjectMapper();
-            JsonNode rootNode = objectMapper.readTree(responseBody);
-            JsonNode bestMatchNode = rootNode.path("bestMatches");
-
-            if (bestMatchNode.isArray() && bestMatchNode.size() > 0) {
-                // Extract the first match's name (you can refine this based on your needs)
-                JsonNode firstMatch = bestMatchNode.get(0);
-                return firstMatch.path("2. name").asText();
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-        return "Unknown Stock";  // Return default value if name cannot be parsed
+        return symbolDirectory.nameFor(ticker);
     }
 }
@@ -0,0 +1,223 @@
+package com.stocks.service;
+
+import com.stocks.dto.SymbolMatch;
+import com.stocks.entity.SymbolName;
+import com.stocks.repository.SymbolNameRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Symbol to company-name directory.
+ *
+ * Names are persisted in the symbol_directory table and held in memory as an immutable map that is
+ * replaced wholesale on every change, so lookups never lock. The directory is consulted before any
+ * network call; a SYMBOL_SEARCH request is only made the first time an unknown symbol is seen, and a
+ * symbol the search could not resolve is not asked about again until its negative entry expires.
+ * Rows are written with JDBC batch upserts, and a listing refresh also drops delisted symbols.
+ */
+@Service
+public class SymbolDirectory {
+
+    public static final String UNKNOWN_NAME = "Unknown Stock";
+
+    private static final int SAVE_CHUNK_SIZE = 1000;
+
+    private static final String UPSERT_NAME = """
+            INSERT INTO symbol_directory (symbol, name) VALUES (?, ?)
+            ON CONFLICT (symbol) DO UPDATE SET name = EXCLUDED.name
+            """;
+
+    private static final String DELETE_NAME = "DELETE FROM symbol_directory WHERE symbol = ?";
+
+    // Bulk-load the full LISTING_STATUS universe on startup instead of warming lazily
+    @Value("${symbols.directory.load-listing-on-startup:false}")
+    private boolean loadListingOnStartup;
+
+    // How long a symbol SYMBOL_SEARCH could not resolve is answered from memory
+    @Value("${symbols.directory.negative-ttl-ms:3600000}")
+    private long negativeTtlMs;
+
+    @Value("${symbols.directory.max-negative-entries:10000}")
+    private int maxNegativeEntries;
+
+    @Autowired
+    private SymbolNameRepository symbolNameRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MarketDataProvider marketDataProvider;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    private volatile Map<String, String> names = Map.of();
+
+    // Symbols without an exact match -> the name we answered with (best guess or UNKNOWN_NAME)
+    private final Map<String, Miss> misses = new ConcurrentHashMap<>();
+
+    private record Miss(String name, long expiresAt) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        try {
+            Map<String, String> loaded = new HashMap<>();
+            for (SymbolName entry : symbolNameRepository.findAll()) {
+                loaded.put(entry.getSymbol(), entry.getName());
+            }
+            names = Map.copyOf(loaded);
+            if (loadListingOnStartup && loaded.isEmpty() && refreshFromListing() > 0) {
+                return; // already published
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        // Also on failure, so the search index is built at least from its listing file
+        eventPublisher.publishEvent(new RefreshedEvent(names.size()));
+    }
+
+    public Map<String, String> snapshot() {
+        return names;
+    }
+
+    // Company name for a ticker; hits the network only for symbols we have never seen
+    public String nameFor(String ticker) {
+        String symbol = normalize(ticker);
+        String name = names.get(symbol);
+        if (name != null) {
+            return name;
+        }
+        long now = System.currentTimeMillis();
+        Miss miss = misses.get(symbol);
+        if (miss != null && miss.expiresAt() > now) {
+            return miss.name();
+        }
+
+        List<SymbolMatch> bestMatches = searchMatches(symbol);
+        if (bestMatches == null) {
+            // Search failed; try again next time rather than remembering an outage
+            return UNKNOWN_NAME;
+        }
+        for (SymbolMatch match : bestMatches) {
+            if (symbol.equalsIgnoreCase(match.symbol())) {
+                name = match.name();
+                remember(Map.of(symbol, name));
+                misses.remove(symbol);
+                return name;
+            }
+        }
+        // No exact match: keep the old behaviour of taking the first one, but don't persist a guess
+        name = bestMatches.isEmpty() ? UNKNOWN_NAME : bestMatches.get(0).name();
+        rememberMiss(symbol, name, now);
+        return name;
+    }
+
+    // Record symbol/name pairs learned elsewhere (e.g. from search results)
+    public void remember(Map<String, String> entries) {
+        Map<String, String> fresh = new HashMap<>();
+        Map<String, String> current = names;
+        entries.forEach((symbol, name) -> {
+            String key = normalize(symbol);
+            if (name != null && !name.isBlank() && !name.equals(current.get(key))) {
+                fresh.put(key, name);
+            }
+        });
+        if (fresh.isEmpty()) {
+            return;
+        }
+
+        swapIn(fresh);
+        try {
+            upsert(new ArrayList<>(fresh.entrySet()));
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        eventPublisher.publishEvent(new LearnedEvent(Map.copyOf(fresh)));
+    }
+
+    // Reload the whole universe from the market data provider (Alpha Vantage LISTING_STATUS)
+    public int refreshFromListing() {
+        Map<String, String> listing = marketDataProvider.listing();
+        if (listing == null || listing.isEmpty()) {
+            return 0;
+        }
+
+        // The listing is the whole active universe, so it replaces the directory rather than adding to it
+        synchronized (this) {
+            names = Map.copyOf(listing);
+        }
+        misses.clear();
+        upsert(new ArrayList<>(listing.entrySet()));
+        List<String> delisted = jdbcTemplate.queryForList("SELECT symbol FROM symbol_directory", String.class)
+                .stream()
+                .filter(symbol -> !listing.containsKey(symbol))
+                .toList();
+        if (!delisted.isEmpty()) {
+            jdbcTemplate.batchUpdate(DELETE_NAME, delisted, SAVE_CHUNK_SIZE, (ps, symbol) -> ps.setString(1, symbol));
+        }
+        eventPublisher.publishEvent(new RefreshedEvent(listing.size()));
+        return listing.size();
+    }
+
+    // Published when the whole universe is (re)loaded: at startup and on a listing refresh
+    public record RefreshedEvent(int symbolCount) {
+    }
+
+    // Published with just the names learned one at a time (lookups, search results), so dependent indexes
+    // can fold them in without a full rebuild
+    public record LearnedEvent(Map<String, String> entries) {
+    }
+
+    private synchronized void swapIn(Map<String, String> entries) {
+        Map<String, String> next = new HashMap<>(names);
+        next.putAll(entries);
+        names = Map.copyOf(next);
+    }
+
+    // One INSERT ... ON CONFLICT batch per chunk; saveAll with an assigned id would SELECT every row first
+    private void upsert(List<Map.Entry<String, String>> rows) {
+        jdbcTemplate.batchUpdate(UPSERT_NAME, rows, SAVE_CHUNK_SIZE, (ps, row) -> {
+            ps.setString(1, row.getKey());
+            ps.setString(2, row.getValue());
+        });
+    }
+
+    private void rememberMiss(String symbol, String name, long now) {
+        if (misses.size() >= maxNegativeEntries) {
+            misses.values().removeIf(miss -> miss.expiresAt() <= now);
+            if (misses.size() >= maxNegativeEntries) {
+                misses.clear();
+            }
+        }
+        misses.put(symbol, new Miss(name, now + negativeTtlMs));
+    }
+
+    // null when the search itself failed
+    private List<SymbolMatch> searchMatches(String symbol) {
+        try {
+            // Name lookups are a nicety; they give way to quotes when quota is tight
+            return marketDataProvider.search(symbol, UpstreamPriority.SEARCH);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    private static String normalize(String symbol) {
+        return symbol.trim().toUpperCase(Locale.ROOT);
+    }
+}
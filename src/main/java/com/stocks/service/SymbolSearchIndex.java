@@ -0,0 +1,318 @@
+package com.stocks.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stocks.util.CsvUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Local search over the known symbol universe, used by /api/stocks/search instead of a remote
+ * SYMBOL_SEARCH call per keystroke.
+ *
+ * The universe comes from an optional listing file (CSV with symbol,name columns or a JSON array
+ * of {"symbol", "name"} objects) merged with the symbol directory. Each rebuild produces a new
+ * immutable snapshot that is published with a single volatile write, so searches never block.
+ * The listing file is only read when the directory reloads the whole universe; names it learns one
+ * at a time are queued and folded into the last universe by a background merge, so the request that
+ * learned a name never waits for a rebuild.
+ */
+@Component
+public class SymbolSearchIndex {
+
+    // Keep prefix scans for one- or two-letter queries from touching the whole universe
+    private static final int MAX_CANDIDATES = 4096;
+
+    @Value("${symbols.listing.file:}")
+    private String listingFile;
+
+    @Autowired
+    private SymbolDirectory symbolDirectory;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private volatile Snapshot snapshot = Snapshot.build(Map.of());
+
+    // Universe of the current snapshot, guarded by this
+    private Map<String, String> universe = Map.of();
+
+    // Names learned since the last merge
+    private final Map<String, String> learned = new ConcurrentHashMap<>();
+
+    // The directory publishes this once it has loaded at startup and after a listing refresh, so the
+    // index never depends on listener ordering
+    @EventListener(SymbolDirectory.RefreshedEvent.class)
+    public synchronized void onDirectoryRefreshed() {
+        rebuild(symbolDirectory.snapshot());
+    }
+
+    // Runs on the thread that learned the names, so it only queues them
+    @EventListener
+    public void onNamesLearned(SymbolDirectory.LearnedEvent event) {
+        learned.putAll(event.entries());
+    }
+
+    // Folds queued names into the last universe; the listing file is not read again
+    @Scheduled(fixedDelayString = "${symbols.index.merge-interval-ms:1000}")
+    public synchronized void mergeLearned() {
+        if (learned.isEmpty()) {
+            return;
+        }
+        Map<String, String> batch = new HashMap<>(learned);
+        batch.forEach(learned::remove);
+        Map<String, String> next = new HashMap<>(universe);
+        next.putAll(batch);
+        install(next);
+    }
+
+    // Build a fresh snapshot of directory plus listing file off to the side and swap it in atomically
+    public synchronized void rebuild(Map<String, String> directory) {
+        Map<String, String> next = new HashMap<>(directory);
+        if (listingFile != null && !listingFile.isBlank()) {
+            try {
+                next.putAll(loadListing(Path.of(listingFile)));
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        install(next);
+    }
+
+    private void install(Map<String, String> next) {
+        universe = next;
+        snapshot = Snapshot.build(next);
+    }
+
+    public int size() {
+        return snapshot.symbols.length;
+    }
+
+    // Ranked top-K matches as {"symbol", "name"} maps, the shape /api/stocks/search has always returned
+    public List<Map<String, String>> search(String keyword, int limit) {
+        Snapshot current = snapshot;
+        List<Map<String, String>> results = new ArrayList<>();
+        if (keyword == null || keyword.isBlank() || current.symbols.length == 0) {
+            return results;
+        }
+        for (int id : current.topMatches(keyword, limit)) {
+            results.add(Map.of("symbol", current.symbols[id], "name", current.names[id]));
+        }
+        return results;
+    }
+
+    private Map<String, String> loadListing(Path path) throws IOException {
+        Map<String, String> listing = new HashMap<>();
+        if (path.toString().toLowerCase(Locale.ROOT).endsWith(".json")) {
+            for (JsonNode node : objectMapper.readTree(path.toFile())) {
+                String symbol = node.path("symbol").asText("");
+                String name = node.path("name").asText("");
+                if (!symbol.isEmpty() && !name.isEmpty()) {
+                    listing.put(symbol.toUpperCase(Locale.ROOT), name);
+                }
+            }
+            return listing;
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line = reader.readLine(); // header
+            while ((line = reader.readLine()) != null) {
+                List<String> fields = CsvUtils.splitLine(line);
+                if (fields.size() >= 2 && !fields.get(0).isEmpty() && !fields.get(1).isEmpty()) {
+                    listing.put(fields.get(0).toUpperCase(Locale.ROOT), fields.get(1));
+                }
+            }
+        }
+        return listing;
+    }
+
+    /**
+     * Immutable index over one version of the universe.
+     *
+     * Symbols are kept sorted so a prefix maps to one contiguous range found by binary search (a
+     * flattened trie). Company names are split into lower-case word tokens; the sorted token
+     * dictionary is searched the same way and each token points at the ids of the names using it.
+     */
+    static final class Snapshot {
+        final String[] symbols;
+        final String[] names;
+        final String[] tokens;
+        final int[][] postings;
+
+        private Snapshot(String[] symbols, String[] names, String[] tokens, int[][] postings) {
+            this.symbols = symbols;
+            this.names = names;
+            this.tokens = tokens;
+            this.postings = postings;
+        }
+
+        static Snapshot build(Map<String, String> universe) {
+            String[] symbols = universe.keySet().toArray(new String[0]);
+            Arrays.sort(symbols);
+            String[] names = new String[symbols.length];
+
+            TreeMap<String, List<Integer>> tokenIds = new TreeMap<>();
+            for (int id = 0; id < symbols.length; id++) {
+                names[id] = universe.get(symbols[id]);
+                for (String token : tokenize(names[id])) {
+                    List<Integer> ids = tokenIds.computeIfAbsent(token, t -> new ArrayList<>());
+                    if (ids.isEmpty() || ids.get(ids.size() - 1) != id) {
+                        ids.add(id);
+                    }
+                }
+            }
+
+            String[] tokens = tokenIds.keySet().toArray(new String[0]);
+            int[][] postings = new int[tokens.length][];
+            int t = 0;
+            for (List<Integer> ids : tokenIds.values()) {
+                postings[t++] = ids.stream().mapToInt(Integer::intValue).toArray();
+            }
+            return new Snapshot(symbols, names, tokens, postings);
+        }
+
+        // Scores live in primitive arrays indexed by id and only the best `limit` are kept in order, so a
+        // one-letter query touching thousands of names neither boxes nor sorts them all
+        int[] topMatches(String keyword, int limit) {
+            String query = keyword.trim();
+            String symbolQuery = query.toUpperCase(Locale.ROOT);
+            TopK top = new TopK(Math.min(limit, symbols.length));
+
+            // Company-name matches: every query word must prefix-match some word of the name. round[id] is how
+            // many query words the name has matched so far, points[id] its score for them
+            String[] queryTokens = tokenize(query);
+            int[] round = new int[symbols.length];
+            int[] points = new int[symbols.length];
+            int[] current = new int[symbols.length];
+            int[] matched = new int[0];
+            int matchedCount = 0;
+            for (int r = 1; r <= queryTokens.length; r++) {
+                String queryToken = queryTokens[r - 1];
+                int[] hits = new int[Math.max(16, matchedCount)];
+                int hitCount = 0;
+                int start = lowerBound(tokens, queryToken);
+                for (int t = start; t < tokens.length && tokens[t].startsWith(queryToken)
+                        && hitCount < MAX_CANDIDATES; t++) {
+                    // Whole-word hits rank above partial-word hits
+                    int score = tokens[t].length() == queryToken.length() ? 2 : 1;
+                    for (int id : postings[t]) {
+                        if (round[id] == r - 1) {
+                            round[id] = r;
+                            current[id] = score;
+                            if (hitCount == hits.length) {
+                                hits = Arrays.copyOf(hits, hitCount * 2);
+                            }
+                            hits[hitCount++] = id;
+                        } else if (round[id] == r && score > current[id]) {
+                            current[id] = score;
+                        }
+                    }
+                }
+                for (int k = 0; k < hitCount; k++) {
+                    points[hits[k]] += current[hits[k]];
+                }
+                matched = hits;
+                matchedCount = hitCount;
+            }
+            int rounds = queryTokens.length;
+
+            // Symbol prefix matches: exact symbol first, then shorter symbols
+            int from = lowerBound(symbols, symbolQuery);
+            int to = from;
+            for (; to < symbols.length && to - from < MAX_CANDIDATES && symbols[to].startsWith(symbolQuery); to++) {
+                int score = symbols[to].length() == symbolQuery.length()
+                        ? 1000
+                        : 600 - (symbols[to].length() - symbolQuery.length());
+                if (rounds > 0 && round[to] == rounds) {
+                    score = Math.max(score, nameScore(to, points[to], queryTokens[0]));
+                }
+                top.offer(to, score);
+            }
+            for (int k = 0; k < matchedCount; k++) {
+                int id = matched[k];
+                if (id < from || id >= to) {
+                    top.offer(id, nameScore(id, points[id], queryTokens[0]));
+                }
+            }
+            return top.ids();
+        }
+
+        private int nameScore(int id, int points, String firstToken) {
+            int score = 300 + 10 * points - Math.min(names[id].length(), 100) / 10;
+            if (names[id].regionMatches(true, 0, firstToken, 0, firstToken.length())) {
+                score += 50;
+            }
+            return score;
+        }
+
+        // Best ids by score, ties broken by symbol, kept sorted in a small array
+        private final class TopK {
+            private final int[] ids;
+            private final int[] scores;
+            private int size;
+
+            TopK(int capacity) {
+                ids = new int[Math.max(0, capacity)];
+                scores = new int[ids.length];
+            }
+
+            void offer(int id, int score) {
+                if (ids.length == 0 || (size == ids.length && !before(id, score, ids[size - 1], scores[size - 1]))) {
+                    return;
+                }
+                int i = size == ids.length ? size - 1 : size++;
+                while (i > 0 && before(id, score, ids[i - 1], scores[i - 1])) {
+                    ids[i] = ids[i - 1];
+                    scores[i] = scores[i - 1];
+                    i--;
+                }
+                ids[i] = id;
+                scores[i] = score;
+            }
+
+            int[] ids() {
+                return Arrays.copyOf(ids, size);
+            }
+
+            private boolean before(int id, int score, int otherId, int otherScore) {
+                return score != otherScore ? score > otherScore : symbols[id].compareTo(symbols[otherId]) < 0;
+            }
+        }
+
+        private static int lowerBound(String[] sorted, String key) {
+            int low = 0;
+            int high = sorted.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (sorted[mid].compareTo(key) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        private static String[] tokenize(String text) {
+            return Arrays.stream(text.toLowerCase(Locale.ROOT).split("[^\\p{Alnum}]+"))
+                    .filter(token -> !token.isEmpty())
+                    .toArray(String[]::new);
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.stocks.service;
+
+import com.stocks.dto.ImportReport;
+import com.stocks.dto.StockView;
+import com.stocks.entity.TradeEvent;
+import com.stocks.exceptions.ImportAlreadyRunningException;
+import com.stocks.util.PositionBook;
+import com.stocks.util.TradeImportReader;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bulk trade import from broker exports.
+ *
+ * The input is read incrementally and replayed in order into a {@link PositionBook} seeded with the
+ * user's current holdings, so sells are checked against what is held at that point of the import.
+ * Every chunk of trades is written in its own transaction: the ledger events as one JDBC batch, and
+ * per symbol the net change the chunk made to quantity and cost as one batch of upserts, the same
+ * statement a single buy uses. Holdings and ledger therefore agree at every chunk boundary, a failed
+ * import keeps the chunks before it, and concurrent single trades still combine additively.
+ */
+@Service
+public class TradeImportService {
+
+    // Net change per symbol; a new row starts at version 0 like a first buy
+    private static final String UPSERT_DELTA = """
+            INSERT INTO stocks (user_id, symbol, price, quantity, version)
+            VALUES (?, ?, ?, ?, 0)
+            ON CONFLICT (user_id, symbol) DO UPDATE
+            SET quantity = stocks.quantity + EXCLUDED.quantity,
+                price = stocks.price + EXCLUDED.price,
+                version = stocks.version + 1
+            """;
+
+    private static final String DELETE_CLOSED = "DELETE FROM stocks WHERE user_id = ? AND symbol = ? AND quantity <= 0";
+
+    @Value("${imports.chunk-size:5000}")
+    private int chunkSize;
+
+    // Rejected rows beyond this are counted but not described
+    @Value("${imports.max-errors:100}")
+    private int maxErrors;
+
+    @Value("${ledger.batch-size:500}")
+    private int batchSize;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TradeLedger tradeLedger;
+
+    @Autowired
+    private HoldingsCache holdingsCache;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // One import per user at a time: each one replays from the holdings it read when it started
+    private final Set<Long> importing = ConcurrentHashMap.newKeySet();
+
+    public ImportReport importCsv(Long userId, Reader in) {
+        return run(userId, handler -> TradeImportReader.readCsv(in, handler));
+    }
+
+    public ImportReport importJson(Long userId, InputStream in) {
+        return run(userId, handler -> TradeImportReader.readJson(in, handler));
+    }
+
+    private interface Source {
+        void read(TradeImportReader.Handler handler) throws IOException;
+    }
+
+    private ImportReport run(Long userId, Source source) {
+        if (!importing.add(userId)) {
+            throw new ImportAlreadyRunningException("An import is already running for this user");
+        }
+        try {
+            long started = System.nanoTime();
+            Import job = new Import(userId);
+            String failure = null;
+            boolean storageFailed = false;
+            try {
+                try {
+                    source.read(job);
+                } catch (IOException | IllegalArgumentException e) {
+                    failure = "Input unreadable after row " + job.rows + ": " + e.getMessage();
+                }
+                job.flush();
+            } catch (DataAccessException e) {
+                // The failed chunk rolled back; report what the chunks before it committed
+                e.printStackTrace();
+                failure = "Saving failed after " + job.imported + " imported rows: " + e.getMostSpecificCause().getMessage();
+                storageFailed = true;
+                job.rejected = job.committedRejected;
+                job.errors.subList(job.committedErrors, job.errors.size()).clear();
+            }
+
+            long elapsedNanos = System.nanoTime() - started;
+            double rowsPerSecond = elapsedNanos == 0 ? 0 : job.imported * 1e9 / elapsedNanos;
+            return new ImportReport(job.imported, job.rejected, job.errors, job.symbols.size(), job.chunks,
+                    elapsedNanos / 1_000_000, rowsPerSecond, failure, storageFailed);
+        } finally {
+            importing.remove(userId);
+        }
+    }
+
+    private final class Import implements TradeImportReader.Handler {
+
+        private final Long userId;
+        private final PositionBook book = new PositionBook();
+        private final List<TradeLedger.NewTrade> pending = new ArrayList<>();
+        // Position of each symbol touched by the pending chunk as it was before the chunk: {quantity, cost}
+        private final Map<String, double[]> before = new HashMap<>();
+        private final Set<String> symbols = new HashSet<>();
+        private final List<String> errors = new ArrayList<>();
+        private long rows;
+        private long imported;
+        private long rejected;
+        private int chunks;
+        // rejected and errors as of the last committed chunk, so a failed save can be resumed from there
+        private long committedRejected;
+        private int committedErrors;
+
+        Import(Long userId) {
+            this.userId = userId;
+            for (StockView stock : holdingsCache.get(userId)) {
+                book.seed(stock.symbol(), stock.quantity() == null ? 0 : stock.quantity(),
+                        stock.price() == null ? 0 : stock.price());
+            }
+        }
+
+        @Override
+        public void trade(long row, String symbol, boolean buy, int quantity, Double amount, Instant executedAt) {
+            rows = row;
+            PositionBook.Position position = book.positions().get(symbol);
+            if (!buy && (position == null || position.quantity() < quantity)) {
+                reject(row, "sells " + quantity + " " + symbol + " but "
+                        + (position == null ? 0 : position.quantity()) + " are held");
+                return;
+            }
+            before.computeIfAbsent(symbol, s -> position == null
+                    ? new double[] {0, 0}
+                    : new double[] {position.quantity(), position.cost()});
+            if (buy) {
+                book.buy(symbol, quantity, amount);
+            } else {
+                book.sell(symbol, quantity, amount);
+            }
+            pending.add(new TradeLedger.NewTrade(userId, symbol, buy ? TradeEvent.Side.BUY : TradeEvent.Side.SELL,
+                    quantity, amount, executedAt == null ? Instant.now() : executedAt));
+            symbols.add(symbol);
+            if (pending.size() >= chunkSize) {
+                flush();
+            }
+        }
+
+        @Override
+        public void reject(long row, String reason) {
+            rows = row;
+            rejected++;
+            if (errors.size() < maxErrors) {
+                errors.add("row " + row + ": " + reason);
+            }
+        }
+
+        // Commits the pending chunk: its ledger events plus the net change per touched symbol
+        void flush() {
+            if (pending.isEmpty()) {
+                return;
+            }
+            List<Object[]> deltas = new ArrayList<>(before.size());
+            List<Object[]> reduced = new ArrayList<>();
+            for (Map.Entry<String, double[]> entry : before.entrySet()) {
+                PositionBook.Position after = book.positions().get(entry.getKey());
+                int quantity = (after == null ? 0 : after.quantity()) - (int) entry.getValue()[0];
+                double cost = (after == null ? 0 : after.cost()) - entry.getValue()[1];
+                if (quantity != 0 || cost != 0) {
+                    deltas.add(new Object[] {userId, entry.getKey(), cost, quantity});
+                }
+                if (quantity < 0) {
+                    reduced.add(new Object[] {userId, entry.getKey()});
+                }
+            }
+
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                tradeLedger.append(pending);
+                jdbcTemplate.batchUpdate(UPSERT_DELTA, deltas, batchSize, (ps, delta) -> {
+                    ps.setLong(1, (Long) delta[0]);
+                    ps.setString(2, (String) delta[1]);
+                    ps.setDouble(3, (Double) delta[2]);
+                    ps.setInt(4, (Integer) delta[3]);
+                });
+                // Sold out, or below zero if a concurrent sell got there first
+                jdbcTemplate.batchUpdate(DELETE_CLOSED, reduced, batchSize, (ps, key) -> {
+                    ps.setLong(1, (Long) key[0]);
+                    ps.setString(2, (String) key[1]);
+                });
+                holdingsCache.invalidateAfterCommit(userId);
+            });
+            imported += pending.size();
+            chunks++;
+            committedRejected = rejected;
+            committedErrors = errors.size();
+            pending.clear();
+            before.clear();
+        }
+    }
+}
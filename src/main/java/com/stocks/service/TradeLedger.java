@@ -0,0 +1,198 @@
+package com.stocks.service;
+
+import com.stocks.entity.TradeEvent;
+import com.stocks.util.PositionBook;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only trade ledger.
+ *
+ * Every trade is appended to trade_events with batched JDBC inserts. The stocks table remains the
+ * materialized view of open positions and is updated incrementally by the trade statements
+ * themselves; the ledger adds history and lets a user's positions be rebuilt independently.
+ * Periodic snapshots fold the ledger so a rebuild only replays events newer than the last snapshot.
+ */
+@Service
+public class TradeLedger {
+
+    private static final String INSERT_EVENT =
+            "INSERT INTO trade_events (id, user_id, symbol, side, quantity, amount, executed_at) "
+            + "VALUES (nextval('trade_events_seq'), ?, ?, ?, ?, ?, ?)";
+
+    @Value("${ledger.batch-size:500}")
+    private int batchSize;
+
+    // Only users with at least this many events since their last snapshot get a new one
+    @Value("${ledger.snapshot.min-events:100}")
+    private int snapshotMinEvents;
+
+    // Events younger than this are left out of snapshots, so a slow transaction that drew a lower
+    // sequence value but committed later is never skipped by the id cut-off
+    @Value("${ledger.snapshot.settle-ms:60000}")
+    private long snapshotSettleMs;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    public record NewTrade(Long userId, String symbol, TradeEvent.Side side, int quantity, Double amount,
+                           Instant executedAt) {
+
+        public static NewTrade buy(Long userId, String symbol, int quantity, double cost) {
+            return new NewTrade(userId, symbol, TradeEvent.Side.BUY, quantity, cost, Instant.now());
+        }
+
+        public static NewTrade sell(Long userId, String symbol, int quantity, Double proceeds) {
+            return new NewTrade(userId, symbol, TradeEvent.Side.SELL, quantity, proceeds, Instant.now());
+        }
+    }
+
+    // Append in JDBC batches; joins the caller's transaction so the ledger and positions commit together
+    @Transactional
+    public void append(List<NewTrade> trades) {
+        for (int from = 0; from < trades.size(); from += batchSize) {
+            List<NewTrade> chunk = trades.subList(from, Math.min(trades.size(), from + batchSize));
+            jdbcTemplate.batchUpdate(INSERT_EVENT, chunk, chunk.size(), (ps, trade) -> {
+                ps.setLong(1, trade.userId());
+                ps.setString(2, trade.symbol());
+                ps.setString(3, trade.side().name());
+                ps.setInt(4, trade.quantity());
+                if (trade.amount() == null) {
+                    ps.setNull(5, Types.DOUBLE);
+                } else {
+                    ps.setDouble(5, trade.amount());
+                }
+                ps.setTimestamp(6, Timestamp.from(trade.executedAt()));
+            });
+        }
+    }
+
+    // Open positions and realized P&L, from the latest snapshot plus the events after it
+    @Transactional(readOnly = true)
+    public PositionBook rebuild(Long userId) {
+        PositionBook book = new PositionBook();
+        replayInto(book, userId, Long.MAX_VALUE);
+        return book;
+    }
+
+    @Scheduled(fixedDelayString = "${ledger.snapshot.interval-ms:3600000}",
+               initialDelayString = "${ledger.snapshot.interval-ms:3600000}")
+    public void snapshotActiveUsers() {
+        Timestamp settledBefore = new Timestamp(System.currentTimeMillis() - snapshotSettleMs);
+        List<Long> userIds = jdbcTemplate.queryForList(
+                "SELECT e.user_id FROM trade_events e "
+                + "WHERE e.executed_at < ? AND e.id > COALESCE("
+                + "(SELECT MAX(s.last_event_id) FROM ledger_snapshots s WHERE s.user_id = e.user_id), 0) "
+                + "GROUP BY e.user_id HAVING COUNT(*) >= ?",
+                Long.class, settledBefore, snapshotMinEvents);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        for (Long userId : userIds) {
+            try {
+                transaction.executeWithoutResult(status -> snapshot(userId, settledBefore));
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    @Transactional
+    public void snapshot(Long userId, Timestamp settledBefore) {
+        Long lastEventId = jdbcTemplate.queryForObject(
+                "SELECT MAX(id) FROM trade_events WHERE user_id = ? AND executed_at < ?",
+                Long.class, userId, settledBefore);
+        if (lastEventId == null) {
+            return;
+        }
+
+        PositionBook book = new PositionBook();
+        replayInto(book, userId, lastEventId);
+
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(
+                    "INSERT INTO ledger_snapshots (user_id, last_event_id, taken_at, realized) VALUES (?, ?, ?, ?)",
+                    new String[] {"id"});
+            ps.setLong(1, userId);
+            ps.setLong(2, lastEventId);
+            ps.setTimestamp(3, Timestamp.from(Instant.now()));
+            ps.setDouble(4, book.realized());
+            return ps;
+        }, keyHolder);
+        long snapshotId = keyHolder.getKey().longValue();
+
+        List<Map.Entry<String, PositionBook.Position>> positions = new ArrayList<>(book.positions().entrySet());
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO position_snapshots (snapshot_id, symbol, quantity, cost) VALUES (?, ?, ?, ?)",
+                positions, batchSize, (ps, entry) -> {
+                    ps.setLong(1, snapshotId);
+                    ps.setString(2, entry.getKey());
+                    ps.setInt(3, entry.getValue().quantity());
+                    ps.setDouble(4, entry.getValue().cost());
+                });
+
+        // Only the newest snapshot is ever read
+        jdbcTemplate.update("DELETE FROM position_snapshots WHERE snapshot_id IN "
+                + "(SELECT id FROM ledger_snapshots WHERE user_id = ? AND id < ?)", userId, snapshotId);
+        jdbcTemplate.update("DELETE FROM ledger_snapshots WHERE user_id = ? AND id < ?", userId, snapshotId);
+    }
+
+    private void replayInto(PositionBook book, Long userId, long upToEventId) {
+        List<Long> snapshotIds = jdbcTemplate.queryForList(
+                "SELECT id FROM ledger_snapshots WHERE user_id = ? AND last_event_id <= ? "
+                + "ORDER BY last_event_id DESC LIMIT 1",
+                Long.class, userId, upToEventId);
+        long fromEventId = 0;
+        if (!snapshotIds.isEmpty()) {
+            Long snapshotId = snapshotIds.get(0);
+            Map<String, Object> snapshot = jdbcTemplate.queryForMap(
+                    "SELECT last_event_id, realized FROM ledger_snapshots WHERE id = ?", snapshotId);
+            fromEventId = ((Number) snapshot.get("last_event_id")).longValue();
+            if (snapshot.get("realized") instanceof Number realized) {
+                book.seedRealized(realized.doubleValue());
+            }
+            jdbcTemplate.query("SELECT symbol, quantity, cost FROM position_snapshots WHERE snapshot_id = ?",
+                    rs -> {
+                        book.seed(rs.getString(1), rs.getInt(2), rs.getDouble(3));
+                    }, snapshotId);
+        }
+
+        // Streamed row by row in id order; nothing but the book is kept in memory
+        long afterEventId = fromEventId;
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(
+                    "SELECT symbol, side, quantity, amount FROM trade_events "
+                    + "WHERE user_id = ? AND id > ? AND id <= ? ORDER BY id");
+            ps.setFetchSize(batchSize);
+            ps.setLong(1, userId);
+            ps.setLong(2, afterEventId);
+            ps.setLong(3, upToEventId);
+            return ps;
+        }, rs -> {
+            if (TradeEvent.Side.BUY.name().equals(rs.getString(2))) {
+                book.buy(rs.getString(1), rs.getInt(3), rs.getDouble(4));
+            } else {
+                double proceeds = rs.getDouble(4);
+                book.sell(rs.getString(1), rs.getInt(3), rs.wasNull() ? null : proceeds);
+            }
+        });
+    }
+}
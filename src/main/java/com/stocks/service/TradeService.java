@@ -0,0 +1,64 @@
+package com.stocks.service;
+
+import com.stocks.entity.Stock;
+import com.stocks.repository.StockRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Buy and sell paths. Each trade updates the position row with one atomic statement and appends
+ * the matching ledger event in the same transaction; cached holdings (and the analytics built on
+ * them) are invalidated once it commits.
+ */
+@Service
+public class TradeService {
+
+    public enum SellOutcome { SOLD_PART, SOLD_ALL, NOT_HELD, INSUFFICIENT }
+
+    // heldQuantity is only set for INSUFFICIENT
+    public record SellResult(SellOutcome outcome, Integer heldQuantity) {
+    }
+
+    @Autowired
+    private StockRepository stockRepository;
+
+    @Autowired
+    private TradeLedger tradeLedger;
+
+    @Autowired
+    private HoldingsCache holdingsCache;
+
+    @Transactional
+    public Stock buy(Long userId, String ticker, double cost, int quantity) {
+        // One row per (user, symbol) is only guaranteed if "aapl" and "AAPL" land on the same key
+        String symbol = QuoteCache.normalize(ticker);
+        Stock position = stockRepository.upsertBuy(userId, symbol, cost, quantity);
+        tradeLedger.append(List.of(TradeLedger.NewTrade.buy(userId, symbol, quantity, cost)));
+        holdingsCache.invalidateAfterCommit(userId);
+        return position;
+    }
+
+    @Transactional
+    public SellResult sell(Long userId, String ticker, int quantity, Double proceeds) {
+        String symbol = QuoteCache.normalize(ticker);
+        SellOutcome outcome;
+        if (stockRepository.sellPartial(userId, symbol, quantity) == 1) {
+            outcome = SellOutcome.SOLD_PART;
+        } else if (stockRepository.sellAll(userId, symbol, quantity) == 1) {
+            outcome = SellOutcome.SOLD_ALL;
+        } else {
+            // Neither matched: either nothing is held or not enough is
+            Optional<Integer> held = stockRepository.findQuantity(userId, symbol);
+            return held.isEmpty()
+                ? new SellResult(SellOutcome.NOT_HELD, null)
+                : new SellResult(SellOutcome.INSUFFICIENT, held.get());
+        }
+        tradeLedger.append(List.of(TradeLedger.NewTrade.sell(userId, symbol, quantity, proceeds)));
+        holdingsCache.invalidateAfterCommit(userId);
+        return new SellResult(outcome, null);
+    }
+}
@@ -0,0 +1,41 @@
+package com.stocks.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Supplier;
+
+// One circuit breaker per Alpha Vantage function, so a failing intraday feed doesn't block daily or search
+@Component
+public class UpstreamCircuitBreakers {
+
+    private final Map<UpstreamFunction, CircuitBreaker> breakers = new EnumMap<>(UpstreamFunction.class);
+
+    public UpstreamCircuitBreakers(@Value("${market.circuit.failure-threshold:5}") int failureThreshold,
+                                   @Value("${market.circuit.open-ms:30000}") long openMs,
+                                   @Value("${market.circuit.half-open-probes:1}") int halfOpenProbes,
+                                   MeterRegistry meterRegistry) {
+        for (UpstreamFunction function : UpstreamFunction.values()) {
+            String name = function.name().toLowerCase(Locale.ROOT);
+            CircuitBreaker breaker = new CircuitBreaker(name, failureThreshold, openMs, halfOpenProbes);
+            breakers.put(function, breaker);
+            // 0 = closed, 1 = open, 2 = half-open
+            Gauge.builder("market.upstream.circuit.state", breaker, b -> b.state().ordinal())
+                    .tag("function", name)
+                    .register(meterRegistry);
+        }
+    }
+
+    public <T> T call(UpstreamFunction function, Supplier<T> upstreamCall) {
+        return breakers.get(function).call(upstreamCall);
+    }
+
+    public CircuitBreaker.State state(UpstreamFunction function) {
+        return breakers.get(function).state();
+    }
+}
@@ -0,0 +1,8 @@
+package com.stocks.service;
+
+// Alpha Vantage functions that fail independently and so get a circuit breaker each
+public enum UpstreamFunction {
+    INTRADAY,
+    DAILY,
+    SEARCH
+}
@@ -0,0 +1,8 @@
+package com.stocks.service;
+
+// Who is spending upstream quota; earlier constants win when calls compete for it
+public enum UpstreamPriority {
+    INTERACTIVE,
+    SEARCH,
+    BACKGROUND
+}
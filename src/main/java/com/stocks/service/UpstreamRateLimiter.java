@@ -0,0 +1,225 @@
+package com.stocks.service;
+
+import com.stocks.exceptions.MarketDataException;
+import com.stocks.exceptions.UpstreamQuotaException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Client-side budget for Alpha Vantage calls: a token bucket for the per-minute limit plus a daily
+ * counter, shared by every caller.
+ *
+ * Callers queue with a deadline and are served strictly by priority (interactive quote, then
+ * search, then background refresh). Lower classes are shed first: background work is refused once
+ * the minute bucket or the daily quota dips into the reserve kept for users, and when the queue is
+ * full a newcomer displaces the lowest-priority waiter, or is refused if nobody ranks below it.
+ */
+@Component
+public class UpstreamRateLimiter {
+
+    private final double tokensPerMs;
+    private final double bucketCapacity;
+    private final long dailyQuota;
+    private final double interactiveReserve;
+    private final long dailyReserve;
+    private final int maxQueueDepth;
+    private final Map<UpstreamPriority, Long> maxWaitMs = new EnumMap<>(UpstreamPriority.class);
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition tokenAvailable = lock.newCondition();
+    private final int[] waiting = new int[UpstreamPriority.values().length];
+    // Waiters of each class asked to give up their place to a higher-priority newcomer
+    private final int[] displaced = new int[UpstreamPriority.values().length];
+    private final Map<UpstreamPriority, Counter> shed = new EnumMap<>(UpstreamPriority.class);
+
+    // System time in production; tests drive both by hand
+    private final LongSupplier nanoTime;
+    private final Supplier<LocalDate> today;
+
+    private double tokens;
+    private long lastRefillAt;
+    private long usedToday;
+    private LocalDate quotaDay;
+
+    @Autowired
+    public UpstreamRateLimiter(@Value("${alpha.vantage.limit.calls-per-minute:75}") int callsPerMinute,
+                               @Value("${alpha.vantage.limit.calls-per-day:25000}") long callsPerDay,
+                               @Value("${alpha.vantage.limit.interactive-reserve:0.2}") double reserveFraction,
+                               @Value("${alpha.vantage.limit.max-queue:200}") int maxQueueDepth,
+                               @Value("${alpha.vantage.limit.max-wait-ms.interactive:3000}") long interactiveWaitMs,
+                               @Value("${alpha.vantage.limit.max-wait-ms.search:1000}") long searchWaitMs,
+                               @Value("${alpha.vantage.limit.max-wait-ms.background:0}") long backgroundWaitMs,
+                               MeterRegistry meterRegistry) {
+        this(callsPerMinute, callsPerDay, reserveFraction, maxQueueDepth, interactiveWaitMs, searchWaitMs,
+                backgroundWaitMs, meterRegistry, System::nanoTime, () -> LocalDate.now(ZoneOffset.UTC));
+    }
+
+    UpstreamRateLimiter(int callsPerMinute, long callsPerDay, double reserveFraction, int maxQueueDepth,
+                        long interactiveWaitMs, long searchWaitMs, long backgroundWaitMs, MeterRegistry meterRegistry,
+                        LongSupplier nanoTime, Supplier<LocalDate> today) {
+        this.nanoTime = nanoTime;
+        this.today = today;
+        this.tokensPerMs = callsPerMinute / 60_000.0;
+        this.bucketCapacity = callsPerMinute;
+        this.dailyQuota = callsPerDay;
+        this.interactiveReserve = callsPerMinute * reserveFraction;
+        this.dailyReserve = (long) (callsPerDay * reserveFraction);
+        this.maxQueueDepth = maxQueueDepth;
+        this.maxWaitMs.put(UpstreamPriority.INTERACTIVE, interactiveWaitMs);
+        this.maxWaitMs.put(UpstreamPriority.SEARCH, searchWaitMs);
+        this.maxWaitMs.put(UpstreamPriority.BACKGROUND, backgroundWaitMs);
+        this.tokens = bucketCapacity;
+        this.lastRefillAt = nanoTime.getAsLong();
+        this.quotaDay = today.get();
+
+        Gauge.builder("market.upstream.quota.minute.remaining", this, limiter -> limiter.snapshot(() -> limiter.tokens))
+                .register(meterRegistry);
+        Gauge.builder("market.upstream.quota.day.remaining", this,
+                        limiter -> limiter.snapshot(() -> (double) (limiter.dailyQuota - limiter.usedToday)))
+                .register(meterRegistry);
+        for (UpstreamPriority priority : UpstreamPriority.values()) {
+            String tag = priority.name().toLowerCase(Locale.ROOT);
+            Gauge.builder("market.upstream.queue.depth", this,
+                            limiter -> limiter.snapshot(() -> (double) limiter.waiting[priority.ordinal()]))
+                    .tag("priority", tag)
+                    .register(meterRegistry);
+            shed.put(priority, meterRegistry.counter("market.upstream.shed", "priority", tag));
+        }
+    }
+
+    // Block until a call may go out, or throw if it is shed or its deadline passes
+    public void acquire(UpstreamPriority priority) {
+        long deadline = nanoTime.getAsLong() + TimeUnit.MILLISECONDS.toNanos(maxWaitMs.get(priority));
+        lock.lock();
+        try {
+            refill();
+            if (shouldShed(priority)) {
+                throw shedding(priority, "quota reserved for interactive requests");
+            }
+            if (queueDepth() >= maxQueueDepth) {
+                int lowest = lowestWaitingBelow(priority);
+                if (lowest < 0) {
+                    throw shedding(priority, "upstream queue is full");
+                }
+                // Make room by shedding one waiter of the lowest class present
+                displaced[lowest]++;
+                tokenAvailable.signalAll();
+            }
+
+            waiting[priority.ordinal()]++;
+            try {
+                while (true) {
+                    refill();
+                    if (displaced[priority.ordinal()] > 0) {
+                        displaced[priority.ordinal()]--;
+                        throw shedding(priority, "displaced by higher-priority work");
+                    }
+                    if (usedToday >= dailyQuota) {
+                        throw shedding(priority, "daily upstream quota exhausted");
+                    }
+                    if (tokens >= 1 && !higherPriorityWaiting(priority) && !shouldShed(priority)) {
+                        tokens -= 1;
+                        usedToday++;
+                        // Let the next waiter re-check; it may be able to go too
+                        tokenAvailable.signalAll();
+                        return;
+                    }
+                    long remaining = deadline - nanoTime.getAsLong();
+                    if (remaining <= 0) {
+                        throw shedding(priority, "timed out waiting for upstream quota");
+                    }
+                    long untilNextToken = (long) Math.ceil((1 - Math.min(tokens, 1)) / tokensPerMs * 1_000_000);
+                    tokenAvailable.awaitNanos(Math.max(1_000_000, Math.min(remaining, untilNextToken)));
+                }
+            } finally {
+                waiting[priority.ordinal()]--;
+                displaced[priority.ordinal()] = Math.min(displaced[priority.ordinal()], waiting[priority.ordinal()]);
+                tokenAvailable.signalAll();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MarketDataException("Interrupted waiting for upstream quota", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void refill() {
+        long now = nanoTime.getAsLong();
+        tokens = Math.min(bucketCapacity, tokens + (now - lastRefillAt) / 1_000_000.0 * tokensPerMs);
+        lastRefillAt = now;
+
+        LocalDate day = today.get();
+        if (!day.equals(quotaDay)) {
+            quotaDay = day;
+            usedToday = 0;
+        }
+    }
+
+    // Background work never dips into the reserve; search only gives way on the daily quota
+    private boolean shouldShed(UpstreamPriority priority) {
+        long dailyRemaining = dailyQuota - usedToday;
+        return switch (priority) {
+            case INTERACTIVE -> false;
+            case SEARCH -> dailyRemaining <= dailyReserve / 2;
+            case BACKGROUND -> tokens < interactiveReserve + 1 || dailyRemaining <= dailyReserve;
+        };
+    }
+
+    private boolean higherPriorityWaiting(UpstreamPriority priority) {
+        for (int i = 0; i < priority.ordinal(); i++) {
+            if (waiting[i] > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int lowestWaitingBelow(UpstreamPriority priority) {
+        for (int i = waiting.length - 1; i > priority.ordinal(); i--) {
+            if (waiting[i] > displaced[i]) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int queueDepth() {
+        int depth = 0;
+        for (int count : waiting) {
+            depth += count;
+        }
+        return depth;
+    }
+
+    private UpstreamQuotaException shedding(UpstreamPriority priority, String reason) {
+        shed.get(priority).increment();
+        return new UpstreamQuotaException("Upstream call shed (" + priority.name().toLowerCase(Locale.ROOT) + "): " + reason);
+    }
+
+    private double snapshot(DoubleSupplier value) {
+        lock.lock();
+        try {
+            refill();
+            return value.getAsDouble();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -2,14 +2,19 @@ package com.stocks.service;
 
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import javax.crypto.SecretKey;
 
 import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 @Service
 public class UserService {
@@ -17,7 +22,29 @@ public class UserService {
     @Value("${jwt.secret}")
     private String jwtSecret;
 
-    private final BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
+    // Derived from jwtSecret once instead of on every login
+    private SecretKey signingKey;
+
+    // BCrypt log rounds for new hashes; existing hashes keep the cost they were created with
+    @Value("${security.bcrypt.strength:10}")
+    private int bcryptStrength;
+
+    // Bounded pool for the deliberately slow hashing, so it never runs on request threads
+    @Autowired
+    @Qualifier("passwordHashExecutor")
+    private Executor passwordHashExecutor;
+
+    private BCryptPasswordEncoder passwordEncoder;
+
+    // Checked against when the username does not exist, so unknown and known users take as long
+    private String unknownUserHash;
+
+    @PostConstruct
+    void initSigningKey() {
+        signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        passwordEncoder = new BCryptPasswordEncoder(bcryptStrength);
+        unknownUserHash = passwordEncoder.encode("unknown-user");
+    }
 
     // Method to encode password before saving to DB
     public String encodePassword(String password) {
@@ -29,13 +56,29 @@ public class UserService {
         return passwordEncoder.matches(rawPassword, encodedPassword);
     }
 
+    // On the hashing pool; throws RejectedExecutionException right away when its queue is full
+    public CompletableFuture<String> encodePasswordAsync(String password) {
+        return CompletableFuture.supplyAsync(() -> encodePassword(password), passwordHashExecutor);
+    }
+
+    // encodedPassword may be null for an unknown user: the check still costs a hash, and fails
+    public CompletableFuture<Boolean> matchPasswordAsync(String rawPassword, String encodedPassword) {
+        return CompletableFuture.supplyAsync(() -> {
+            if (encodedPassword == null) {
+                matchPassword(rawPassword, unknownUserHash);
+                return false;
+            }
+            return matchPassword(rawPassword, encodedPassword);
+        }, passwordHashExecutor);
+    }
+
     // Method to generate JWT token with user id
     public String generateToken(Long userId) {
         return Jwts.builder()
             .setSubject(String.valueOf(userId))
             .setIssuedAt(new Date())
             .setExpiration(new Date(System.currentTimeMillis() + 86400000))
-            .signWith(Keys.hmacShaKeyFor(jwtSecret.getBytes()))
+            .signWith(signingKey)
             .compact();
     }
 }
\ No newline at end of file
@@ -0,0 +1,281 @@
+package com.stocks.service;
+
+import com.stocks.dto.BarHistory;
+import com.stocks.dto.StockView;
+import com.stocks.dto.ValueAtRiskReport;
+import com.stocks.exceptions.MarketDataException;
+import com.stocks.util.ValueAtRisk;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Historical and Monte Carlo VaR of a user's holdings over the daily closes in the {@link BarStore}.
+ *
+ * Returns are log returns over the dates every included holding has a close for; positions are valued
+ * at their newest stored close. Simulations run on a dedicated fork/join pool, at most
+ * var.max-concurrent-simulations at a time; beyond that a request is refused. The sorted historical and
+ * simulated P&L distributions are cached per portfolio version (the holdings rows, each trade bumping a
+ * row's version or removing it, and each holding's newest stored bar) and horizon, so any confidence, and
+ * any path count up to the one simulated, is a lookup. Concurrent requests for one version share a single
+ * simulation, and the cache is bounded by the number of P&L values it holds.
+ */
+@Service
+public class ValueAtRiskService {
+
+    @Value("${var.lookback-days:252}")
+    private int lookbackDays;
+
+    // Fork/join parallelism of the simulation; 0 uses one worker per core
+    @Value("${var.parallelism:0}")
+    private int parallelism;
+
+    // P&L values kept across all cached distributions
+    @Value("${var.cache.max-values:4000000}")
+    private long maxValues;
+
+    @Value("${var.max-concurrent-simulations:2}")
+    private int maxConcurrentSimulations;
+
+    // Fixed seed, so the same portfolio version always gets the same Monte Carlo figures
+    @Value("${var.seed:42}")
+    private long seed;
+
+    @Autowired
+    private HoldingsCache holdingsCache;
+
+    @Autowired
+    private BarStore barStore;
+
+    private ForkJoinPool pool;
+
+    // version|horizon -> distributions, in access order
+    private final Map<String, Slot> cache = new LinkedHashMap<>(16, 0.75f, true);
+    // Guarded by cache
+    private long retainedValues;
+    private int running;
+
+    // Everything a report needs apart from the confidence; the P&L arrays are sorted ascending and null
+    // when there is too little history to estimate anything
+    private record Distributions(double portfolioValue, int observations, List<String> excluded, String asOfDate,
+                                 double[] historical, double[] simulated) {
+        long weight() {
+            return (historical == null ? 0 : historical.length) + (simulated == null ? 0 : simulated.length);
+        }
+    }
+
+    // One computation of a key, shared by every request that arrives while it runs
+    private static final class Slot {
+        final CompletableFuture<Distributions> result = new CompletableFuture<>();
+        final int paths;
+        // Weight added to retainedValues
+        long accounted;
+
+        Slot(int paths) {
+            this.paths = paths;
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        pool.shutdownNow();
+    }
+
+    // Throws RejectedExecutionException when a simulation is needed and too many are already running
+    public ValueAtRiskReport valueAtRisk(Long userId, double confidence, int horizonDays, int paths) {
+        // Quantity per symbol; case variants of one symbol are the same position
+        Map<String, Integer> quantities = new TreeMap<>();
+        StringBuilder version = new StringBuilder().append(userId).append('|').append(horizonDays);
+        // Ordered by id, so the version string is stable
+        for (StockView stock : holdingsCache.get(userId)) {
+            String symbol = QuoteCache.normalize(stock.symbol());
+            quantities.merge(symbol, stock.quantity() == null ? 0 : stock.quantity(), Integer::sum);
+            version.append('|').append(stock.id()).append(':').append(stock.version());
+            try {
+                // The newest daily bar is rewritten while its session is open, so its close is part of the version
+                BarHistory newest = barStore.range(symbol, BarInterval.DAILY, Long.MIN_VALUE, Long.MAX_VALUE, 1);
+                if (newest.size() > 0) {
+                    version.append(':').append(newest.timestamps()[0]).append(':').append(newest.close()[0]);
+                }
+            } catch (MarketDataException e) {
+                // Not a storable symbol; it is reported as excluded below
+            }
+        }
+        String key = version.toString();
+
+        Slot slot;
+        boolean mine = false;
+        synchronized (cache) {
+            slot = cache.get(key);
+            if (slot == null || slot.paths < paths || slot.result.isCompletedExceptionally()) {
+                if (running >= maxConcurrentSimulations) {
+                    throw new RejectedExecutionException("Too many VaR simulations running");
+                }
+                running++;
+                mine = true;
+                Slot replaced = cache.put(key, slot = new Slot(paths));
+                if (replaced != null) {
+                    retainedValues -= replaced.accounted;
+                }
+            }
+        }
+        if (mine) {
+            try {
+                Distributions computed = compute(quantities, horizonDays, paths);
+                slot.result.complete(computed);
+                account(key, slot, computed.weight());
+            } catch (RuntimeException | Error e) {
+                slot.result.completeExceptionally(e);
+                synchronized (cache) {
+                    cache.remove(key, slot);
+                }
+                throw e;
+            } finally {
+                synchronized (cache) {
+                    running--;
+                }
+            }
+        }
+
+        Distributions distributions;
+        try {
+            distributions = slot.result.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+        return report(distributions, confidence, horizonDays, slot.paths);
+    }
+
+    private static ValueAtRiskReport report(Distributions d, double confidence, int horizonDays, int paths) {
+        if (d.simulated() == null) {
+            return new ValueAtRiskReport(d.portfolioValue(), confidence, horizonDays, d.observations(), 0,
+                    null, null, null, null, d.excluded(), d.asOfDate());
+        }
+        ValueAtRisk.Estimate historical = ValueAtRisk.tailOfSorted(d.historical(), confidence);
+        ValueAtRisk.Estimate simulated = ValueAtRisk.tailOfSorted(d.simulated(), confidence);
+        return new ValueAtRiskReport(d.portfolioValue(), confidence, horizonDays, d.observations(), paths,
+                historical.var(), historical.cvar(), simulated.var(), simulated.cvar(), d.excluded(), d.asOfDate());
+    }
+
+    // Drops least recently used distributions until the total fits; the one just computed is kept even if
+    // it alone is over budget
+    private void account(String key, Slot slot, long weight) {
+        synchronized (cache) {
+            if (cache.get(key) != slot) {
+                return; // replaced while we were computing; nothing of it is counted
+            }
+            retainedValues += weight;
+            slot.accounted = weight;
+            Iterator<Map.Entry<String, Slot>> eldest = cache.entrySet().iterator();
+            while (retainedValues > maxValues && eldest.hasNext()) {
+                Slot entry = eldest.next().getValue();
+                // In-flight entries weigh nothing yet and keep their waiters' computation shared
+                if (entry != slot && entry.result.isDone()) {
+                    retainedValues -= entry.accounted;
+                    eldest.remove();
+                }
+            }
+        }
+    }
+
+    // Package-private for tests
+    long retainedValues() {
+        synchronized (cache) {
+            return retainedValues;
+        }
+    }
+
+    private Distributions compute(Map<String, Integer> quantities, int horizonDays, int paths) {
+        List<String> symbols = new ArrayList<>();
+        List<String> excluded = new ArrayList<>();
+        List<BarHistory> series = new ArrayList<>();
+        for (Map.Entry<String, Integer> holding : quantities.entrySet()) {
+            BarHistory bars = null;
+            try {
+                bars = barStore.range(holding.getKey(), BarInterval.DAILY, Long.MIN_VALUE, Long.MAX_VALUE, lookbackDays + 1);
+            } catch (MarketDataException e) {
+                // Left out below
+            }
+            if (holding.getValue() <= 0 || bars == null || bars.size() < 2) {
+                excluded.add(holding.getKey());
+                continue;
+            }
+            symbols.add(holding.getKey());
+            series.add(bars);
+        }
+
+        int n = symbols.size();
+        double[] exposure = new double[n];
+        double portfolioValue = 0;
+        long asOf = Long.MIN_VALUE;
+        for (int i = 0; i < n; i++) {
+            BarHistory bars = series.get(i);
+            exposure[i] = quantities.get(symbols.get(i)) * bars.close()[bars.size() - 1];
+            portfolioValue += exposure[i];
+            asOf = Math.max(asOf, bars.timestamps()[bars.size() - 1]);
+        }
+
+        double[][] returns = alignedLogReturns(series);
+        int observations = n == 0 ? 0 : returns[0].length;
+        String asOfDate = asOf == Long.MIN_VALUE ? null : LocalDate.ofEpochDay(Math.floorDiv(asOf, 86_400L)).toString();
+        if (observations < 2 || observations < horizonDays + 1) {
+            return new Distributions(portfolioValue, observations, excluded, asOfDate, null, null);
+        }
+
+        double[] historical = ValueAtRisk.historicalPnl(returns, exposure, horizonDays);
+        double[] mean = ValueAtRisk.mean(returns);
+        double[] cholesky = ValueAtRisk.cholesky(ValueAtRisk.covariance(returns, mean), n);
+        double[] simulated = ValueAtRisk.simulatePnl(mean, cholesky, exposure, horizonDays, paths, seed, pool);
+        Arrays.sort(historical);
+        Arrays.sort(simulated);
+        return new Distributions(portfolioValue, observations, excluded, asOfDate, historical, simulated);
+    }
+
+    // Log returns[asset][day] between consecutive dates on which every series has a bar
+    private static double[][] alignedLogReturns(List<BarHistory> series) {
+        int n = series.size();
+        if (n == 0) {
+            return new double[0][0];
+        }
+        long[] dates = series.get(0).timestamps();
+        for (int i = 1; i < n; i++) {
+            long[] other = series.get(i).timestamps();
+            dates = Arrays.stream(dates).filter(date -> Arrays.binarySearch(other, date) >= 0).toArray();
+        }
+        if (dates.length < 2) {
+            return new double[n][0];
+        }
+        int days = dates.length - 1;
+        double[][] returns = new double[n][days];
+        for (int i = 0; i < n; i++) {
+            BarHistory bars = series.get(i);
+            double previous = bars.close()[Arrays.binarySearch(bars.timestamps(), dates[0])];
+            for (int d = 0; d < days; d++) {
+                double close = bars.close()[Arrays.binarySearch(bars.timestamps(), dates[d + 1])];
+                returns[i][d] = previous > 0 && close > 0 ? Math.log(close / previous) : 0;
+                previous = close;
+            }
+        }
+        return returns;
+    }
+}
@@ -0,0 +1,93 @@
+package com.stocks.service;
+
+import com.stocks.dto.Quote;
+import com.stocks.dto.SymbolMatch;
+import com.stocks.exceptions.MarketDataException;
+import com.stocks.util.TimeSeriesBars;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import yahoofinance.Stock;
+import yahoofinance.YahooFinance;
+import yahoofinance.histquotes.HistoricalQuote;
+import yahoofinance.histquotes.Interval;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Yahoo Finance through the YahooFinanceAPI library. Yahoo has no keyword search endpoint there, so
+ * search only resolves an exact symbol. Calls share the circuit breakers but not the Alpha Vantage quota.
+ */
+@Component
+@ConditionalOnProperty(name = "market.data.provider", havingValue = "yahoo")
+public class YahooFinanceProvider implements MarketDataProvider {
+
+    @Autowired
+    private UpstreamCircuitBreakers circuitBreakers;
+
+    @Override
+    public Quote latestQuote(String symbol, UpstreamPriority priority) {
+        return circuitBreakers.call(UpstreamFunction.INTRADAY, () -> {
+            Stock stock = fetch(symbol);
+            BigDecimal price = stock == null || stock.getQuote() == null ? null : stock.getQuote().getPrice();
+            if (price == null) {
+                throw new MarketDataException("No market data available for " + symbol);
+            }
+            return new Quote(symbol, stock.getName(), price.toPlainString(), System.currentTimeMillis());
+        });
+    }
+
+    // The library only offers daily (or coarser) history
+    @Override
+    public TimeSeriesBars history(String symbol, BarInterval interval, int maxBars, UpstreamPriority priority) {
+        TimeSeriesBars bars = new TimeSeriesBars(maxBars);
+        if (interval != BarInterval.DAILY) {
+            return bars;
+        }
+        return circuitBreakers.call(UpstreamFunction.DAILY, () -> {
+            Calendar from = Calendar.getInstance();
+            // Trading days run about 252 a year; ask for enough calendar days to cover maxBars
+            from.add(Calendar.DAY_OF_YEAR, -(maxBars * 365 / 252 + 7));
+            try {
+                for (HistoricalQuote bar : YahooFinance.get(symbol, from, Interval.DAILY).getHistory()) {
+                    if (bar.getClose() == null) {
+                        continue;
+                    }
+                    bars.offer(String.format(Locale.ROOT, "%tF", bar.getDate()),
+                            toDouble(bar.getOpen()), toDouble(bar.getHigh()), toDouble(bar.getLow()),
+                            bar.getClose().doubleValue(), bar.getVolume() == null ? 0 : bar.getVolume());
+                }
+            } catch (IOException e) {
+                throw new MarketDataException("Error fetching history for " + symbol, e);
+            }
+            return bars;
+        });
+    }
+
+    @Override
+    public List<SymbolMatch> search(String keywords, UpstreamPriority priority) {
+        return circuitBreakers.call(UpstreamFunction.SEARCH, () -> {
+            Stock stock = fetch(keywords.trim());
+            if (stock == null || !stock.isValid()) {
+                return List.of();
+            }
+            return List.of(new SymbolMatch(stock.getSymbol(), stock.getName()));
+        });
+    }
+
+    private static double toDouble(BigDecimal value) {
+        return value == null ? Double.NaN : value.doubleValue();
+    }
+
+    private static Stock fetch(String symbol) {
+        try {
+            return YahooFinance.get(symbol);
+        } catch (IOException e) {
+            throw new MarketDataException("Error fetching stock data for " + symbol, e);
+        }
+    }
+}
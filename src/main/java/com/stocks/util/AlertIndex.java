@@ -0,0 +1,270 @@
+package com.stocks.util;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongConsumer;
+import java.util.function.LongPredicate;
+
+/**
+ * Active price alerts per symbol, indexed by threshold so a tick only touches the alerts it crosses.
+ *
+ * Each symbol has two binary heaps over primitive arrays: thresholds to rise to (lowest on top) and
+ * thresholds to fall to (highest on top). A tick pops from each heap while its top is crossed, so a
+ * tick that fires nothing costs two comparisons and one firing k alerts O(k log n). An alert with both
+ * bounds (a percent move) sits in both heaps and fires once, on whichever is crossed first. Removal is
+ * lazy: removed entries are skipped when they surface and the heaps are compacted once they make up
+ * half of them.
+ */
+public final class AlertIndex {
+
+    private final Map<String, Book> books = new ConcurrentHashMap<>();
+
+    // above / below are the prices at or beyond which the alert fires; NaN leaves that side open
+    public void add(String symbol, long id, double above, double below) {
+        books.compute(symbol, (s, book) -> {
+            Book target = book == null ? new Book() : book;
+            target.add(id, above, below);
+            return target;
+        });
+    }
+
+    public void remove(String symbol, long id) {
+        books.computeIfPresent(symbol, (s, book) -> {
+            book.remove(id);
+            return book.isEmpty() ? null : book;
+        });
+    }
+
+    // Removes the alerts this price crosses and passes each id to fired; returns how many fired
+    public int match(String symbol, double price, LongConsumer fired) {
+        Book book = books.get(symbol);
+        if (book == null || Double.isNaN(price)) {
+            return 0;
+        }
+        int count = book.match(price, fired);
+        if (count > 0) {
+            books.computeIfPresent(symbol, (s, current) -> current.isEmpty() ? null : current);
+        }
+        return count;
+    }
+
+    public Set<String> symbols() {
+        return books.keySet();
+    }
+
+    // Active alerts, counting removed ones not yet compacted away
+    public long size() {
+        long size = 0;
+        for (Book book : books.values()) {
+            size += book.size();
+        }
+        return size;
+    }
+
+    public void clear() {
+        books.clear();
+    }
+
+    private static final class Book {
+        private final Heap above = new Heap(false);
+        private final Heap below = new Heap(true);
+        // Alerts present in both heaps
+        private final Set<Long> twoSided = new HashSet<>();
+        // Heap entries to drop when they surface, per id
+        private final Map<Long, Integer> dead = new HashMap<>();
+        private int deadEntries;
+
+        synchronized void add(long id, double abovePrice, double belowPrice) {
+            boolean hasAbove = !Double.isNaN(abovePrice);
+            boolean hasBelow = !Double.isNaN(belowPrice);
+            if (hasAbove) {
+                above.push(abovePrice, id);
+            }
+            if (hasBelow) {
+                below.push(belowPrice, id);
+            }
+            if (hasAbove && hasBelow) {
+                twoSided.add(id);
+            }
+        }
+
+        synchronized void remove(long id) {
+            bury(id, twoSided.remove(id) ? 2 : 1);
+            compactIfMostlyDead();
+        }
+
+        synchronized int match(double price, LongConsumer fired) {
+            int count = 0;
+            while (above.size() > 0 && above.topKey() <= price) {
+                count += fire(above.pop(), fired);
+            }
+            while (below.size() > 0 && below.topKey() >= price) {
+                count += fire(below.pop(), fired);
+            }
+            if (count > 0) {
+                // A fired two-sided alert leaves its other entry behind
+                compactIfMostlyDead();
+            }
+            return count;
+        }
+
+        synchronized boolean isEmpty() {
+            if (deadEntries > 0 && deadEntries >= above.size() + below.size()) {
+                // Tombstones can outlive their entries (removed while firing), so only trust the heaps
+                compact();
+            }
+            return above.size() + below.size() == 0;
+        }
+
+        synchronized int size() {
+            return Math.max(0, above.size() + below.size() - twoSided.size() - deadEntries);
+        }
+
+        private int fire(long id, LongConsumer fired) {
+            if (unbury(id)) {
+                return 0;
+            }
+            if (twoSided.remove(id)) {
+                // Its entry on the other side must not fire again
+                bury(id, 1);
+            }
+            fired.accept(id);
+            return 1;
+        }
+
+        private void bury(long id, int entries) {
+            dead.merge(id, entries, Integer::sum);
+            deadEntries += entries;
+        }
+
+        // True if this entry was removed, consuming one of its tombstones
+        private boolean unbury(long id) {
+            Integer remaining = dead.get(id);
+            if (remaining == null) {
+                return false;
+            }
+            if (remaining == 1) {
+                dead.remove(id);
+            } else {
+                dead.put(id, remaining - 1);
+            }
+            deadEntries--;
+            return true;
+        }
+
+        private void compactIfMostlyDead() {
+            if (deadEntries > 64 && deadEntries * 2 > above.size() + below.size()) {
+                compact();
+            }
+        }
+
+        // Drops every removed entry; tombstones for ids no longer in either heap go with them
+        private void compact() {
+            above.removeIf(dead::containsKey);
+            below.removeIf(dead::containsKey);
+            dead.clear();
+            deadEntries = 0;
+        }
+    }
+
+    // Binary heap of (price, id) pairs in parallel primitive arrays
+    private static final class Heap {
+        private final boolean max;
+        private double[] keys = new double[4];
+        private long[] ids = new long[4];
+        private int size;
+
+        Heap(boolean max) {
+            this.max = max;
+        }
+
+        int size() {
+            return size;
+        }
+
+        double topKey() {
+            return keys[0];
+        }
+
+        void push(double key, long id) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            keys[size] = key;
+            ids[size] = id;
+            siftUp(size++);
+        }
+
+        long pop() {
+            long id = ids[0];
+            size--;
+            keys[0] = keys[size];
+            ids[0] = ids[size];
+            if (size > 0) {
+                siftDown(0);
+            }
+            return id;
+        }
+
+        void removeIf(LongPredicate removed) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                if (!removed.test(ids[i])) {
+                    keys[kept] = keys[i];
+                    ids[kept] = ids[i];
+                    kept++;
+                }
+            }
+            size = kept;
+            for (int i = size / 2 - 1; i >= 0; i--) {
+                siftDown(i);
+            }
+        }
+
+        // True if a belongs above b
+        private boolean before(double a, double b) {
+            return max ? a > b : a < b;
+        }
+
+        private void siftUp(int i) {
+            double key = keys[i];
+            long id = ids[i];
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!before(key, keys[parent])) {
+                    break;
+                }
+                keys[i] = keys[parent];
+                ids[i] = ids[parent];
+                i = parent;
+            }
+            keys[i] = key;
+            ids[i] = id;
+        }
+
+        private void siftDown(int i) {
+            double key = keys[i];
+            long id = ids[i];
+            int half = size >>> 1;
+            while (i < half) {
+                int child = 2 * i + 1;
+                if (child + 1 < size && before(keys[child + 1], keys[child])) {
+                    child++;
+                }
+                if (!before(keys[child], key)) {
+                    break;
+                }
+                keys[i] = keys[child];
+                ids[i] = ids[child];
+                i = child;
+            }
+            keys[i] = key;
+            ids[i] = id;
+        }
+    }
+}
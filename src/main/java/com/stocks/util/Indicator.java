@@ -0,0 +1,381 @@
+package com.stocks.util;
+
+import java.util.Locale;
+
+/**
+ * Streaming technical indicator. Each {@link #update} advances the indicator by one bar in O(1) and
+ * writes one value per output; values are NaN until the indicator has seen enough bars. Running a
+ * whole series is one pass over primitive arrays with no allocation, and the same state can keep
+ * going as new bars arrive. {@link #copy()} lets a caller evaluate a bar that may still change (the
+ * current session's) without committing it.
+ */
+public abstract class Indicator {
+
+    // Output names, e.g. {"macd", "macdSignal", "macdHistogram"}
+    public abstract String[] outputs();
+
+    // Advance by one bar; out[k][index] receives output k
+    public abstract void update(long timestamp, double high, double low, double close, double volume,
+                                double[][] out, int index);
+
+    public abstract Indicator copy();
+
+    // Doubles kept as state (moving windows), for callers that budget memory by values held
+    public int stateSize() {
+        return 0;
+    }
+
+    // Runs the indicator over bars [from, to) of the arrays
+    public void run(long[] timestamp, double[] high, double[] low, double[] close, long[] volume,
+                    int from, int to, double[][] out, int outOffset) {
+        for (int i = from; i < to; i++) {
+            update(timestamp[i], high[i], low[i], close[i], volume[i], out, outOffset + i - from);
+        }
+    }
+
+    /*
+     * "sma:20", "ema:50", "rsi:14", "macd:12:26:9", "bb:20:2", "vwap" (session) or "vwap:20" (rolling).
+     * Throws IllegalArgumentException for anything else.
+     */
+    public static Indicator parse(String spec) {
+        String[] parts = spec.trim().toLowerCase(Locale.ROOT).split(":");
+        try {
+            return switch (parts[0]) {
+                case "sma" -> new Sma(period(parts, 1, 20));
+                case "ema" -> new Ema(period(parts, 1, 20));
+                case "rsi" -> new Rsi(period(parts, 1, 14));
+                case "macd" -> new Macd(period(parts, 1, 12), period(parts, 2, 26), period(parts, 3, 9));
+                case "bb", "bollinger" -> new Bollinger(period(parts, 1, 20),
+                        parts.length > 2 ? Double.parseDouble(parts[2]) : 2.0);
+                case "vwap" -> new Vwap(parts.length > 1 ? period(parts, 1, 0) : 0);
+                default -> throw new IllegalArgumentException("Unknown indicator " + spec);
+            };
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Bad indicator parameters in " + spec);
+        }
+    }
+
+    private static int period(String[] parts, int index, int fallback) {
+        if (parts.length <= index) {
+            return fallback;
+        }
+        int value = Integer.parseInt(parts[index]);
+        if (value <= 0 || value > 10_000) {
+            throw new IllegalArgumentException("Indicator period out of range: " + value);
+        }
+        return value;
+    }
+
+    // Simple moving average over a ring buffer with a running sum
+    public static final class Sma extends Indicator {
+        private final double[] window;
+        private double sum;
+        private int count;
+        private int next;
+
+        public Sma(int period) {
+            this.window = new double[period];
+        }
+
+        @Override
+        public String[] outputs() {
+            return new String[] {"sma" + window.length};
+        }
+
+        @Override
+        public void update(long timestamp, double high, double low, double close, double volume, double[][] out, int index) {
+            out[0][index] = next(close);
+        }
+
+        double next(double value) {
+            sum += value - window[next];
+            window[next] = value;
+            next = next + 1 == window.length ? 0 : next + 1;
+            if (count < window.length) {
+                count++;
+            }
+            return count < window.length ? Double.NaN : sum / window.length;
+        }
+
+        @Override
+        public int stateSize() {
+            return window.length;
+        }
+
+        @Override
+        public Sma copy() {
+            Sma copy = new Sma(window.length);
+            System.arraycopy(window, 0, copy.window, 0, window.length);
+            copy.sum = sum;
+            copy.count = count;
+            copy.next = next;
+            return copy;
+        }
+    }
+
+    // Exponential moving average, seeded with the SMA of the first period values
+    public static final class Ema extends Indicator {
+        private final int period;
+        private final double alpha;
+        private double value;
+        private int count;
+
+        public Ema(int period) {
+            this.period = period;
+            this.alpha = 2.0 / (period + 1);
+        }
+
+        @Override
+        public String[] outputs() {
+            return new String[] {"ema" + period};
+        }
+
+        @Override
+        public void update(long timestamp, double high, double low, double close, double volume, double[][] out, int index) {
+            out[0][index] = next(close);
+        }
+
+        double next(double input) {
+            if (count < period) {
+                value += input;
+                count++;
+                if (count < period) {
+                    return Double.NaN;
+                }
+                value /= period;
+                return value;
+            }
+            value += alpha * (input - value);
+            return value;
+        }
+
+        @Override
+        public Ema copy() {
+            Ema copy = new Ema(period);
+            copy.value = value;
+            copy.count = count;
+            return copy;
+        }
+    }
+
+    // Wilder's relative strength index
+    public static final class Rsi extends Indicator {
+        private final int period;
+        private double previous;
+        private double avgGain;
+        private double avgLoss;
+        private int count;
+
+        public Rsi(int period) {
+            this.period = period;
+        }
+
+        @Override
+        public String[] outputs() {
+            return new String[] {"rsi" + period};
+        }
+
+        @Override
+        public void update(long timestamp, double high, double low, double close, double volume, double[][] out, int index) {
+            double change = count == 0 ? 0 : close - previous;
+            previous = close;
+            count++;
+            double gain = Math.max(change, 0);
+            double loss = Math.max(-change, 0);
+            if (count <= period + 1) {
+                // The first period changes are averaged plainly
+                if (count > 1) {
+                    avgGain += gain / period;
+                    avgLoss += loss / period;
+                }
+                if (count <= period) {
+                    out[0][index] = Double.NaN;
+                    return;
+                }
+            } else {
+                avgGain = (avgGain * (period - 1) + gain) / period;
+                avgLoss = (avgLoss * (period - 1) + loss) / period;
+            }
+            out[0][index] = avgLoss == 0 ? (avgGain == 0 ? 50 : 100) : 100 - 100 / (1 + avgGain / avgLoss);
+        }
+
+        @Override
+        public Rsi copy() {
+            Rsi copy = new Rsi(period);
+            copy.previous = previous;
+            copy.avgGain = avgGain;
+            copy.avgLoss = avgLoss;
+            copy.count = count;
+            return copy;
+        }
+    }
+
+    // MACD line (fast EMA - slow EMA), its signal EMA and the histogram
+    public static final class Macd extends Indicator {
+        private final Ema fast;
+        private final Ema slow;
+        private final Ema signal;
+
+        public Macd(int fast, int slow, int signal) {
+            this(new Ema(fast), new Ema(slow), new Ema(signal));
+        }
+
+        private Macd(Ema fast, Ema slow, Ema signal) {
+            this.fast = fast;
+            this.slow = slow;
+            this.signal = signal;
+        }
+
+        @Override
+        public String[] outputs() {
+            return new String[] {"macd", "macdSignal", "macdHistogram"};
+        }
+
+        @Override
+        public void update(long timestamp, double high, double low, double close, double volume, double[][] out, int index) {
+            double macd = fast.next(close) - slow.next(close);
+            double signalValue = Double.isNaN(macd) ? Double.NaN : signal.next(macd);
+            out[0][index] = macd;
+            out[1][index] = signalValue;
+            out[2][index] = macd - signalValue;
+        }
+
+        @Override
+        public Macd copy() {
+            return new Macd(fast.copy(), slow.copy(), signal.copy());
+        }
+    }
+
+    // Bollinger bands: SMA +/- k population standard deviations, from running sum and sum of squares
+    public static final class Bollinger extends Indicator {
+        private final double[] window;
+        private final double k;
+        private double sum;
+        private double sumSquares;
+        private int count;
+        private int next;
+
+        public Bollinger(int period, double k) {
+            this.window = new double[period];
+            this.k = k;
+        }
+
+        @Override
+        public String[] outputs() {
+            return new String[] {"bbMiddle", "bbUpper", "bbLower"};
+        }
+
+        @Override
+        public void update(long timestamp, double high, double low, double close, double volume, double[][] out, int index) {
+            double evicted = window[next];
+            sum += close - evicted;
+            sumSquares += close * close - evicted * evicted;
+            window[next] = close;
+            next = next + 1 == window.length ? 0 : next + 1;
+            if (count < window.length) {
+                count++;
+            }
+            if (count < window.length) {
+                out[0][index] = Double.NaN;
+                out[1][index] = Double.NaN;
+                out[2][index] = Double.NaN;
+                return;
+            }
+            double mean = sum / window.length;
+            // Rounding can push the running variance a hair below zero
+            double deviation = Math.sqrt(Math.max(0, sumSquares / window.length - mean * mean));
+            out[0][index] = mean;
+            out[1][index] = mean + k * deviation;
+            out[2][index] = mean - k * deviation;
+        }
+
+        @Override
+        public int stateSize() {
+            return window.length;
+        }
+
+        @Override
+        public Bollinger copy() {
+            Bollinger copy = new Bollinger(window.length, k);
+            System.arraycopy(window, 0, copy.window, 0, window.length);
+            copy.sum = sum;
+            copy.sumSquares = sumSquares;
+            copy.count = count;
+            copy.next = next;
+            return copy;
+        }
+    }
+
+    /*
+     * Volume-weighted average of the typical price (h + l + c) / 3. With period 0 it is the session VWAP,
+     * reset whenever the bar's day changes (for intraday bars); otherwise a rolling window of period bars.
+     */
+    public static final class Vwap extends Indicator {
+        private final int period;
+        private final double[] priceVolume;
+        private final double[] volumes;
+        private double sumPriceVolume;
+        private double sumVolume;
+        private long day = Long.MIN_VALUE;
+        private int count;
+        private int next;
+
+        public Vwap(int period) {
+            this.period = period;
+            this.priceVolume = new double[Math.max(period, 1)];
+            this.volumes = new double[Math.max(period, 1)];
+        }
+
+        @Override
+        public String[] outputs() {
+            return new String[] {period == 0 ? "vwap" : "vwap" + period};
+        }
+
+        @Override
+        public void update(long timestamp, double high, double low, double close, double volume, double[][] out, int index) {
+            double typical = (high + low + close) / 3;
+            if (period == 0) {
+                long barDay = Math.floorDiv(timestamp, 86_400L);
+                if (barDay != day) {
+                    day = barDay;
+                    sumPriceVolume = 0;
+                    sumVolume = 0;
+                }
+                sumPriceVolume += typical * volume;
+                sumVolume += volume;
+            } else {
+                sumPriceVolume += typical * volume - priceVolume[next];
+                sumVolume += volume - volumes[next];
+                priceVolume[next] = typical * volume;
+                volumes[next] = volume;
+                next = next + 1 == period ? 0 : next + 1;
+                if (count < period) {
+                    count++;
+                }
+                if (count < period) {
+                    out[0][index] = Double.NaN;
+                    return;
+                }
+            }
+            out[0][index] = sumVolume == 0 ? typical : sumPriceVolume / sumVolume;
+        }
+
+        @Override
+        public int stateSize() {
+            return priceVolume.length + volumes.length;
+        }
+
+        @Override
+        public Vwap copy() {
+            Vwap copy = new Vwap(period);
+            System.arraycopy(priceVolume, 0, copy.priceVolume, 0, priceVolume.length);
+            System.arraycopy(volumes, 0, copy.volumes, 0, volumes.length);
+            copy.sumPriceVolume = sumPriceVolume;
+            copy.sumVolume = sumVolume;
+            copy.day = day;
+            copy.count = count;
+            copy.next = next;
+            return copy;
+        }
+    }
+}
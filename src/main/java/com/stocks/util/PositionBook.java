@@ -0,0 +1,76 @@
+package com.stocks.util;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Folds ledger events into open positions (quantity and total cost per symbol), the same
+ * arithmetic the stocks table applies on each trade: buys add their cost, sells remove cost at the
+ * position's average price. Sells that recorded their proceeds also add proceeds minus the cost
+ * removed to the realized P&L.
+ */
+public final class PositionBook {
+
+    public static final class Position {
+        private int quantity;
+        private double cost;
+
+        public int quantity() {
+            return quantity;
+        }
+
+        public double cost() {
+            return cost;
+        }
+    }
+
+    private final Map<String, Position> positions = new HashMap<>();
+    private double realized;
+
+    public void seed(String symbol, int quantity, double cost) {
+        Position position = positions.computeIfAbsent(symbol, s -> new Position());
+        position.quantity = quantity;
+        position.cost = cost;
+    }
+
+    public void buy(String symbol, int quantity, double cost) {
+        Position position = positions.computeIfAbsent(symbol, s -> new Position());
+        position.quantity += quantity;
+        position.cost += cost;
+    }
+
+    public void seedRealized(double realized) {
+        this.realized = realized;
+    }
+
+    public void sell(String symbol, int quantity) {
+        sell(symbol, quantity, null);
+    }
+
+    // proceeds may be null for sells recorded without a price; they leave realized P&L unchanged
+    public void sell(String symbol, int quantity, Double proceeds) {
+        Position position = positions.get(symbol);
+        if (position == null || position.quantity <= 0) {
+            return;
+        }
+        int sold = Math.min(quantity, position.quantity);
+        double removed = sold == position.quantity ? position.cost : position.cost / position.quantity * sold;
+        if (proceeds != null) {
+            realized += proceeds - removed;
+        }
+        if (sold == position.quantity) {
+            positions.remove(symbol);
+            return;
+        }
+        position.cost -= removed;
+        position.quantity -= sold;
+    }
+
+    public Map<String, Position> positions() {
+        return positions;
+    }
+
+    public double realized() {
+        return realized;
+    }
+}
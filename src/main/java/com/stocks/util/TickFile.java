@@ -0,0 +1,99 @@
+package com.stocks.util;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.SplittableRandom;
+
+/**
+ * Binary tick file used by the replay market data provider.
+ *
+ * Layout (big-endian): a 16-byte header of magic "TICK", version and tick count, then one 16-byte
+ * record per tick of epoch millis (long) and price (double), oldest first. Files are read through
+ * a read-only memory map, so replaying millions of ticks costs page cache rather than heap, and the
+ * fixed record size makes tick i a single absolute read. Synthetic series use the same layout on the heap.
+ */
+public final class TickFile {
+
+    private static final int MAGIC = 0x5449434B; // "TICK"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int RECORD_BYTES = 16;
+
+    private final ByteBuffer buffer;
+    private final int size;
+
+    private TickFile(ByteBuffer buffer, int size) {
+        this.buffer = buffer;
+        this.size = size;
+    }
+
+    public static TickFile open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (channel.size() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IOException("Not a tick file: " + path);
+            }
+            long count = buffer.getLong(8);
+            if (count < 0 || HEADER_BYTES + count * RECORD_BYTES > channel.size()) {
+                throw new IOException("Truncated tick file: " + path);
+            }
+            // A single mapping holds up to 2 GB, i.e. ~134M ticks; it stays valid after the channel closes
+            return new TickFile(buffer, (int) count);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long timestamp(int i) {
+        return buffer.getLong(HEADER_BYTES + i * RECORD_BYTES);
+    }
+
+    public double price(int i) {
+        return buffer.getDouble(HEADER_BYTES + i * RECORD_BYTES + 8);
+    }
+
+    // Written to a temporary file first and moved into place, so readers never map a partial file
+    public static void write(Path path, long[] timestamps, double[] prices) throws IOException {
+        if (timestamps.length != prices.length) {
+            throw new IllegalArgumentException("timestamps and prices differ in length");
+        }
+        Path parent = path.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path tmp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(timestamps.length);
+            for (int i = 0; i < timestamps.length; i++) {
+                out.writeLong(timestamps[i]);
+                out.writeDouble(prices[i]);
+            }
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Deterministic random walk seeded from the symbol, for runs without recorded data; built in memory
+    public static TickFile synthetic(String symbol, int count, long startMillis, long stepMillis) {
+        SplittableRandom random = new SplittableRandom(symbol.hashCode());
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + count * RECORD_BYTES);
+        buffer.putInt(MAGIC).putInt(VERSION).putLong(count);
+        double price = 20 + random.nextInt(480);
+        for (int i = 0; i < count; i++) {
+            // ~0.1% log-normal moves per tick
+            price *= Math.exp(0.001 * random.nextGaussian());
+            buffer.putLong(startMillis + i * stepMillis);
+            buffer.putDouble(Math.round(price * 10_000) / 10_000.0);
+        }
+        return new TickFile(buffer, count);
+    }
+}
@@ -0,0 +1,142 @@
+package com.stocks.util;
+
+/**
+ * Bounded, newest-first window of OHLCV bars held in parallel primitive arrays.
+ *
+ * Timestamps are stored as epoch seconds of the exchange-local wall-clock time printed by the
+ * upstream ("2024-01-05 16:00:00" or "2024-01-05"), which keeps them sortable without a zone lookup.
+ */
+public final class TimeSeriesBars {
+
+    private final int capacity;
+    private int size;
+
+    private final String[] rawTimestamps;
+    private final long[] timestamps;
+    private final double[] open;
+    private final double[] high;
+    private final double[] low;
+    private final double[] close;
+    private final long[] volume;
+
+    public TimeSeriesBars(int capacity) {
+        this.capacity = Math.max(1, capacity);
+        this.rawTimestamps = new String[this.capacity];
+        this.timestamps = new long[this.capacity];
+        this.open = new double[this.capacity];
+        this.high = new double[this.capacity];
+        this.low = new double[this.capacity];
+        this.close = new double[this.capacity];
+        this.volume = new long[this.capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long timestamp(int i) {
+        return timestamps[i];
+    }
+
+    public double open(int i) {
+        return open[i];
+    }
+
+    public double high(int i) {
+        return high[i];
+    }
+
+    public double low(int i) {
+        return low[i];
+    }
+
+    public double close(int i) {
+        return close[i];
+    }
+
+    public long volume(int i) {
+        return volume[i];
+    }
+
+    public double latestClose() {
+        return size == 0 ? Double.NaN : close[0];
+    }
+
+    // Keep the bar if it is among the newest {@code capacity} offered so far; bars may come in any order
+    public boolean offer(String timestamp, double o, double h, double l, double c, long v) {
+        int slot = slotFor(timestamp);
+        if (slot < 0) {
+            return false;
+        }
+        insert(slot, timestamp, o, h, l, c, v);
+        return true;
+    }
+
+    /*
+     * Position the bar with this timestamp would take, or -1 if it is older than everything we are
+     * keeping. ISO timestamps compare correctly as strings, so no parsing happens for skipped bars.
+     */
+    int slotFor(String timestamp) {
+        int slot = size;
+        while (slot > 0 && rawTimestamps[slot - 1].compareTo(timestamp) < 0) {
+            slot--;
+        }
+        return slot < capacity ? slot : -1;
+    }
+
+    void insert(int slot, String timestamp, double o, double h, double l, double c, long v) {
+        int last = Math.min(size, capacity - 1);
+        for (int i = last; i > slot; i--) {
+            rawTimestamps[i] = rawTimestamps[i - 1];
+            timestamps[i] = timestamps[i - 1];
+            open[i] = open[i - 1];
+            high[i] = high[i - 1];
+            low[i] = low[i - 1];
+            close[i] = close[i - 1];
+            volume[i] = volume[i - 1];
+        }
+        rawTimestamps[slot] = timestamp;
+        timestamps[slot] = toEpochSeconds(timestamp);
+        open[slot] = o;
+        high[slot] = h;
+        low[slot] = l;
+        close[slot] = c;
+        volume[slot] = v;
+        if (size < capacity) {
+            size++;
+        }
+    }
+
+    // "yyyy-MM-dd[ HH:mm[:ss]]" to epoch seconds, without allocating a formatter or temporal objects
+    public static long toEpochSeconds(String text) {
+        int year = digits(text, 0, 4);
+        int month = digits(text, 5, 2);
+        int day = digits(text, 8, 2);
+        int hour = text.length() >= 13 ? digits(text, 11, 2) : 0;
+        int minute = text.length() >= 16 ? digits(text, 14, 2) : 0;
+        int second = text.length() >= 19 ? digits(text, 17, 2) : 0;
+        return daysFromCivil(year, month, day) * 86400L + hour * 3600L + minute * 60L + second;
+    }
+
+    private static int digits(String text, int from, int count) {
+        int value = 0;
+        for (int i = from; i < from + count; i++) {
+            value = value * 10 + (text.charAt(i) - '0');
+        }
+        return value;
+    }
+
+    // Days since 1970-01-01 in the proleptic Gregorian calendar (H. Hinnant's algorithm)
+    private static long daysFromCivil(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = (y >= 0 ? y : y - 399) / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097L + dayOfEra - 719468;
+    }
+}
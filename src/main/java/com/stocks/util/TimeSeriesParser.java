@@ -0,0 +1,94 @@
+package com.stocks.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+
+/**
+ * Streaming reader for Alpha Vantage TIME_SERIES_* payloads.
+ *
+ * Walks the token stream once with a shared {@link JsonFactory} and never builds a tree: bars
+ * older than the ones we keep are skipped without being parsed, and the kept bars are written
+ * straight into primitive arrays.
+ */
+public final class TimeSeriesParser {
+
+    // Thread-safe and expensive to create, so one instance serves every call
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static final String SERIES_PREFIX = "Time Series";
+
+    private TimeSeriesParser() {
+    }
+
+    // Latest bar only
+    public static TimeSeriesBars parseLatest(String json) throws IOException {
+        return parseLatest(json, 1);
+    }
+
+    // Newest maxBars bars, newest first, whatever order the payload lists them in
+    public static TimeSeriesBars parseLatest(String json, int maxBars) throws IOException {
+        TimeSeriesBars bars = new TimeSeriesBars(maxBars);
+        if (json == null || json.isEmpty()) {
+            return bars;
+        }
+
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return bars;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                if (field.startsWith(SERIES_PREFIX) && parser.currentToken() == JsonToken.START_OBJECT) {
+                    readSeries(parser, bars);
+                    break;
+                }
+                parser.skipChildren(); // "Meta Data" and anything else we don't need
+            }
+        }
+        return bars;
+    }
+
+    private static void readSeries(JsonParser parser, TimeSeriesBars bars) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String timestamp = parser.getCurrentName();
+            parser.nextToken();
+            int slot = bars.slotFor(timestamp);
+            if (slot < 0) {
+                parser.skipChildren();
+                continue;
+            }
+
+            double open = Double.NaN;
+            double high = Double.NaN;
+            double low = Double.NaN;
+            double close = Double.NaN;
+            long volume = 0;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String key = parser.getCurrentName();
+                parser.nextToken();
+                // Keys look like "1. open", "2. high", ... ; the digit is enough to tell them apart
+                switch (key.isEmpty() ? ' ' : key.charAt(0)) {
+                    case '1' -> open = parseDouble(parser);
+                    case '2' -> high = parseDouble(parser);
+                    case '3' -> low = parseDouble(parser);
+                    case '4' -> close = parseDouble(parser);
+                    case '5' -> volume = (long) parseDouble(parser);
+                    default -> parser.skipChildren();
+                }
+            }
+            bars.insert(slot, timestamp, open, high, low, close, volume);
+        }
+    }
+
+    private static double parseDouble(JsonParser parser) throws IOException {
+        if (parser.currentToken().isNumeric()) {
+            return parser.getDoubleValue();
+        }
+        String text = parser.getText();
+        return text == null || text.isEmpty() ? Double.NaN : Double.parseDouble(text);
+    }
+}
@@ -0,0 +1,179 @@
+package com.stocks.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Incremental reader for trade imports (broker exports), as CSV or as a JSON array of objects.
+ *
+ * Records are handed to a {@link Handler} one at a time as they are read, so an import is never held
+ * in memory as a whole. Every record has a symbol, a quantity and optionally a side (BUY, the default,
+ * or SELL), an amount (total cost of a buy, required; proceeds of a sell, optional) and an ISO-8601
+ * execution time. CSV needs a header row naming the columns ("price" is accepted for "amount");
+ * unknown columns and JSON fields are ignored. A record with bad values is passed to
+ * {@link Handler#reject}; input that cannot be read at all ends the import with an exception.
+ */
+public final class TradeImportReader {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static final int MAX_SYMBOL_LENGTH = 255;
+
+    // rows are numbered from 1 in input order, header excluded
+    public interface Handler {
+        void trade(long row, String symbol, boolean buy, int quantity, Double amount, Instant executedAt);
+
+        void reject(long row, String reason);
+    }
+
+    private TradeImportReader() {
+    }
+
+    public static void readCsv(Reader in, Handler handler) throws IOException {
+        BufferedReader reader = in instanceof BufferedReader buffered ? buffered : new BufferedReader(in, 1 << 16);
+        String line = reader.readLine();
+        while (line != null && line.isBlank()) {
+            line = reader.readLine();
+        }
+        if (line == null) {
+            return;
+        }
+        List<String> header = CsvUtils.splitLine(stripBom(line));
+        int symbol = -1, side = -1, quantity = -1, amount = -1, executedAt = -1;
+        for (int i = 0; i < header.size(); i++) {
+            switch (header.get(i).toLowerCase(Locale.ROOT)) {
+                case "symbol" -> symbol = i;
+                case "side" -> side = i;
+                case "quantity" -> quantity = i;
+                case "amount", "price" -> amount = i;
+                case "executed_at", "executedat" -> executedAt = i;
+                default -> { }
+            }
+        }
+        if (symbol < 0 || quantity < 0) {
+            throw new IllegalArgumentException("CSV header must name symbol and quantity columns");
+        }
+
+        long row = 0;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            row++;
+            List<String> fields = CsvUtils.splitLine(line);
+            emit(handler, row, field(fields, symbol), field(fields, side), field(fields, quantity),
+                    field(fields, amount), field(fields, executedAt));
+        }
+    }
+
+    public static void readJson(InputStream in, Handler handler) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IllegalArgumentException("JSON import must be an array of trades");
+            }
+            long row = 0;
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (token == null) {
+                    throw new IllegalArgumentException("JSON import ended inside the array");
+                }
+                row++;
+                if (token != JsonToken.START_OBJECT) {
+                    parser.skipChildren();
+                    handler.reject(row, "not an object");
+                    continue;
+                }
+                String symbol = null, side = null, quantity = null, amount = null, executedAt = null;
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.getCurrentName();
+                    parser.nextToken();
+                    if (parser.currentToken().isStructStart()) {
+                        parser.skipChildren();
+                        continue;
+                    }
+                    switch (field) {
+                        case "symbol" -> symbol = parser.getValueAsString();
+                        case "side" -> side = parser.getValueAsString();
+                        case "quantity" -> quantity = parser.getValueAsString();
+                        case "amount", "price" -> amount = parser.getValueAsString();
+                        case "executedAt", "executed_at" -> executedAt = parser.getValueAsString();
+                        default -> { }
+                    }
+                }
+                emit(handler, row, symbol, side, quantity, amount, executedAt);
+            }
+        }
+    }
+
+    private static void emit(Handler handler, long row, String symbol, String side, String quantity,
+                             String amount, String executedAt) {
+        if (symbol == null || symbol.isBlank() || symbol.length() > MAX_SYMBOL_LENGTH) {
+            handler.reject(row, "missing or invalid symbol");
+            return;
+        }
+        boolean buy;
+        if (side == null || side.isEmpty() || side.equalsIgnoreCase("BUY")) {
+            buy = true;
+        } else if (side.equalsIgnoreCase("SELL")) {
+            buy = false;
+        } else {
+            handler.reject(row, "side must be BUY or SELL");
+            return;
+        }
+        int parsedQuantity;
+        try {
+            parsedQuantity = quantity == null ? 0 : Integer.parseInt(quantity);
+        } catch (NumberFormatException e) {
+            parsedQuantity = 0;
+        }
+        if (parsedQuantity <= 0) {
+            handler.reject(row, "quantity must be a positive integer");
+            return;
+        }
+        Double parsedAmount = null;
+        if (amount != null && !amount.isEmpty()) {
+            try {
+                parsedAmount = Double.parseDouble(amount);
+            } catch (NumberFormatException e) {
+                parsedAmount = Double.NaN;
+            }
+            if (!(parsedAmount >= 0) || parsedAmount.isInfinite()) {
+                handler.reject(row, "amount must be a non-negative number");
+                return;
+            }
+        }
+        if (buy && parsedAmount == null) {
+            handler.reject(row, "a buy needs its amount");
+            return;
+        }
+        Instant parsedExecutedAt = null;
+        if (executedAt != null && !executedAt.isEmpty()) {
+            try {
+                parsedExecutedAt = Instant.parse(executedAt);
+            } catch (DateTimeParseException e) {
+                handler.reject(row, "executed_at must be an ISO-8601 instant");
+                return;
+            }
+        }
+        // Upper-cased like every other trade, so it lands on the same (user_id, symbol) row
+        handler.trade(row, symbol.trim().toUpperCase(Locale.ROOT), buy, parsedQuantity, parsedAmount, parsedExecutedAt);
+    }
+
+    private static String field(List<String> fields, int index) {
+        return index >= 0 && index < fields.size() ? fields.get(index) : null;
+    }
+
+    private static String stripBom(String line) {
+        return line.startsWith("\uFEFF") ? line.substring(1) : line;
+    }
+}
@@ -0,0 +1,175 @@
+package com.stocks.util;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Value-at-Risk and expected shortfall (CVaR) of a portfolio of positions, from daily log returns.
+ *
+ * Historical: every horizon-day window of the observed returns is one scenario. Monte Carlo: log
+ * returns are drawn from a multivariate normal fitted to the same series (mean, covariance, Cholesky
+ * factor) and each position is revalued with exp, so the P&L is not simply linear in the draws. Paths
+ * are simulated in fixed-size chunks, each with its own SplittableRandom split off one seeded root in
+ * chunk order, so a given seed gives the same answer on any number of threads. Inner loops only touch
+ * primitive arrays; nothing is allocated per path.
+ */
+public final class ValueAtRisk {
+
+    private static final int CHUNK = 4096;
+
+    // Both are positive numbers for a loss
+    public record Estimate(double var, double cvar) {
+    }
+
+    private ValueAtRisk() {
+    }
+
+    // returns[asset][day]; exposure is the current value of each position
+    public static Estimate historical(double[][] returns, double[] exposure, int horizon, double confidence) {
+        double[] pnl = historicalPnl(returns, exposure, horizon);
+        return pnl.length == 0 ? new Estimate(Double.NaN, Double.NaN) : tail(pnl, confidence);
+    }
+
+    // P&L of every horizon-day window, in window order; empty if there are fewer days than the horizon
+    public static double[] historicalPnl(double[][] returns, double[] exposure, int horizon) {
+        int assets = exposure.length;
+        int scenarios = returns.length == 0 ? 0 : returns[0].length - horizon + 1;
+        if (scenarios <= 0) {
+            return new double[0];
+        }
+        double[] pnl = new double[scenarios];
+        for (int t = 0; t < scenarios; t++) {
+            double total = 0;
+            for (int i = 0; i < assets; i++) {
+                double logReturn = 0;
+                for (int d = t; d < t + horizon; d++) {
+                    logReturn += returns[i][d];
+                }
+                total += exposure[i] * Math.expm1(logReturn);
+            }
+            pnl[t] = total;
+        }
+        return pnl;
+    }
+
+    public static Estimate monteCarlo(double[] mean, double[] cholesky, double[] exposure, int horizon,
+                                      double confidence, int paths, long seed, ForkJoinPool pool) {
+        return tail(simulatePnl(mean, cholesky, exposure, horizon, paths, seed, pool), confidence);
+    }
+
+    // Simulated P&L per path, in path order
+    public static double[] simulatePnl(double[] mean, double[] cholesky, double[] exposure, int horizon,
+                                       int paths, long seed, ForkJoinPool pool) {
+        int assets = exposure.length;
+        double[] pnl = new double[paths];
+        int chunks = (paths + CHUNK - 1) / CHUNK;
+        SplittableRandom root = new SplittableRandom(seed);
+        SplittableRandom[] randoms = new SplittableRandom[chunks];
+        for (int c = 0; c < chunks; c++) {
+            randoms[c] = root.split();
+        }
+        double scale = Math.sqrt(horizon);
+
+        pool.submit(() -> IntStream.range(0, chunks).parallel().forEach(c -> {
+            SplittableRandom random = randoms[c];
+            double[] z = new double[assets];
+            int end = Math.min(paths, (c + 1) * CHUNK);
+            for (int p = c * CHUNK; p < end; p++) {
+                for (int i = 0; i < assets; i++) {
+                    z[i] = random.nextGaussian();
+                }
+                double total = 0;
+                for (int i = 0; i < assets; i++) {
+                    // Row i of the lower-triangular factor times z
+                    double shock = 0;
+                    int row = i * assets;
+                    for (int k = 0; k <= i; k++) {
+                        shock += cholesky[row + k] * z[k];
+                    }
+                    total += exposure[i] * Math.expm1(horizon * mean[i] + scale * shock);
+                }
+                pnl[p] = total;
+            }
+        })).join();
+        return pnl;
+    }
+
+    public static double[] mean(double[][] returns) {
+        double[] mean = new double[returns.length];
+        for (int i = 0; i < returns.length; i++) {
+            double sum = 0;
+            for (double r : returns[i]) {
+                sum += r;
+            }
+            mean[i] = returns[i].length == 0 ? 0 : sum / returns[i].length;
+        }
+        return mean;
+    }
+
+    // Sample covariance, row-major n x n
+    public static double[] covariance(double[][] returns, double[] mean) {
+        int n = returns.length;
+        int days = n == 0 ? 0 : returns[0].length;
+        double[] covariance = new double[n * n];
+        if (days < 2) {
+            return covariance;
+        }
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j <= i; j++) {
+                double sum = 0;
+                for (int d = 0; d < days; d++) {
+                    sum += (returns[i][d] - mean[i]) * (returns[j][d] - mean[j]);
+                }
+                covariance[i * n + j] = sum / (days - 1);
+                covariance[j * n + i] = covariance[i * n + j];
+            }
+        }
+        return covariance;
+    }
+
+    /*
+     * Lower-triangular L with L * L^T = covariance, row-major n x n. Sample covariances of many assets
+     * over few days are often only semi-definite; a pivot that is not positive gets a zero column, i.e.
+     * that asset is treated as fully explained by the ones before it.
+     */
+    public static double[] cholesky(double[] covariance, int n) {
+        double[] l = new double[n * n];
+        for (int j = 0; j < n; j++) {
+            double diagonal = covariance[j * n + j];
+            for (int k = 0; k < j; k++) {
+                diagonal -= l[j * n + k] * l[j * n + k];
+            }
+            if (diagonal <= 1e-18) {
+                continue;
+            }
+            double pivot = Math.sqrt(diagonal);
+            l[j * n + j] = pivot;
+            for (int i = j + 1; i < n; i++) {
+                double sum = covariance[i * n + j];
+                for (int k = 0; k < j; k++) {
+                    sum -= l[i * n + k] * l[j * n + k];
+                }
+                l[i * n + j] = sum / pivot;
+            }
+        }
+        return l;
+    }
+
+    // Sorts pnl; VaR is the loss at the confidence quantile, CVaR the mean loss at or beyond it
+    static Estimate tail(double[] pnl, double confidence) {
+        Arrays.sort(pnl);
+        return tailOfSorted(pnl, confidence);
+    }
+
+    // As tail, for P&L already sorted ascending, so one distribution serves any confidence
+    public static Estimate tailOfSorted(double[] pnl, double confidence) {
+        int tail = Math.max(1, (int) Math.ceil((1 - confidence) * pnl.length));
+        double sum = 0;
+        for (int i = 0; i < tail; i++) {
+            sum += pnl[i];
+        }
+        return new Estimate(-pnl[tail - 1], -sum / tail);
+    }
+}
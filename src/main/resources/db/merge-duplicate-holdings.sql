@@ -0,0 +1,46 @@
+-- Runs before Hibernate's schema update (spring.sql.init, see application-example.properties) so that
+-- uk_stocks_user_symbol can be added to a table written before symbols were normalized. Rows of a user
+-- whose symbols only differ by case or padding are folded into the oldest one: quantities and cumulative
+-- costs add up and the version moves past every merged row. A no-op on a fresh or already clean schema.
+DO $$
+BEGIN
+    IF to_regclass('stocks') IS NULL THEN
+        RETURN;
+    END IF;
+
+    CREATE TEMP TABLE merged_holdings ON COMMIT DROP AS
+    SELECT user_id, upper(btrim(symbol)) AS symbol, min(id) AS keep_id,
+           sum(quantity) AS quantity, sum(price) AS price, max(coalesce(version, 0)) AS version
+    FROM stocks
+    GROUP BY user_id, upper(btrim(symbol))
+    HAVING count(*) > 1 OR bool_or(symbol <> upper(btrim(symbol)));
+
+    IF NOT EXISTS (SELECT 1 FROM merged_holdings) THEN
+        RETURN;
+    END IF;
+
+    DELETE FROM stocks s
+    USING merged_holdings m
+    WHERE s.user_id = m.user_id AND upper(btrim(s.symbol)) = m.symbol AND s.id <> m.keep_id;
+
+    UPDATE stocks s
+    SET symbol = m.symbol, quantity = m.quantity, price = m.price, version = m.version + 1
+    FROM merged_holdings m
+    WHERE s.id = m.keep_id;
+
+    -- The ledger must replay to the merged positions
+    IF to_regclass('trade_events') IS NOT NULL THEN
+        UPDATE trade_events SET symbol = upper(btrim(symbol)) WHERE symbol <> upper(btrim(symbol));
+    END IF;
+
+    -- A snapshot holding an unnormalized symbol would seed it twice; drop it so the next rebuild replays events
+    IF to_regclass('position_snapshots') IS NOT NULL AND to_regclass('ledger_snapshots') IS NOT NULL THEN
+        WITH stale AS (
+            SELECT DISTINCT snapshot_id FROM position_snapshots WHERE symbol <> upper(btrim(symbol))
+        ), dropped AS (
+            DELETE FROM position_snapshots p USING stale WHERE p.snapshot_id = stale.snapshot_id
+        )
+        DELETE FROM ledger_snapshots l USING stale WHERE l.id = stale.snapshot_id;
+    END IF;
+END
+$$;
@@ -0,0 +1,46 @@
+package com.stocks.config;
+
+import com.stocks.exceptions.MarketDataException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+
+import java.io.IOException;
+import java.net.URI;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class UpstreamConcurrencyLimiterTest {
+
+    private final UpstreamConcurrencyLimiter limiter = new UpstreamConcurrencyLimiter(1, 0, new SimpleMeterRegistry());
+    private final MockClientHttpRequest request = new MockClientHttpRequest(HttpMethod.GET, URI.create("https://upstream.test/query"));
+
+    @Test
+    void thePermitIsHeldUntilTheResponseIsClosed() throws IOException {
+        ClientHttpResponse first = limiter.intercept(request, new byte[0], (r, b) -> new MockClientHttpResponse(new byte[0], HttpStatus.OK));
+
+        // Headers are in, the body is still being read
+        assertThrows(MarketDataException.class,
+                () -> limiter.intercept(request, new byte[0], (r, b) -> new MockClientHttpResponse(new byte[0], HttpStatus.OK)));
+
+        first.close();
+        first.close();
+        limiter.intercept(request, new byte[0], (r, b) -> new MockClientHttpResponse(new byte[0], HttpStatus.OK)).close();
+        // Closing twice gave back one permit, not two
+        limiter.intercept(request, new byte[0], (r, b) -> new MockClientHttpResponse(new byte[0], HttpStatus.OK));
+        assertThrows(MarketDataException.class,
+                () -> limiter.intercept(request, new byte[0], (r, b) -> new MockClientHttpResponse(new byte[0], HttpStatus.OK)));
+    }
+
+    @Test
+    void aFailedCallGivesThePermitBack() throws IOException {
+        assertThrows(IOException.class, () -> limiter.intercept(request, new byte[0], (r, b) -> {
+            throw new IOException("connection reset");
+        }));
+        limiter.intercept(request, new byte[0], (r, b) -> new MockClientHttpResponse(new byte[0], HttpStatus.OK));
+    }
+}
@@ -0,0 +1,192 @@
+package com.stocks.controller;
+
+import com.stocks.config.SecurityConfig;
+import com.stocks.dto.BarHistory;
+import com.stocks.exceptions.UnauthorizedException;
+import com.stocks.service.BarInterval;
+import com.stocks.service.HistoryService;
+import com.stocks.service.HoldingsCache;
+import com.stocks.service.HoldingsService;
+import com.stocks.service.IndicatorService;
+import com.stocks.service.JwtService;
+import com.stocks.service.PortfolioAnalyticsService;
+import com.stocks.service.PriceAlertService;
+import com.stocks.service.QuoteStreamService;
+import com.stocks.service.StockService;
+import com.stocks.service.TradeImportService;
+import com.stocks.service.TradeService;
+import com.stocks.service.ValueAtRiskService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Runs the real security filter chain, including the async dispatch that completes streamed responses
+@WebMvcTest(StockController.class)
+@Import(SecurityConfig.class)
+class StockControllerSecurityTest {
+
+    private static final String TOKEN = "Bearer valid-token";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private JwtService jwtService;
+    @MockitoBean
+    private StockService stockService;
+    @MockitoBean
+    private TradeService tradeService;
+    @MockitoBean
+    private QuoteStreamService quoteStreamService;
+    @MockitoBean
+    private HistoryService historyService;
+    @MockitoBean
+    private IndicatorService indicatorService;
+    @MockitoBean
+    private PortfolioAnalyticsService portfolioAnalyticsService;
+    @MockitoBean
+    private ValueAtRiskService valueAtRiskService;
+    @MockitoBean
+    private HoldingsService holdingsService;
+    @MockitoBean
+    private HoldingsCache holdingsCache;
+    @MockitoBean
+    private TradeImportService tradeImportService;
+    @MockitoBean
+    private PriceAlertService priceAlertService;
+
+    @BeforeEach
+    void setUp() {
+        when(jwtService.extractUserId("valid-token")).thenReturn(7L);
+    }
+
+    @Test
+    void streamedHoldingsCompleteOnTheAsyncDispatch() throws Exception {
+        doAnswer(invocation -> {
+            OutputStream out = invocation.getArgument(2);
+            out.write("[]".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(holdingsService).writeJsonArray(eq(7L), anyLong(), any(OutputStream.class));
+
+        MvcResult result = mockMvc.perform(get("/api/stocks")
+                        .header(HttpHeaders.AUTHORIZATION, TOKEN)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().string("[]"));
+    }
+
+    @Test
+    void ndjsonHoldingsCompleteOnTheAsyncDispatch() throws Exception {
+        doAnswer(invocation -> {
+            OutputStream out = invocation.getArgument(2);
+            out.write("{\"symbol\":\"AAPL\"}\n".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(holdingsService).writeNdjson(eq(7L), anyLong(), any(OutputStream.class));
+
+        MvcResult result = mockMvc.perform(get("/api/stocks")
+                        .header(HttpHeaders.AUTHORIZATION, TOKEN)
+                        .accept("application/x-ndjson"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().string("{\"symbol\":\"AAPL\"}\n"));
+    }
+
+    @Test
+    void quoteStreamCompletesOnTheAsyncDispatch() throws Exception {
+        SseEmitter emitter = new SseEmitter(5000L);
+        when(quoteStreamService.subscribe(List.of("AAPL"))).thenReturn(emitter);
+
+        MvcResult result = mockMvc.perform(get("/api/stocks/stream")
+                        .param("tickers", "AAPL")
+                        .header(HttpHeaders.AUTHORIZATION, TOKEN)
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        emitter.send(SseEmitter.event().name("quote").data("{\"symbol\":\"AAPL\"}"));
+        emitter.complete();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("event:quote")));
+    }
+
+    @Test
+    void streamedHoldingsStillNeedAToken() throws Exception {
+        mockMvc.perform(get("/api/stocks"))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/api/stocks/stream").param("tickers", "AAPL"))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void invalidTokensAreAnonymousAndActuatorIsClosed() throws Exception {
+        when(jwtService.extractUserId("expired-token")).thenThrow(new UnauthorizedException("Invalid token"));
+
+        mockMvc.perform(get("/api/stocks").header(HttpHeaders.AUTHORIZATION, "Bearer expired-token"))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/actuator/metrics").header(HttpHeaders.AUTHORIZATION, TOKEN))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void malformedHistoryBoundsAreRejected() throws Exception {
+        for (String from : List.of("2024-13-01", "2024-1-5", "yesterday", "2024-01-02 25:00")) {
+            mockMvc.perform(get("/api/stocks/history")
+                            .header(HttpHeaders.AUTHORIZATION, TOKEN)
+                            .param("ticker", "AAPL")
+                            .param("from", from))
+                    .andExpect(status().isBadRequest());
+        }
+        verify(historyService, never()).history(any(), any(), anyLong(), anyLong(), anyInt());
+    }
+
+    @Test
+    void aBareEndDateCoversTheWholeDay() throws Exception {
+        when(historyService.history(any(), any(), anyLong(), anyLong(), anyInt()))
+                .thenReturn(new BarHistory("AAPL", "daily", new long[0], new double[0], new double[0],
+                        new double[0], new double[0], new long[0]));
+
+        mockMvc.perform(get("/api/stocks/history")
+                        .header(HttpHeaders.AUTHORIZATION, TOKEN)
+                        .param("ticker", "AAPL")
+                        .param("from", "2024-01-02 09:30")
+                        .param("to", "2024-01-02"))
+                .andExpect(status().isOk());
+
+        verify(historyService).history("AAPL", BarInterval.DAILY, 1_704_187_800L, 1_704_239_999L, 500);
+    }
+}
@@ -0,0 +1,161 @@
+package com.stocks.repository;
+
+import com.stocks.StockBackendApplication;
+import com.stocks.entity.Stock;
+import com.stocks.entity.User;
+import com.stocks.service.TradeService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Stress test for the single-statement buy/sell queries. The upsert uses PostgreSQL's
+ * ON CONFLICT, so this runs against a throwaway PostgreSQL container (skipped without Docker).
+ */
+@SpringBootTest(classes = StockBackendApplication.class, properties = {
+    "spring.jpa.hibernate.ddl-auto=update",
+    "jwt.secret=stress-test-secret-stress-test-secret-stress-test!",
+    "alpha.vantage.api.url=http://localhost:0/query",
+    "alpha.vantage.api.key=test",
+    "front.end.url=http://localhost:3000"
+})
+@Testcontainers(disabledWithoutDocker = true)
+class StockRepositoryConcurrencyTest {
+
+    private static final int THREADS = 16;
+    private static final int TRADES_PER_THREAD = 50;
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    private StockRepository stockRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TradeService tradeService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    void parallelBuysAreNeverLost() throws Exception {
+        Long userId = newUser();
+        runInParallel(() -> {
+            for (int i = 0; i < TRADES_PER_THREAD; i++) {
+                stockRepository.upsertBuy(userId, "AAPL", 2.0, 1);
+            }
+            return null;
+        });
+
+        int expected = THREADS * TRADES_PER_THREAD;
+        assertEquals(expected, stockRepository.findQuantity(userId, "AAPL").orElseThrow());
+        assertEquals(2.0 * expected, stockRepository.findByUserIdAndSymbol(userId, "AAPL").orElseThrow().getPrice(), 1e-6);
+    }
+
+    @Test
+    void parallelSellsNeverOversell() throws Exception {
+        Long userId = newUser();
+        int held = THREADS * TRADES_PER_THREAD / 2;
+        stockRepository.upsertBuy(userId, "MSFT", held * 10.0, held);
+
+        List<Integer> soldPerThread = runInParallel(() -> {
+            int sold = 0;
+            for (int i = 0; i < TRADES_PER_THREAD; i++) {
+                if (stockRepository.sellPartial(userId, "MSFT", 1) == 1 || stockRepository.sellAll(userId, "MSFT", 1) == 1) {
+                    sold++;
+                }
+            }
+            return sold;
+        });
+
+        assertEquals(held, soldPerThread.stream().mapToInt(Integer::intValue).sum());
+        assertTrue(stockRepository.findQuantity(userId, "MSFT").isEmpty());
+    }
+
+    @Test
+    void symbolsDifferingOnlyByCaseShareOneRow() {
+        Long userId = newUser();
+        tradeService.buy(userId, "nvda", 100.0, 1);
+        tradeService.buy(userId, " NVDA ", 120.0, 2);
+
+        assertEquals(3, stockRepository.findQuantity(userId, "NVDA").orElseThrow());
+        assertEquals(TradeService.SellOutcome.SOLD_ALL, tradeService.sell(userId, "Nvda", 3, 400.0).outcome());
+    }
+
+    @Test
+    void mergeScriptFoldsRowsWrittenBeforeTheUniqueKey() {
+        Long userId = newUser();
+        jdbcTemplate.execute("ALTER TABLE stocks DROP CONSTRAINT uk_stocks_user_symbol");
+        try {
+            jdbcTemplate.update("INSERT INTO stocks (user_id, symbol, price, quantity, version) VALUES "
+                + "(?, 'amd', 10, 1, 0), (?, 'AMD', 30, 2, 4), (?, ' Amd', 5, 1, 1), (?, 'intc', 7, 1, 0)",
+                userId, userId, userId, userId);
+
+            ResourceDatabasePopulator populator =
+                new ResourceDatabasePopulator(new ClassPathResource("db/merge-duplicate-holdings.sql"));
+            populator.setSeparator(ScriptUtils.EOF_STATEMENT_SEPARATOR);
+            populator.execute(dataSource);
+
+            Stock amd = stockRepository.findByUserIdAndSymbol(userId, "AMD").orElseThrow();
+            assertEquals(4, amd.getQuantity());
+            assertEquals(45.0, amd.getPrice(), 1e-9);
+            assertTrue(amd.getVersion() > 4);
+            assertEquals(1, stockRepository.findQuantity(userId, "INTC").orElseThrow());
+        } finally {
+            // Only succeeds once the table is clean again
+            jdbcTemplate.execute("ALTER TABLE stocks ADD CONSTRAINT uk_stocks_user_symbol UNIQUE (user_id, symbol)");
+        }
+    }
+
+    private Long newUser() {
+        User user = new User();
+        user.setUsername("stress-" + UUID.randomUUID());
+        user.setPassword("x");
+        return userRepository.save(user).getId();
+    }
+
+    private <T> List<T> runInParallel(Callable<T> task) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<T>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(pool.submit(task));
+            }
+            List<T> results = new ArrayList<>();
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.stocks.service;
+
+import com.stocks.exceptions.MarketDataException;
+import com.stocks.exceptions.UnknownSymbolException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AlphaVantageProviderTest {
+
+    private final RestTemplate restTemplate = mock(RestTemplate.class);
+    private final UpstreamCircuitBreakers breakers = new UpstreamCircuitBreakers(5, 30_000, 1, new SimpleMeterRegistry());
+
+    @Test
+    void unknownSymbolsLeaveTheCircuitClosed() {
+        answer("{\"Error Message\": \"Invalid API call. Please retry or visit the documentation for TIME_SERIES_INTRADAY.\"}");
+        AlphaVantageProvider provider = provider();
+
+        for (int i = 0; i < 20; i++) {
+            assertThrows(UnknownSymbolException.class, () -> provider.latestQuote("TYPO", UpstreamPriority.INTERACTIVE));
+            assertThrows(UnknownSymbolException.class,
+                    () -> provider.history("TYPO", BarInterval.DAILY, 30, UpstreamPriority.INTERACTIVE));
+        }
+
+        assertEquals(CircuitBreaker.State.CLOSED, breakers.state(UpstreamFunction.INTRADAY));
+        assertEquals(CircuitBreaker.State.CLOSED, breakers.state(UpstreamFunction.DAILY));
+    }
+
+    @Test
+    void rateLimitNotesOpenTheCircuit() {
+        answer("{\"Note\": \"Thank you for using Alpha Vantage! Our standard API call frequency is 5 calls per minute.\"}");
+        AlphaVantageProvider provider = provider();
+
+        for (int i = 0; i < 5; i++) {
+            MarketDataException e = assertThrows(MarketDataException.class,
+                    () -> provider.history("AAPL", BarInterval.INTRADAY, 30, UpstreamPriority.INTERACTIVE));
+            assertEquals(MarketDataException.class, e.getClass());
+        }
+
+        assertEquals(CircuitBreaker.State.OPEN, breakers.state(UpstreamFunction.INTRADAY));
+    }
+
+    private void answer(String body) {
+        when(restTemplate.getForEntity(anyString(), eq(String.class))).thenReturn(ResponseEntity.ok(body));
+    }
+
+    private AlphaVantageProvider provider() {
+        AlphaVantageProvider provider = new AlphaVantageProvider();
+        ReflectionTestUtils.setField(provider, "apiUrl", "https://www.alphavantage.co/query");
+        ReflectionTestUtils.setField(provider, "apiKey", "demo");
+        ReflectionTestUtils.setField(provider, "restTemplate", restTemplate);
+        ReflectionTestUtils.setField(provider, "rateLimiter", mock(UpstreamRateLimiter.class));
+        ReflectionTestUtils.setField(provider, "circuitBreakers", breakers);
+        return provider;
+    }
+}
@@ -0,0 +1,79 @@
+package com.stocks.service;
+
+import com.stocks.dto.BarHistory;
+import com.stocks.util.TimeSeriesBars;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BarStoreTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void appendsOnlyNewerBarsAndReplacesTheLastOne() {
+        BarStore store = storeIn(dir);
+        assertEquals(3, store.append("aapl", BarInterval.DAILY, bars("2024-01-02", "2024-01-03", "2024-01-04")));
+
+        // The 4th is still in progress upstream and comes back with a new close
+        TimeSeriesBars update = bars("2024-01-03", "2024-01-04", "2024-01-05");
+        assertEquals(2, store.append("AAPL", BarInterval.DAILY, update));
+
+        BarHistory all = store.range("AAPL", BarInterval.DAILY, Long.MIN_VALUE, Long.MAX_VALUE, 100);
+        assertEquals(4, all.size());
+        assertEquals(TimeSeriesBars.toEpochSeconds("2024-01-05"), all.timestamps()[3]);
+        assertEquals(2.0, all.close()[2]);
+    }
+
+    @Test
+    void rangeUsesInclusiveBoundsAndKeepsTheNewestWithinLimit() {
+        BarStore store = storeIn(dir);
+        store.append("MSFT", BarInterval.DAILY, bars("2024-01-02", "2024-01-03", "2024-01-04", "2024-01-05"));
+
+        BarHistory range = store.range("MSFT", BarInterval.DAILY, TimeSeriesBars.toEpochSeconds("2024-01-03"),
+                TimeSeriesBars.toEpochSeconds("2024-01-05"), 2);
+        assertArrayEquals(new long[] {TimeSeriesBars.toEpochSeconds("2024-01-04"), TimeSeriesBars.toEpochSeconds("2024-01-05")},
+                range.timestamps());
+
+        // A fresh instance maps what the first one wrote
+        assertEquals(4, storeIn(dir).size("MSFT", BarInterval.DAILY));
+    }
+
+    @Test
+    void keepsOnlyTheMostRecentSeriesOpenAndRemapsEvictedOnes() {
+        BarStore store = storeIn(dir);
+        ReflectionTestUtils.setField(store, "maxOpenSeries", 2);
+        store.append("AAPL", BarInterval.DAILY, bars("2024-01-02", "2024-01-03"));
+        store.append("MSFT", BarInterval.DAILY, bars("2024-01-02"));
+        store.append("IBM", BarInterval.DAILY, bars("2024-01-02", "2024-01-03", "2024-01-04"));
+        assertEquals(2, store.openSeries());
+
+        // AAPL was evicted; it is mapped again with what was written, and appends continue after it
+        assertEquals(2, store.size("AAPL", BarInterval.DAILY));
+        assertEquals(1, store.append("AAPL", BarInterval.DAILY, bars("2024-01-04")));
+        assertEquals(3, store.size("AAPL", BarInterval.DAILY));
+        assertEquals(2, store.openSeries());
+    }
+
+    private static BarStore storeIn(Path dir) {
+        BarStore store = new BarStore();
+        ReflectionTestUtils.setField(store, "storeDir", dir.toString());
+        ReflectionTestUtils.setField(store, "maxOpenSeries", 2000);
+        return store;
+    }
+
+    // One bar per date, oldest first in the arguments; the close is the bar's batch position (1-based)
+    private static TimeSeriesBars bars(String... dates) {
+        TimeSeriesBars bars = new TimeSeriesBars(dates.length);
+        for (int i = 0; i < dates.length; i++) {
+            bars.offer(dates[i], 1, 1, 1, i + 1, 100);
+        }
+        return bars;
+    }
+}
@@ -0,0 +1,124 @@
+package com.stocks.service;
+
+import com.stocks.exceptions.UnknownSymbolException;
+import com.stocks.repository.StockRepository;
+import com.stocks.util.TimeSeriesBars;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class HistoryServiceTest {
+
+    private final BarStore barStore = mock(BarStore.class);
+    private final MarketDataProvider provider = mock(MarketDataProvider.class);
+    private final StockRepository stockRepository = mock(StockRepository.class);
+
+    @Test
+    void seriesWithoutUpstreamDataStopBeingTracked() {
+        when(barStore.lastTimestamp(anyString(), any())).thenReturn(Long.MIN_VALUE);
+        when(provider.history(eq("NODATA"), any(), anyInt(), any())).thenReturn(new TimeSeriesBars(10));
+        when(provider.history(eq("TYPO"), any(), anyInt(), any())).thenThrow(new UnknownSymbolException("No market data available for TYPO"));
+        HistoryService service = service(100);
+
+        for (int i = 0; i < 3; i++) {
+            service.track("nodata", BarInterval.DAILY);
+            service.track("typo", BarInterval.DAILY);
+        }
+        service.refreshTracked();
+
+        verify(provider, times(1)).history(eq("NODATA"), any(), anyInt(), any());
+        verify(provider, times(1)).history(eq("TYPO"), any(), anyInt(), any());
+        assertTrue(requested(service).isEmpty());
+    }
+
+    @Test
+    void seriesAreTriedAgainAfterTheRetryTime() {
+        when(barStore.lastTimestamp(anyString(), any())).thenReturn(Long.MIN_VALUE);
+        when(provider.history(eq("NEW"), any(), anyInt(), any())).thenReturn(new TimeSeriesBars(10));
+        HistoryService service = service(100);
+        ReflectionTestUtils.setField(service, "emptyRetryMs", 0L);
+
+        service.track("NEW", BarInterval.DAILY);
+        service.track("NEW", BarInterval.DAILY);
+
+        verify(provider, times(2)).history(eq("NEW"), any(), anyInt(), any());
+    }
+
+    @Test
+    void trackedSeriesAreBounded() {
+        when(barStore.size(anyString(), any())).thenReturn(1);
+        HistoryService service = service(10);
+
+        for (int i = 0; i < 25; i++) {
+            service.track("SYM" + i, BarInterval.DAILY);
+        }
+
+        assertTrue(requested(service).size() <= 10);
+        // The most recent request survives the trim
+        assertTrue(requested(service).containsKey("DAILY/SYM24"));
+        verify(provider, never()).history(anyString(), any(), anyInt(), any());
+    }
+
+    @Test
+    void scheduledTopUpsRunOnTheExecutorAFewAtATime() {
+        when(barStore.size(anyString(), any())).thenReturn(1);
+        when(barStore.lastTimestamp(anyString(), any())).thenReturn(1_000L);
+        when(provider.history(anyString(), any(), anyInt(), any())).thenReturn(new TimeSeriesBars(10));
+        Queue<Runnable> tasks = new ArrayDeque<>();
+        HistoryService service = service(100);
+        ReflectionTestUtils.setField(service, "quoteExecutor", (Executor) tasks::add);
+        ReflectionTestUtils.setField(service, "maxInFlight", 2);
+        for (int i = 0; i < 6; i++) {
+            service.track("SYM" + i, BarInterval.INTRADAY);
+        }
+
+        service.refreshTracked();
+        // Nothing is fetched on the scheduler thread
+        assertEquals(2, tasks.size());
+        verify(provider, never()).history(anyString(), any(), anyInt(), any());
+
+        while (!tasks.isEmpty()) {
+            assertTrue(tasks.size() <= 2);
+            tasks.poll().run();
+        }
+        verify(provider, times(6)).history(anyString(), any(), anyInt(), eq(UpstreamPriority.BACKGROUND));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Long> requested(HistoryService service) {
+        return (Map<String, Long>) ReflectionTestUtils.getField(service, "requested");
+    }
+
+    private HistoryService service(int maxTracked) {
+        when(stockRepository.countHoldersBySymbol()).thenReturn(List.of());
+        HistoryService service = new HistoryService();
+        ReflectionTestUtils.setField(service, "barStore", barStore);
+        ReflectionTestUtils.setField(service, "marketDataProvider", provider);
+        ReflectionTestUtils.setField(service, "stockRepository", stockRepository);
+        ReflectionTestUtils.setField(service, "quoteExecutor", (Executor) Runnable::run);
+        ReflectionTestUtils.setField(service, "backfillBars", 20000);
+        ReflectionTestUtils.setField(service, "incrementalBars", 100);
+        ReflectionTestUtils.setField(service, "trackMs", 86_400_000L);
+        ReflectionTestUtils.setField(service, "maxTracked", maxTracked);
+        ReflectionTestUtils.setField(service, "emptyRetryMs", 86_400_000L);
+        ReflectionTestUtils.setField(service, "maxInFlight", 4);
+        return service;
+    }
+}
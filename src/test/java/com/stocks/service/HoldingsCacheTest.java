@@ -0,0 +1,67 @@
+package com.stocks.service;
+
+import com.stocks.dto.StockView;
+import com.stocks.repository.StockRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class HoldingsCacheTest {
+
+    private final StockRepository repository = mock(StockRepository.class);
+
+    @Test
+    void servesRepeatedReadsFromTheCache() {
+        holdings(1L, new StockView(10L, "AAPL", 150.0, 5, 0));
+        HoldingsCache cache = cache(new LocalInvalidationChannel(), 10);
+
+        assertEquals(1, cache.get(1L).size());
+        assertEquals(1, cache.get(1L).size());
+        verify(repository, times(1)).findViewsByUserId(eq(1L), anyLong(), any(Limit.class));
+    }
+
+    @Test
+    void invalidationOnOneNodeEvictsOnTheOthers() {
+        LocalInvalidationChannel channel = new LocalInvalidationChannel();
+        HoldingsCache first = cache(channel, 10);
+        HoldingsCache second = cache(channel.peer(), 10);
+        holdings(1L, new StockView(10L, "AAPL", 150.0, 5, 0));
+        first.get(1L);
+        second.get(1L);
+
+        holdings(1L, new StockView(10L, "AAPL", 150.0, 8, 1));
+        first.invalidateAfterCommit(1L);
+
+        assertEquals(8, first.get(1L).get(0).quantity());
+        assertEquals(8, second.get(1L).get(0).quantity());
+    }
+
+    @Test
+    void doesNotCachePortfoliosAboveThePerUserLimit() {
+        holdings(1L, new StockView(10L, "AAPL", 150.0, 5, 0), new StockView(11L, "MSFT", 300.0, 2, 0));
+        HoldingsCache cache = cache(new LocalInvalidationChannel(), 1);
+
+        cache.get(1L);
+        cache.get(1L);
+        verify(repository, times(2)).findViewsByUserId(eq(1L), anyLong(), any(Limit.class));
+    }
+
+    private void holdings(Long userId, StockView... views) {
+        when(repository.findViewsByUserId(eq(userId), anyLong(), any(Limit.class))).thenReturn(List.of(views));
+    }
+
+    private HoldingsCache cache(CacheInvalidationChannel channel, int maxHoldingsPerUser) {
+        return new HoldingsCache(100, maxHoldingsPerUser, repository, channel, new SimpleMeterRegistry());
+    }
+}
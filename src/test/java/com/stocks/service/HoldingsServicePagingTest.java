@@ -0,0 +1,115 @@
+package com.stocks.service;
+
+import com.stocks.StockBackendApplication;
+import com.stocks.dto.StockView;
+import com.stocks.entity.User;
+import com.stocks.repository.StockRepository;
+import com.stocks.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Keyset paging over a user's holdings. Runs against a throwaway PostgreSQL container (skipped
+ * without Docker), like the other repository-level tests.
+ */
+@SpringBootTest(classes = StockBackendApplication.class, properties = {
+    "spring.jpa.hibernate.ddl-auto=update",
+    "jwt.secret=stress-test-secret-stress-test-secret-stress-test!",
+    "alpha.vantage.api.url=http://localhost:0/query",
+    "alpha.vantage.api.key=test",
+    "front.end.url=http://localhost:3000"
+})
+@Testcontainers(disabledWithoutDocker = true)
+class HoldingsServicePagingTest {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    private HoldingsService holdingsService;
+
+    @Autowired
+    private StockRepository stockRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void theCursorIsSetOnlyWhenMoreRowsFollow() {
+        Long userId = newUser();
+        buy(userId, "A", "B", "C", "D", "E", "F");
+        // Someone else's holdings never show up
+        buy(newUser(), "A", "B");
+
+        HoldingsService.Page exact = holdingsService.page(userId, 0, 6);
+        assertEquals(6, exact.holdings().size());
+        assertNull(exact.nextCursor());
+
+        HoldingsService.Page partial = holdingsService.page(userId, 0, 5);
+        assertEquals(5, partial.holdings().size());
+        assertEquals(partial.holdings().get(4).id(), partial.nextCursor());
+
+        HoldingsService.Page rest = holdingsService.page(userId, partial.nextCursor(), 5);
+        assertEquals(List.of("F"), symbols(rest.holdings()));
+        assertNull(rest.nextCursor());
+
+        HoldingsService.Page past = holdingsService.page(userId, rest.holdings().get(0).id(), 5);
+        assertTrue(past.holdings().isEmpty());
+        assertNull(past.nextCursor());
+    }
+
+    @Test
+    void walkingPagesWhileHoldingsChangeNeverRepeatsOrSkipsARow() {
+        Long userId = newUser();
+        buy(userId, "A", "B", "C", "D", "E", "F", "G");
+
+        List<StockView> seen = new ArrayList<>();
+        HoldingsService.Page page = holdingsService.page(userId, 0, 3);
+        seen.addAll(page.holdings());
+
+        // An already-served row goes away and a new one arrives; offsets would shift, the keyset does not
+        stockRepository.sellAll(userId, "A", 1);
+        buy(userId, "H");
+
+        while (page.nextCursor() != null) {
+            page = holdingsService.page(userId, page.nextCursor(), 3);
+            seen.addAll(page.holdings());
+        }
+
+        assertEquals(List.of("A", "B", "C", "D", "E", "F", "G", "H"), symbols(seen));
+        for (int i = 1; i < seen.size(); i++) {
+            assertTrue(seen.get(i - 1).id() < seen.get(i).id());
+        }
+    }
+
+    private void buy(Long userId, String... symbols) {
+        for (String symbol : symbols) {
+            stockRepository.upsertBuy(userId, symbol, 10.0, 1);
+        }
+    }
+
+    private static List<String> symbols(List<StockView> holdings) {
+        return holdings.stream().map(StockView::symbol).toList();
+    }
+
+    private Long newUser() {
+        User user = new User();
+        user.setUsername("paging-" + UUID.randomUUID());
+        user.setPassword("x");
+        return userRepository.save(user).getId();
+    }
+}
@@ -0,0 +1,82 @@
+package com.stocks.service;
+
+import com.stocks.dto.BarHistory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class IndicatorServiceTest {
+
+    private static final int BARS = 1000;
+
+    private final BarStore barStore = mock(BarStore.class);
+    private IndicatorService service;
+
+    @AfterEach
+    void tearDown() {
+        if (service != null) {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void rejectsMoreThanTenIndicators() {
+        service = service(1_000_000);
+        List<String> eleven = IntStream.rangeClosed(1, 11).mapToObj(period -> "sma:" + period).toList();
+
+        assertThrows(IllegalArgumentException.class,
+                () -> service.indicators(List.of("AAPL"), BarInterval.DAILY, eleven, 100));
+        // Duplicates count once
+        assertEquals(1, service.indicators(List.of("AAPL"), BarInterval.DAILY, Collections.nCopies(11, "SMA:20 "), 100)
+                .get(0).values().size());
+    }
+
+    @Test
+    void cacheIsBoundedByRetainedValues() {
+        // One series with sma:500 holds about 1000 values plus its 500-value window
+        service = service(4000);
+        for (String symbol : List.of("A", "B", "C", "D", "E")) {
+            assertEquals(100, service.indicators(List.of(symbol), BarInterval.DAILY, List.of("sma:500"), 100)
+                    .get(0).timestamps().length);
+            assertTrue(service.retainedValues() <= 4000, "retained " + service.retainedValues());
+        }
+        assertTrue(service.retainedValues() > 0);
+    }
+
+    private IndicatorService service(long maxValues) {
+        when(barStore.size(anyString(), eq(BarInterval.DAILY))).thenReturn(BARS);
+        when(barStore.read(anyString(), eq(BarInterval.DAILY), anyInt())).thenAnswer(invocation -> {
+            int from = invocation.getArgument(2);
+            int n = BARS - from;
+            long[] timestamps = new long[n];
+            double[] close = new double[n];
+            long[] volume = new long[n];
+            for (int i = 0; i < n; i++) {
+                timestamps[i] = 86_400L * (from + i);
+                close[i] = 100 + (from + i) % 7;
+                volume[i] = 1000;
+            }
+            return new BarHistory(invocation.getArgument(0), "daily", timestamps, close, close, close, close, volume);
+        });
+        IndicatorService indicatorService = new IndicatorService();
+        ReflectionTestUtils.setField(indicatorService, "barStore", barStore);
+        ReflectionTestUtils.setField(indicatorService, "historyService", mock(HistoryService.class));
+        ReflectionTestUtils.setField(indicatorService, "parallelism", 1);
+        ReflectionTestUtils.setField(indicatorService, "maxValues", maxValues);
+        indicatorService.init();
+        return indicatorService;
+    }
+}
@@ -0,0 +1,50 @@
+package com.stocks.service;
+
+import com.stocks.exceptions.UnauthorizedException;
+import com.stocks.repository.UserRepository;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class JwtServiceTest {
+
+    private static final String SECRET = "jwt-service-test-secret-jwt-service-test-secret!";
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final JwtService jwtService = new JwtService(SECRET, 100, userRepository);
+
+    @Test
+    void acceptsTokensOfExistingUsersAndChecksOncePerToken() {
+        when(userRepository.existsById(42L)).thenReturn(true);
+        String token = token("42");
+
+        assertEquals(42L, jwtService.extractUserId(token));
+        assertEquals(42L, jwtService.extractUserId(token));
+        verify(userRepository, times(1)).existsById(42L);
+    }
+
+    @Test
+    void rejectsTokensOfDeletedUsers() {
+        when(userRepository.existsById(7L)).thenReturn(false);
+
+        assertThrows(UnauthorizedException.class, () -> jwtService.extractUserId(token("7")));
+    }
+
+    private static String token(String subject) {
+        return Jwts.builder()
+            .setSubject(subject)
+            .setIssuedAt(new Date())
+            .setExpiration(new Date(System.currentTimeMillis() + 3600000))
+            .signWith(Keys.hmacShaKeyFor(SECRET.getBytes()))
+            .compact();
+    }
+}
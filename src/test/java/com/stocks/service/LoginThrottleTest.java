@@ -0,0 +1,47 @@
+package com.stocks.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LoginThrottleTest {
+
+    @Test
+    void locksAUsernameOutAfterTooManyFailuresUntilALoginSucceeds() {
+        LoginThrottle throttle = new LoginThrottle(60_000, 1000, 3, 1000);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, throttle.checkAttempt("alice", "10.0.0." + i));
+            throttle.loginFailed("alice");
+        }
+
+        // Any IP, any case
+        assertTrue(throttle.checkAttempt("Alice", "10.0.0.99") > 0);
+        assertEquals(0, throttle.checkAttempt("bob", "10.0.0.99"));
+
+        throttle.loginSucceeded("alice");
+        assertEquals(0, throttle.checkAttempt("alice", "10.0.0.1"));
+    }
+
+    @Test
+    void limitsAttemptsPerIpWhateverTheUsername() {
+        LoginThrottle throttle = new LoginThrottle(60_000, 5, 100, 1000);
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, throttle.checkAttempt("user" + i, "192.0.2.1"));
+        }
+        long wait = throttle.checkAttempt("user5", "192.0.2.1");
+        assertTrue(wait > 0 && wait <= 60_000);
+        assertEquals(0, throttle.checkAttempt(null, "192.0.2.2"));
+    }
+
+    @Test
+    void windowsExpire() throws InterruptedException {
+        LoginThrottle throttle = new LoginThrottle(50, 1, 1, 1000);
+        assertEquals(0, throttle.checkAttempt("carol", "198.51.100.1"));
+        throttle.loginFailed("carol");
+        assertTrue(throttle.checkAttempt("carol", "198.51.100.1") > 0);
+
+        Thread.sleep(80);
+        assertEquals(0, throttle.checkAttempt("carol", "198.51.100.1"));
+    }
+}
@@ -0,0 +1,120 @@
+package com.stocks.service;
+
+import com.stocks.dto.BarHistory;
+import com.stocks.dto.PortfolioAnalytics;
+import com.stocks.dto.Quote;
+import com.stocks.dto.StockView;
+import com.stocks.util.PositionBook;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PortfolioAnalyticsServiceTest {
+
+    private final HoldingsCache holdingsCache = mock(HoldingsCache.class);
+    private final TradeLedger tradeLedger = mock(TradeLedger.class);
+    private final QuoteCache quoteCache = mock(QuoteCache.class);
+    private final BarStore barStore = mock(BarStore.class);
+
+    @Test
+    void incrementalTicksMatchAFullRecompute() {
+        when(holdingsCache.get(1L)).thenReturn(List.of(
+                new StockView(1L, "AAPL", 1500.0, 10, 0),
+                new StockView(2L, "MSFT", 2000.0, 5, 0),
+                new StockView(3L, "AAPL", 800.0, 4, 0),
+                new StockView(4L, "NEW", 50.0, 7, 0)));
+        when(barStore.range(anyString(), any(), anyLong(), anyLong(), anyInt())).thenAnswer(invocation -> {
+            String symbol = invocation.getArgument(0);
+            // NEW has no history, so it never counts towards the daily figures
+            return symbol.equals("NEW") ? bars(symbol) : bars(symbol, 100.0);
+        });
+        PortfolioAnalyticsService service = service();
+        PortfolioAnalytics loaded = service.analytics(1L);
+        assertEquals(4, loaded.unpricedHoldings());
+
+        Random random = new Random(42);
+        String[] symbols = {"AAPL", "MSFT", "NEW", "IBM"};
+        for (int i = 0; i < 1000; i++) {
+            String symbol = symbols[random.nextInt(symbols.length)];
+            tick(service, symbol, 50 + random.nextInt(10_000) / 100.0);
+        }
+        PortfolioAnalytics incremental = service.analytics(1L);
+
+        Object portfolio = portfolios(service).get(1L);
+        ReflectionTestUtils.invokeMethod(portfolio, "recompute");
+        PortfolioAnalytics full = service.analytics(1L);
+
+        assertEquals(full.unpricedHoldings(), incremental.unpricedHoldings());
+        assertEquals(0, full.unpricedHoldings());
+        assertEquals(full.totalCost(), incremental.totalCost(), 1e-6);
+        assertEquals(full.marketValue(), incremental.marketValue(), 1e-6);
+        assertEquals(full.unrealizedPnl(), incremental.unrealizedPnl(), 1e-6);
+        assertNotNull(full.dailyPnl());
+        assertEquals(full.dailyPnl(), incremental.dailyPnl(), 1e-6);
+        assertEquals(full.dailyReturn(), incremental.dailyReturn(), 1e-9);
+    }
+
+    @Test
+    void aTradeDuringTheFirstLoadIsNotMissed() {
+        PortfolioAnalyticsService service = service();
+        when(barStore.range(anyString(), any(), anyLong(), anyLong(), anyInt())).thenAnswer(invocation -> bars(invocation.getArgument(0)));
+        AtomicInteger reads = new AtomicInteger();
+        when(holdingsCache.get(1L)).thenAnswer(invocation -> {
+            if (reads.getAndIncrement() == 0) {
+                // The trade commits while the first read is in flight, before the portfolio is installed
+                ReflectionTestUtils.invokeMethod(service, "onHoldingsChanged", 1L);
+                return List.of(new StockView(1L, "AAPL", 1500.0, 10, 0));
+            }
+            return List.of(new StockView(1L, "AAPL", 1500.0, 10, 0), new StockView(2L, "MSFT", 2000.0, 5, 1));
+        });
+
+        assertEquals(2, service.analytics(1L).positions().size());
+        assertEquals(2, reads.get());
+    }
+
+    private PortfolioAnalyticsService service() {
+        when(tradeLedger.rebuild(any())).thenReturn(new PositionBook());
+        PortfolioAnalyticsService service = new PortfolioAnalyticsService();
+        ReflectionTestUtils.setField(service, "volatilityDays", 60);
+        ReflectionTestUtils.setField(service, "idleMs", 3_600_000L);
+        ReflectionTestUtils.setField(service, "exchangeZone", "UTC");
+        ReflectionTestUtils.setField(service, "holdingsCache", holdingsCache);
+        ReflectionTestUtils.setField(service, "tradeLedger", tradeLedger);
+        ReflectionTestUtils.setField(service, "quoteCache", quoteCache);
+        ReflectionTestUtils.setField(service, "barStore", barStore);
+        ReflectionTestUtils.setField(service, "quoteExecutor", (Executor) Runnable::run);
+        return service;
+    }
+
+    private static void tick(PortfolioAnalyticsService service, String symbol, double price) {
+        ReflectionTestUtils.invokeMethod(service, "onQuote", new Quote(symbol, symbol, Double.toString(price), 0L));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<Long, Object> portfolios(PortfolioAnalyticsService service) {
+        return (Map<Long, Object>) ReflectionTestUtils.getField(service, "portfolios");
+    }
+
+    // One daily bar per close, a day apart
+    private static BarHistory bars(String symbol, double... closes) {
+        long[] ts = new long[closes.length];
+        for (int i = 0; i < closes.length; i++) {
+            ts[i] = 86_400L * (i + 1);
+        }
+        return new BarHistory(symbol, BarInterval.DAILY.id(), ts, closes, closes, closes, closes, new long[closes.length]);
+    }
+}
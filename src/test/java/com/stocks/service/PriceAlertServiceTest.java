@@ -0,0 +1,91 @@
+package com.stocks.service;
+
+import com.stocks.dto.Quote;
+import com.stocks.dto.QuoteResult;
+import com.stocks.entity.PriceAlert;
+import com.stocks.repository.PriceAlertRepository;
+import com.stocks.util.AlertIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PriceAlertServiceTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final PriceAlertRepository priceAlertRepository = mock(PriceAlertRepository.class);
+    private final StockService stockService = mock(StockService.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void aBatchThatFailsToRecordIsRetried() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenThrow(new DataAccessResourceFailureException("down"))
+                .thenReturn(new int[][] {{1}});
+        PriceAlertService service = service();
+        AlertIndex index = (AlertIndex) ReflectionTestUtils.getField(service, "index");
+        index.add("AAPL", 7L, 200, Double.NaN);
+
+        ReflectionTestUtils.invokeMethod(service, "onQuote", new Quote("AAPL", "Apple", "201", 0L));
+        // Out of the index but not recorded yet
+        assertEquals(0, index.size());
+        assertEquals(0, meterRegistry.counter("alerts.fired").count());
+
+        service.retryFired();
+        assertEquals(1, meterRegistry.counter("alerts.fired").count());
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class));
+
+        // Nothing left to retry
+        service.retryFired();
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class));
+    }
+
+    @Test
+    void theLimitIsCheckedWhileHoldingTheUserLock() {
+        when(stockService.getQuotes(List.of("AAPL"))).thenReturn(List.of(QuoteResult.ok(new Quote("AAPL", "Apple", "190", 0L))));
+        when(priceAlertRepository.countByUserIdAndTriggeredAtIsNull(1L)).thenReturn(100L);
+        PriceAlertService service = service();
+
+        assertThrows(IllegalStateException.class, () -> service.create(1L, "aapl", PriceAlert.Type.ABOVE, 200));
+
+        InOrder order = inOrder(jdbcTemplate, priceAlertRepository);
+        order.verify(jdbcTemplate).queryForList(anyString(), eq(Long.class), eq(1L));
+        order.verify(priceAlertRepository).countByUserIdAndTriggeredAtIsNull(1L);
+        verify(priceAlertRepository, never()).save(any());
+    }
+
+    private PriceAlertService service() {
+        PriceAlertService service = new PriceAlertService();
+        ReflectionTestUtils.setField(service, "maxPerUser", 100);
+        ReflectionTestUtils.setField(service, "fireBatchSize", 500);
+        ReflectionTestUtils.setField(service, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(service, "priceAlertRepository", priceAlertRepository);
+        ReflectionTestUtils.setField(service, "stockService", stockService);
+        ReflectionTestUtils.setField(service, "transactionManager", mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(service, "quoteExecutor", (Executor) Runnable::run);
+        ReflectionTestUtils.setField(service, "firedCounter", meterRegistry.counter("alerts.fired"));
+        return service;
+    }
+}
@@ -0,0 +1,89 @@
+package com.stocks.service;
+
+import com.stocks.dto.Quote;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class QuoteCacheTest {
+
+    @Test
+    void concurrentMissesForOneTickerCauseOneFetch() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        QuoteCache cache = new QuoteCache(60_000, 100, 86_400_000, 1000, registry);
+        AtomicInteger fetches = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        List<Future<Quote>> results = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            results.add(pool.submit(() -> cache.get("aapl", () -> {
+                fetches.incrementAndGet();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return new Quote("AAPL", "Apple Inc.", "190.10", System.currentTimeMillis());
+            })));
+        }
+        Thread.sleep(200);
+        release.countDown();
+        for (Future<Quote> result : results) {
+            assertEquals("190.10", result.get(5, TimeUnit.SECONDS).price());
+        }
+        pool.shutdown();
+
+        assertEquals(1, fetches.get());
+        assertEquals(1.0, registry.counter("quote.cache.requests", "result", "miss").count());
+    }
+
+    @Test
+    void sizeBoundEvictsOldestEntries() {
+        QuoteCache cache = new QuoteCache(60_000, 2, 86_400_000, 1000, new SimpleMeterRegistry());
+        long now = System.currentTimeMillis();
+        cache.put(new Quote("A", "A", "1", now - 3));
+        cache.put(new Quote("B", "B", "1", now - 2));
+        cache.put(new Quote("C", "C", "1", now - 1));
+
+        assertEquals(null, cache.getIfFresh("A"));
+        assertEquals("C", cache.getIfFresh("c").symbol());
+    }
+
+    @Test
+    void sizePressureKeepsLastKnownQuotes() {
+        QuoteCache cache = new QuoteCache(1, 2, 60_000, 1000, new SimpleMeterRegistry());
+        long now = System.currentTimeMillis();
+        cache.put(new Quote("A", "A", "1", now - 10));
+        cache.put(new Quote("B", "B", "2", now - 5));
+        cache.put(new Quote("C", "C", "3", now));
+
+        // A and B expired and left the fresh store, but can still be served as stale
+        assertEquals(null, cache.getIfFresh("A"));
+        assertEquals("1", cache.getLastKnown("A", 60_000).price());
+        assertEquals("2", cache.getLastKnown("b", 60_000).price());
+    }
+
+    @Test
+    void lastKnownBoundDropsQuotesPastMaxStaleFirst() {
+        QuoteCache cache = new QuoteCache(60_000, 100, 1000, 2, new SimpleMeterRegistry());
+        long now = System.currentTimeMillis();
+        cache.put(new Quote("A", "A", "1", now - 500));
+        cache.put(new Quote("B", "B", "2", now - 5000));
+        cache.put(new Quote("C", "C", "3", now));
+
+        assertEquals(null, cache.getLastKnown("B", Long.MAX_VALUE));
+        assertEquals("1", cache.getLastKnown("A", Long.MAX_VALUE).price());
+        assertEquals("3", cache.getLastKnown("C", Long.MAX_VALUE).price());
+    }
+}
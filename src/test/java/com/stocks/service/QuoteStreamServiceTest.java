@@ -0,0 +1,136 @@
+package com.stocks.service;
+
+import com.stocks.dto.Quote;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class QuoteStreamServiceTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final QuoteCache quoteCache = mock(QuoteCache.class);
+    private final RecordingEmitter emitter = new RecordingEmitter();
+    private QuoteStreamService service;
+
+    @Test
+    void aSlowConnectionOnlyGetsTheLatestPricePerTicker() {
+        Queue<Runnable> writes = new ArrayDeque<>();
+        Consumer<Quote> publish = start(writes::add, 10_000);
+        service.subscribe(List.of("aapl"));
+
+        publish.accept(quote("AAPL", "1"));
+        publish.accept(quote("AAPL", "2"));
+        publish.accept(quote("AAPL", "3"));
+        assertEquals(1, writes.size());
+        writes.poll().run();
+
+        assertEquals(List.of("3"), emitter.prices);
+        assertEquals(2, registry.counter("quote.stream.conflated").count());
+    }
+
+    @Test
+    void evictingAStuckConnectionNeverWaitsOnItsWrite() throws Exception {
+        ExecutorService writer = Executors.newSingleThreadExecutor();
+        try {
+            Consumer<Quote> publish = start(writer, 0);
+            service.subscribe(List.of("MSFT"));
+            emitter.blockSends();
+
+            publish.accept(quote("MSFT", "1"));
+            assertTrue(emitter.sending.await(5, TimeUnit.SECONDS));
+            Thread.sleep(5);
+
+            // Past the lag allowance: evicted on this thread while the write is still stuck
+            publish.accept(quote("MSFT", "2"));
+            assertEquals(1, registry.counter("quote.stream.evicted").count());
+            assertEquals(0, registry.get("quote.stream.connections").gauge().value());
+            assertFalse(emitter.completed.await(50, TimeUnit.MILLISECONDS));
+
+            // The writer completes the emitter once its send returns
+            emitter.release.countDown();
+            assertTrue(emitter.completed.await(5, TimeUnit.SECONDS));
+            assertEquals(List.of("1"), emitter.prices);
+        } finally {
+            writer.shutdownNow();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Consumer<Quote> start(Executor streamExecutor, long maxLagMs) {
+        service = new QuoteStreamService(registry) {
+            @Override
+            SseEmitter newEmitter() {
+                return emitter;
+            }
+        };
+        ReflectionTestUtils.setField(service, "quoteCache", quoteCache);
+        ReflectionTestUtils.setField(service, "streamExecutor", streamExecutor);
+        ReflectionTestUtils.setField(service, "quoteExecutor", (Executor) task -> { });
+        ReflectionTestUtils.setField(service, "maxConnections", 10);
+        ReflectionTestUtils.setField(service, "maxTickers", 10);
+        ReflectionTestUtils.setField(service, "maxLagMs", maxLagMs);
+        service.listen();
+        ArgumentCaptor<Consumer<Quote>> listener = ArgumentCaptor.forClass(Consumer.class);
+        verify(quoteCache).addListener(listener.capture());
+        return listener.getValue();
+    }
+
+    private static Quote quote(String symbol, String price) {
+        return new Quote(symbol, null, price, System.currentTimeMillis());
+    }
+
+    private static final class RecordingEmitter extends SseEmitter {
+        final List<String> prices = new CopyOnWriteArrayList<>();
+        final CountDownLatch sending = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch completed = new CountDownLatch(1);
+        private volatile boolean block;
+
+        void blockSends() {
+            block = true;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            for (ResponseBodyEmitter.DataWithMediaType data : builder.build()) {
+                if (data.getData() instanceof Quote quote) {
+                    prices.add(quote.price());
+                }
+            }
+            sending.countDown();
+            if (block) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        @Override
+        public void complete() {
+            completed.countDown();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.stocks.service;
+
+import com.stocks.dto.Quote;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReplayMarketDataProviderTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void synthesizesMissingSymbolsInMemoryAndBoundsTheSeriesHeld() throws Exception {
+        ReplayMarketDataProvider provider = provider(2);
+
+        Quote first = provider.latestQuote("abc", UpstreamPriority.INTERACTIVE);
+        provider.latestQuote("DEF", UpstreamPriority.INTERACTIVE);
+        provider.latestQuote("GHI", UpstreamPriority.INTERACTIVE);
+
+        try (Stream<Path> written = Files.list(dir)) {
+            assertEquals(0, written.count());
+        }
+        assertEquals(2, ((Map<?, ?>) ReflectionTestUtils.getField(provider, "series")).size());
+
+        // Evicted, then regenerated from the same seed: step mode starts again from the first tick
+        Quote again = provider.latestQuote("ABC", UpstreamPriority.INTERACTIVE);
+        assertEquals(first.price(), again.price());
+        assertTrue(Double.parseDouble(again.price()) > 0);
+    }
+
+    private ReplayMarketDataProvider provider(int maxSeries) throws Exception {
+        ReplayMarketDataProvider provider = new ReplayMarketDataProvider();
+        ReflectionTestUtils.setField(provider, "replayDir", dir.toString());
+        ReflectionTestUtils.setField(provider, "ticksPerSecond", 0.0);
+        ReflectionTestUtils.setField(provider, "loop", true);
+        ReflectionTestUtils.setField(provider, "synthesizeMissing", true);
+        ReflectionTestUtils.setField(provider, "syntheticTicks", 1000);
+        ReflectionTestUtils.setField(provider, "maxSeries", maxSeries);
+        provider.init();
+        return provider;
+    }
+}
@@ -0,0 +1,144 @@
+package com.stocks.service;
+
+import com.stocks.dto.SymbolMatch;
+import com.stocks.entity.SymbolName;
+import com.stocks.repository.SymbolNameRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SymbolDirectoryTest {
+
+    private final SymbolNameRepository repository = mock(SymbolNameRepository.class);
+    private final MarketDataProvider provider = mock(MarketDataProvider.class);
+    private final ApplicationEventPublisher publisher = mock(ApplicationEventPublisher.class);
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+
+    @Test
+    void warmUpPublishesOnceLoaded() {
+        when(repository.findAll()).thenReturn(List.of(new SymbolName("AAPL", "Apple Inc.")));
+        SymbolDirectory directory = directory();
+
+        directory.warmUp();
+
+        ArgumentCaptor<SymbolDirectory.RefreshedEvent> event = ArgumentCaptor.forClass(SymbolDirectory.RefreshedEvent.class);
+        verify(publisher).publishEvent(event.capture());
+        assertEquals(1, event.getValue().symbolCount());
+    }
+
+    @Test
+    void rememberedNamesReachTheSearchIndex() {
+        SymbolDirectory directory = directory();
+        SymbolSearchIndex index = new SymbolSearchIndex();
+        ReflectionTestUtils.setField(index, "symbolDirectory", directory);
+        ReflectionTestUtils.setField(directory, "eventPublisher",
+                (ApplicationEventPublisher) event -> index.onNamesLearned((SymbolDirectory.LearnedEvent) event));
+        index.rebuild(Map.of("AAPL", "Apple Inc."));
+
+        directory.remember(Map.of("nvda", "NVIDIA Corporation"));
+        // Queued on the learning thread, searchable after the background merge
+        assertTrue(index.search("nvidia", 5).isEmpty());
+        index.mergeLearned();
+
+        assertEquals("NVDA", index.search("nvidia", 5).get(0).get("symbol"));
+        assertEquals("AAPL", index.search("apple", 5).get(0).get("symbol"));
+    }
+
+    @Test
+    void unchangedNamesPublishNothing() {
+        when(repository.findAll()).thenReturn(List.of(new SymbolName("AAPL", "Apple Inc.")));
+        SymbolDirectory directory = directory();
+        directory.warmUp();
+
+        directory.remember(Map.of("AAPL", "Apple Inc."));
+
+        verify(publisher, times(1)).publishEvent(any(Object.class));
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), any(List.class), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class));
+    }
+
+    @Test
+    void unresolvedSymbolsAreNotSearchedAgainUntilTheirEntryExpires() {
+        when(provider.search("ZZZZ", UpstreamPriority.SEARCH)).thenReturn(List.of());
+        when(provider.search("APL", UpstreamPriority.SEARCH))
+                .thenReturn(List.of(new SymbolMatch("AAPL", "Apple Inc.")));
+        SymbolDirectory directory = directory();
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(SymbolDirectory.UNKNOWN_NAME, directory.nameFor("zzzz"));
+            assertEquals("Apple Inc.", directory.nameFor("APL"));
+        }
+
+        verify(provider, times(1)).search("ZZZZ", UpstreamPriority.SEARCH);
+        verify(provider, times(1)).search("APL", UpstreamPriority.SEARCH);
+        // A guess is not a name
+        assertNull(directory.snapshot().get("APL"));
+
+        ReflectionTestUtils.setField(directory, "negativeTtlMs", 0L);
+        directory.nameFor("QQQQ");
+        directory.nameFor("QQQQ");
+        verify(provider, times(2)).search("QQQQ", UpstreamPriority.SEARCH);
+    }
+
+    @Test
+    void failedSearchesAreNotCached() {
+        when(provider.search("MSFT", UpstreamPriority.SEARCH))
+                .thenThrow(new IllegalStateException("upstream down"))
+                .thenReturn(List.of(new SymbolMatch("MSFT", "Microsoft Corporation")));
+        SymbolDirectory directory = directory();
+
+        assertEquals(SymbolDirectory.UNKNOWN_NAME, directory.nameFor("MSFT"));
+        assertEquals("Microsoft Corporation", directory.nameFor("MSFT"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void listingRefreshUpsertsInBatchesAndDropsDelistedSymbols() {
+        when(provider.listing()).thenReturn(Map.of("AAPL", "Apple Inc.", "MSFT", "Microsoft Corporation"));
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class))).thenReturn(List.of("AAPL", "MSFT", "TWTR"));
+        SymbolDirectory directory = directory();
+        directory.remember(Map.of("TWTR", "Twitter Inc."));
+
+        assertEquals(2, directory.refreshFromListing());
+
+        assertEquals(Map.of("AAPL", "Apple Inc.", "MSFT", "Microsoft Corporation"), directory.snapshot());
+        ArgumentCaptor<List<String>> deleted = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(startsWith("DELETE"), deleted.capture(), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class));
+        assertEquals(List.of("TWTR"), deleted.getValue());
+        verify(jdbcTemplate, times(2)).batchUpdate(startsWith("INSERT"), any(List.class), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class));
+        verify(repository, never()).saveAll(any());
+    }
+
+    private SymbolDirectory directory() {
+        SymbolDirectory directory = new SymbolDirectory();
+        ReflectionTestUtils.setField(directory, "symbolNameRepository", repository);
+        ReflectionTestUtils.setField(directory, "marketDataProvider", provider);
+        ReflectionTestUtils.setField(directory, "eventPublisher", publisher);
+        ReflectionTestUtils.setField(directory, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(directory, "negativeTtlMs", 3_600_000L);
+        ReflectionTestUtils.setField(directory, "maxNegativeEntries", 100);
+        return directory;
+    }
+}
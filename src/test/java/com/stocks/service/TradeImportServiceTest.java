@@ -0,0 +1,67 @@
+package com.stocks.service;
+
+import com.stocks.dto.ImportReport;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TradeImportServiceTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void aChunkThatFailsToSaveIsReportedWithTheRowsCommittedBeforeIt() {
+        when(jdbcTemplate.batchUpdate(contains("INSERT INTO stocks"), anyList(), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class)))
+            .thenReturn(new int[0][])
+            .thenThrow(new DataAccessResourceFailureException("connection lost"));
+
+        ImportReport report = service().importCsv(1L, new StringReader("""
+                Symbol,Quantity,Price
+                AAPL,1,150
+                AAPL,2,300
+                MSFT,0,100
+                MSFT,1,400
+                MSFT,1,410
+                """));
+
+        assertEquals(2, report.imported());
+        assertEquals(1, report.chunks());
+        // The reject in the failed chunk is dropped too, so the import resumes from row 3
+        assertEquals(0, report.rejected());
+        assertTrue(report.errors().isEmpty());
+        assertTrue(report.storageFailed());
+        assertNotNull(report.failure());
+    }
+
+    private TradeImportService service() {
+        HoldingsCache holdingsCache = mock(HoldingsCache.class);
+        when(holdingsCache.get(1L)).thenReturn(List.of());
+        TradeImportService service = new TradeImportService();
+        ReflectionTestUtils.setField(service, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(service, "tradeLedger", mock(TradeLedger.class));
+        ReflectionTestUtils.setField(service, "holdingsCache", holdingsCache);
+        ReflectionTestUtils.setField(service, "transactionManager", mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(service, "chunkSize", 2);
+        ReflectionTestUtils.setField(service, "maxErrors", 100);
+        ReflectionTestUtils.setField(service, "batchSize", 500);
+        return service;
+    }
+}
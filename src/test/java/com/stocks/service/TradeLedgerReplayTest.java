@@ -0,0 +1,120 @@
+package com.stocks.service;
+
+import com.stocks.StockBackendApplication;
+import com.stocks.entity.TradeEvent;
+import com.stocks.entity.User;
+import com.stocks.repository.UserRepository;
+import com.stocks.util.PositionBook;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Rebuilding a user's positions from a snapshot plus the newer events must give the same book as
+ * replaying the whole ledger. Runs against a throwaway PostgreSQL container (skipped without Docker),
+ * since the ledger relies on its sequences.
+ */
+@SpringBootTest(classes = StockBackendApplication.class, properties = {
+    "spring.jpa.hibernate.ddl-auto=update",
+    "jwt.secret=stress-test-secret-stress-test-secret-stress-test!",
+    "alpha.vantage.api.url=http://localhost:0/query",
+    "alpha.vantage.api.key=test",
+    "front.end.url=http://localhost:3000"
+})
+@Testcontainers(disabledWithoutDocker = true)
+class TradeLedgerReplayTest {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    private TradeLedger tradeLedger;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void aSnapshotPlusNewerEventsMatchesAFullReplay() {
+        Long userId = newUser();
+        Instant settled = Instant.now().minus(Duration.ofHours(2));
+        tradeLedger.append(List.of(
+                trade(userId, "AAPL", TradeEvent.Side.BUY, 10, 1000.0, settled),
+                trade(userId, "MSFT", TradeEvent.Side.BUY, 5, 1500.0, settled),
+                trade(userId, "AAPL", TradeEvent.Side.SELL, 4, 500.0, settled),
+                // Recorded without a price: cost leaves the position, realized P&L is unchanged
+                trade(userId, "MSFT", TradeEvent.Side.SELL, 2, null, settled)));
+        // Inside the settle window, so the snapshot must leave them to the replay
+        Instant recent = Instant.now();
+        tradeLedger.append(List.of(
+                trade(userId, "AAPL", TradeEvent.Side.BUY, 2, 260.0, recent),
+                trade(userId, "AAPL", TradeEvent.Side.SELL, 3, 400.0, recent)));
+
+        PositionBook full = tradeLedger.rebuild(userId);
+        assertBook(full, 177.5, 5, 537.5, 3, 900.0);
+
+        tradeLedger.snapshot(userId, Timestamp.from(recent.minus(Duration.ofMinutes(1))));
+        Long lastSettled = jdbcTemplate.queryForObject(
+                "SELECT MAX(id) FROM trade_events WHERE user_id = ? AND executed_at < ?",
+                Long.class, userId, Timestamp.from(recent.minus(Duration.ofMinutes(1))));
+        assertNotNull(lastSettled);
+        assertEquals(lastSettled, jdbcTemplate.queryForObject(
+                "SELECT last_event_id FROM ledger_snapshots WHERE user_id = ?", Long.class, userId));
+        assertEquals(100.0, jdbcTemplate.queryForObject(
+                "SELECT realized FROM ledger_snapshots WHERE user_id = ?", Double.class, userId), 1e-9);
+        assertEquals(6, jdbcTemplate.queryForObject(
+                "SELECT p.quantity FROM position_snapshots p JOIN ledger_snapshots l ON l.id = p.snapshot_id "
+                + "WHERE l.user_id = ? AND p.symbol = 'AAPL'", Integer.class, userId));
+
+        PositionBook fromSnapshot = tradeLedger.rebuild(userId);
+        assertBook(fromSnapshot, full.realized(), 5, 537.5, 3, 900.0);
+
+        // Events after the snapshot keep both paths in step
+        tradeLedger.append(List.of(trade(userId, "MSFT", TradeEvent.Side.SELL, 3, 1200.0, Instant.now())));
+        PositionBook after = tradeLedger.rebuild(userId);
+        assertBook(after, 477.5, 5, 537.5, 0, 0);
+    }
+
+    private static void assertBook(PositionBook book, double realized, int aaplQuantity, double aaplCost,
+                                   int msftQuantity, double msftCost) {
+        assertEquals(realized, book.realized(), 1e-9);
+        assertEquals(aaplQuantity, book.positions().get("AAPL").quantity());
+        assertEquals(aaplCost, book.positions().get("AAPL").cost(), 1e-9);
+        if (msftQuantity == 0) {
+            assertNull(book.positions().get("MSFT"));
+        } else {
+            assertEquals(msftQuantity, book.positions().get("MSFT").quantity());
+            assertEquals(msftCost, book.positions().get("MSFT").cost(), 1e-9);
+        }
+    }
+
+    private static TradeLedger.NewTrade trade(Long userId, String symbol, TradeEvent.Side side, int quantity,
+                                              Double amount, Instant at) {
+        return new TradeLedger.NewTrade(userId, symbol, side, quantity, amount, at);
+    }
+
+    private Long newUser() {
+        User user = new User();
+        user.setUsername("ledger-" + UUID.randomUUID());
+        user.setPassword("x");
+        return userRepository.save(user).getId();
+    }
+}
@@ -0,0 +1,145 @@
+package com.stocks.service;
+
+import com.stocks.exceptions.UpstreamQuotaException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UpstreamRateLimiterTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final AtomicReference<LocalDate> day = new AtomicReference<>(LocalDate.of(2024, 1, 2));
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void tokensRefillWithTimeAndTheDailyQuotaResetsAtMidnight() {
+        // 60 a minute: one token per second
+        UpstreamRateLimiter limiter = limiter(60, 100, 0, 0);
+        for (int i = 0; i < 60; i++) {
+            limiter.acquire(UpstreamPriority.INTERACTIVE);
+        }
+        assertThrows(UpstreamQuotaException.class, () -> limiter.acquire(UpstreamPriority.INTERACTIVE));
+
+        advanceMs(999);
+        assertThrows(UpstreamQuotaException.class, () -> limiter.acquire(UpstreamPriority.INTERACTIVE));
+        advanceMs(2);
+        limiter.acquire(UpstreamPriority.INTERACTIVE);
+        assertThrows(UpstreamQuotaException.class, () -> limiter.acquire(UpstreamPriority.INTERACTIVE));
+
+        // The bucket is full again, but only 39 calls are left today
+        advanceMs(120_000);
+        for (int i = 0; i < 39; i++) {
+            limiter.acquire(UpstreamPriority.INTERACTIVE);
+        }
+        assertThrows(UpstreamQuotaException.class, () -> limiter.acquire(UpstreamPriority.INTERACTIVE));
+
+        day.set(day.get().plusDays(1));
+        limiter.acquire(UpstreamPriority.INTERACTIVE);
+        assertEquals(4, shed(UpstreamPriority.INTERACTIVE));
+    }
+
+    @Test
+    void backgroundWorkLeavesTheInteractiveReserve() {
+        // Reserve: 2 of the 10 tokens a minute, and 20 of the 100 calls a day
+        UpstreamRateLimiter limiter = limiter(10, 100, 0.2, 0);
+        for (int i = 0; i < 8; i++) {
+            limiter.acquire(UpstreamPriority.BACKGROUND);
+        }
+        assertThrows(UpstreamQuotaException.class, () -> limiter.acquire(UpstreamPriority.BACKGROUND));
+
+        limiter.acquire(UpstreamPriority.INTERACTIVE);
+        limiter.acquire(UpstreamPriority.INTERACTIVE);
+        assertThrows(UpstreamQuotaException.class, () -> limiter.acquire(UpstreamPriority.INTERACTIVE));
+        assertEquals(1, shed(UpstreamPriority.BACKGROUND));
+
+        // Once the daily reserve is reached, background is refused even with a full bucket
+        for (int minute = 0; minute < 7; minute++) {
+            advanceMs(120_000);
+            for (int i = 0; i < 10; i++) {
+                limiter.acquire(UpstreamPriority.INTERACTIVE);
+            }
+        }
+        advanceMs(120_000);
+        assertThrows(UpstreamQuotaException.class, () -> limiter.acquire(UpstreamPriority.BACKGROUND));
+        limiter.acquire(UpstreamPriority.INTERACTIVE);
+    }
+
+    @Test
+    void backgroundWithNoWaitIsRefusedAtOnceWhenTheBucketIsEmpty() {
+        UpstreamRateLimiter limiter = limiter(60, 1000, 0, 0);
+        for (int i = 0; i < 60; i++) {
+            limiter.acquire(UpstreamPriority.BACKGROUND);
+        }
+        long before = System.nanoTime();
+        assertThrows(UpstreamQuotaException.class, () -> limiter.acquire(UpstreamPriority.BACKGROUND));
+        assertTrue(System.nanoTime() - before < TimeUnit.SECONDS.toNanos(1));
+        assertEquals(1, shed(UpstreamPriority.BACKGROUND));
+        assertEquals(0, queueDepth(UpstreamPriority.BACKGROUND));
+    }
+
+    @Test
+    void waitingInteractiveCallsGoBeforeEarlierSearches() throws Exception {
+        UpstreamRateLimiter limiter = limiter(60, 1000, 0, 60_000);
+        for (int i = 0; i < 60; i++) {
+            limiter.acquire(UpstreamPriority.INTERACTIVE);
+        }
+        ExecutorService threads = Executors.newFixedThreadPool(2);
+        try {
+            CompletableFuture<Void> search = CompletableFuture.runAsync(() -> limiter.acquire(UpstreamPriority.SEARCH), threads);
+            awaitTrue(() -> queueDepth(UpstreamPriority.SEARCH) == 1);
+            CompletableFuture<Void> interactive = CompletableFuture.runAsync(() -> limiter.acquire(UpstreamPriority.INTERACTIVE), threads);
+            awaitTrue(() -> queueDepth(UpstreamPriority.INTERACTIVE) == 1);
+
+            // One token: the later, higher-priority caller gets it
+            advanceMs(1000);
+            interactive.get(5, TimeUnit.SECONDS);
+            assertFalse(search.isDone());
+
+            advanceMs(1000);
+            search.get(5, TimeUnit.SECONDS);
+            assertEquals(0, shed(UpstreamPriority.SEARCH));
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+
+    private UpstreamRateLimiter limiter(int perMinute, long perDay, double reserve, long waitMs) {
+        return new UpstreamRateLimiter(perMinute, perDay, reserve, 200, waitMs, waitMs, 0, meterRegistry,
+                nanos::get, day::get);
+    }
+
+    private void advanceMs(long ms) {
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(ms));
+    }
+
+    private double shed(UpstreamPriority priority) {
+        return meterRegistry.counter("market.upstream.shed", "priority", priority.name().toLowerCase(Locale.ROOT)).count();
+    }
+
+    private double queueDepth(UpstreamPriority priority) {
+        return meterRegistry.get("market.upstream.queue.depth")
+                .tag("priority", priority.name().toLowerCase(Locale.ROOT)).gauge().value();
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not reached");
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.stocks.service;
+
+import com.stocks.dto.BarHistory;
+import com.stocks.dto.StockView;
+import com.stocks.dto.ValueAtRiskReport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ValueAtRiskServiceTest {
+
+    private static final int LOOKBACK = 60;
+
+    private final HoldingsCache holdingsCache = mock(HoldingsCache.class);
+    private final BarStore barStore = mock(BarStore.class);
+    private final ValueAtRiskService service = new ValueAtRiskService();
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void anyConfidenceIsServedFromOneSimulation() {
+        setUp(1);
+        ValueAtRiskReport p99 = service.valueAtRisk(1L, 0.99, 1, 10_000);
+        ValueAtRiskReport p95 = service.valueAtRisk(1L, 0.95, 1, 10_000);
+        // Fewer paths than were simulated are answered from the larger run
+        ValueAtRiskReport fewer = service.valueAtRisk(1L, 0.99, 1, 5_000);
+
+        verify(barStore, times(1)).range(eq("AAPL"), eq(BarInterval.DAILY), anyLong(), anyLong(), eq(LOOKBACK + 1));
+        assertTrue(p99.monteCarloVar() > p95.monteCarloVar());
+        assertEquals(p99.monteCarloVar(), fewer.monteCarloVar());
+        assertEquals(10_000, fewer.paths());
+        assertTrue(service.retainedValues() > 10_000);
+    }
+
+    @Test
+    void refusesNewSimulationsBeyondTheCapButStillServesCachedOnes() {
+        setUp(1);
+        service.valueAtRisk(1L, 0.99, 1, 10_000);
+        ReflectionTestUtils.setField(service, "maxConcurrentSimulations", 0);
+
+        service.valueAtRisk(1L, 0.9, 1, 10_000);
+        assertThrows(RejectedExecutionException.class, () -> service.valueAtRisk(1L, 0.99, 5, 10_000));
+    }
+
+    @Test
+    void concurrentRequestsForOneVersionShareASimulation() throws Exception {
+        setUp(2);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        BarHistory bars = bars();
+        when(barStore.range(eq("AAPL"), eq(BarInterval.DAILY), anyLong(), anyLong(), eq(LOOKBACK + 1)))
+            .thenAnswer(invocation -> {
+                loading.countDown();
+                release.await(5, TimeUnit.SECONDS);
+                return bars;
+            });
+
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            Future<ValueAtRiskReport> first = callers.submit(() -> service.valueAtRisk(1L, 0.99, 1, 10_000));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            Future<ValueAtRiskReport> second = callers.submit(() -> service.valueAtRisk(1L, 0.95, 1, 10_000));
+            Thread.sleep(50);
+            release.countDown();
+
+            assertTrue(first.get(5, TimeUnit.SECONDS).monteCarloVar() > second.get(5, TimeUnit.SECONDS).monteCarloVar());
+            verify(barStore, times(1)).range(eq("AAPL"), eq(BarInterval.DAILY), anyLong(), anyLong(), eq(LOOKBACK + 1));
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    private void setUp(int maxConcurrent) {
+        ReflectionTestUtils.setField(service, "holdingsCache", holdingsCache);
+        ReflectionTestUtils.setField(service, "barStore", barStore);
+        ReflectionTestUtils.setField(service, "lookbackDays", LOOKBACK);
+        ReflectionTestUtils.setField(service, "parallelism", 2);
+        ReflectionTestUtils.setField(service, "maxValues", 1_000_000L);
+        ReflectionTestUtils.setField(service, "maxConcurrentSimulations", maxConcurrent);
+        ReflectionTestUtils.setField(service, "seed", 42L);
+        service.init();
+
+        when(holdingsCache.get(1L)).thenReturn(List.of(new StockView(10L, "AAPL", 1500.0, 10, 3)));
+        BarHistory bars = bars();
+        when(barStore.range(eq("AAPL"), eq(BarInterval.DAILY), anyLong(), anyLong(), eq(1)))
+            .thenReturn(new BarHistory("AAPL", "DAILY", new long[] {bars.timestamps()[LOOKBACK]}, null, null, null,
+                    new double[] {bars.close()[LOOKBACK]}, null));
+        when(barStore.range(eq("AAPL"), eq(BarInterval.DAILY), anyLong(), anyLong(), eq(LOOKBACK + 1)))
+            .thenReturn(bars);
+    }
+
+    private static BarHistory bars() {
+        SplittableRandom random = new SplittableRandom(1);
+        long[] timestamps = new long[LOOKBACK + 1];
+        double[] close = new double[LOOKBACK + 1];
+        double price = 150;
+        for (int i = 0; i <= LOOKBACK; i++) {
+            timestamps[i] = (19_000L + i) * 86_400L;
+            price *= Math.exp(0.01 * random.nextGaussian());
+            close[i] = price;
+        }
+        return new BarHistory("AAPL", "DAILY", timestamps, close, close, close, close, new long[LOOKBACK + 1]);
+    }
+}
@@ -0,0 +1,67 @@
+package com.stocks.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AlertIndexTest {
+
+    @Test
+    void firesOnlyTheAlertsATickCrossesAndEachOnce() {
+        AlertIndex index = new AlertIndex();
+        index.add("AAPL", 1, 110, Double.NaN);
+        index.add("AAPL", 2, 120, Double.NaN);
+        index.add("AAPL", 3, Double.NaN, 90);
+        index.add("MSFT", 4, 100, Double.NaN);
+
+        assertEquals(List.of(), fired(index, "AAPL", 105));
+        assertEquals(List.of(1L), fired(index, "AAPL", 110));
+        assertEquals(List.of(), fired(index, "AAPL", 115));
+        assertEquals(List.of(2L, 3L), both(fired(index, "AAPL", 125), fired(index, "AAPL", 80)));
+        assertEquals(List.of(), fired(index, "AAPL", 200));
+        assertEquals(1, index.size());
+        assertEquals(List.of("MSFT"), List.copyOf(index.symbols()));
+    }
+
+    @Test
+    void twoSidedAlertsFireOnFirstCrossingOnly() {
+        AlertIndex index = new AlertIndex();
+        index.add("IBM", 7, 105, 95);
+
+        assertEquals(List.of(7L), fired(index, "IBM", 94));
+        assertEquals(List.of(), fired(index, "IBM", 106));
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void removedAlertsNeverFire() {
+        AlertIndex index = new AlertIndex();
+        for (long id = 0; id < 1000; id++) {
+            index.add("TSLA", id, 200 + id, 100 - id * 0.01);
+        }
+        for (long id = 0; id < 1000; id += 2) {
+            index.remove("TSLA", id);
+        }
+        assertEquals(500, index.size());
+
+        List<Long> ids = fired(index, "TSLA", 5000);
+        assertEquals(500, ids.size());
+        ids.forEach(id -> assertEquals(1, id % 2));
+        assertEquals(List.of(), fired(index, "TSLA", 0));
+    }
+
+    private static List<Long> fired(AlertIndex index, String symbol, double price) {
+        List<Long> ids = new ArrayList<>();
+        index.match(symbol, price, ids::add);
+        return ids;
+    }
+
+    private static List<Long> both(List<Long> first, List<Long> second) {
+        List<Long> all = new ArrayList<>(first);
+        all.addAll(second);
+        return all;
+    }
+}
@@ -0,0 +1,58 @@
+package com.stocks.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IndicatorTest {
+
+    private static final long[] TS = {0, 60, 120, 180, 240, 300};
+    private static final double[] CLOSE = {1, 2, 3, 4, 5, 6};
+    private static final long[] VOLUME = {1, 1, 1, 1, 1, 1};
+
+    @Test
+    void smaIsNaNDuringWarmUpThenTheWindowMean() {
+        double[][] out = run("sma:3", 6);
+        assertTrue(Double.isNaN(out[0][1]));
+        assertArrayEquals(new double[] {2, 3, 4, 5}, Arrays.copyOfRange(out[0], 2, 6), 1e-12);
+    }
+
+    @Test
+    void copiedStateMatchesAFullPass() {
+        for (String spec : new String[] {"sma:3", "ema:3", "rsi:2", "macd:2:3:2", "bb:3:2", "vwap", "vwap:2"}) {
+            double[][] full = run(spec, 6);
+
+            Indicator indicator = Indicator.parse(spec);
+            double[][] out = new double[indicator.outputs().length][6];
+            indicator.run(TS, CLOSE, CLOSE, CLOSE, VOLUME, 0, 5, out, 0);
+            indicator.copy().update(TS[5], CLOSE[5], CLOSE[5], CLOSE[5], VOLUME[5], out, 5);
+            for (int o = 0; o < out.length; o++) {
+                assertEquals(full[o][5], out[o][5], 1e-12, spec);
+            }
+        }
+    }
+
+    @Test
+    void rsiOfAStrictlyRisingSeriesIs100() {
+        assertEquals(100, run("rsi:3", 6)[0][5], 1e-12);
+    }
+
+    @Test
+    void unknownSpecsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> Indicator.parse("foo:3"));
+        assertThrows(IllegalArgumentException.class, () -> Indicator.parse("sma:0"));
+        assertThrows(IllegalArgumentException.class, () -> Indicator.parse("sma:x"));
+    }
+
+    private static double[][] run(String spec, int bars) {
+        Indicator indicator = Indicator.parse(spec);
+        double[][] out = new double[indicator.outputs().length][bars];
+        indicator.run(TS, CLOSE, CLOSE, CLOSE, VOLUME, 0, bars, out, 0);
+        return out;
+    }
+}
@@ -0,0 +1,36 @@
+package com.stocks.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TickFileTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void writtenTicksReadBackThroughTheMapping() throws Exception {
+        Path path = dir.resolve("AAPL.ticks");
+        TickFile.write(path, new long[] {1_000L, 2_000L, 3_000L}, new double[] {189.5, 190.25, 188.75});
+
+        TickFile ticks = TickFile.open(path);
+        assertEquals(3, ticks.size());
+        assertEquals(2_000L, ticks.timestamp(1));
+        assertEquals(188.75, ticks.price(2));
+    }
+
+    @Test
+    void syntheticSeriesIsTheSameOnEveryRun() {
+        TickFile first = TickFile.synthetic("MSFT", 500, 0, 60_000);
+        TickFile second = TickFile.synthetic("MSFT", 500, 0, 60_000);
+        for (int i = 0; i < 500; i++) {
+            assertEquals(first.price(i), second.price(i));
+        }
+        assertEquals(500, first.size());
+        assertEquals(499 * 60_000L, first.timestamp(499));
+    }
+}
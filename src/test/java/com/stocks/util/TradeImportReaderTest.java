@@ -0,0 +1,75 @@
+package com.stocks.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TradeImportReaderTest {
+
+    @Test
+    void readsCsvByHeaderAndRejectsBadRows() throws IOException {
+        Recorder recorder = new Recorder();
+        TradeImportReader.readCsv(new StringReader("""
+                Quantity,Symbol,Price,Side,Executed_At,Note
+                10,AAPL,1500,buy,2024-03-01T14:30:00Z,"first, lot"
+
+                4, aapl ,,SELL,,
+                0,MSFT,100,BUY,,
+                2,MSFT,,BUY,,
+                """), recorder);
+
+        assertEquals(List.of(
+                "1 AAPL BUY 10 1500.0 2024-03-01T14:30:00Z",
+                "2 AAPL SELL 4 null null"), recorder.trades);
+        assertEquals(List.of(
+                "3 quantity must be a positive integer",
+                "4 a buy needs its amount"), recorder.rejects);
+    }
+
+    @Test
+    void readsJsonArraysOfObjects() throws IOException {
+        Recorder recorder = new Recorder();
+        String json = """
+                [{"symbol": "IBM", "quantity": 3, "amount": 450.5, "extra": {"ignored": [1, 2]}},
+                 {"symbol": "IBM", "side": "SELL", "quantity": "1", "amount": 160},
+                 {"symbol": "IBM", "side": "HOLD", "quantity": 1},
+                 42]
+                """;
+        TradeImportReader.readJson(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), recorder);
+
+        assertEquals(List.of(
+                "1 IBM BUY 3 450.5 null",
+                "2 IBM SELL 1 160.0 null"), recorder.trades);
+        assertEquals(List.of("3 side must be BUY or SELL", "4 not an object"), recorder.rejects);
+    }
+
+    @Test
+    void failsWithoutTheRequiredColumns() {
+        assertThrows(IllegalArgumentException.class,
+                () -> TradeImportReader.readCsv(new StringReader("ticker,qty\nAAPL,1\n"), new Recorder()));
+    }
+
+    private static final class Recorder implements TradeImportReader.Handler {
+        private final List<String> trades = new ArrayList<>();
+        private final List<String> rejects = new ArrayList<>();
+
+        @Override
+        public void trade(long row, String symbol, boolean buy, int quantity, Double amount, Instant executedAt) {
+            trades.add(row + " " + symbol + " " + (buy ? "BUY" : "SELL") + " " + quantity + " " + amount + " " + executedAt);
+        }
+
+        @Override
+        public void reject(long row, String reason) {
+            rejects.add(row + " " + reason);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.stocks.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ValueAtRiskTest {
+
+    @Test
+    void historicalVarIsTheLossAtTheQuantile() {
+        double[][] returns = {{-0.02, 0.01, 0.0, -0.01, 0.03}};
+        ValueAtRisk.Estimate estimate = ValueAtRisk.historical(returns, new double[] {100}, 1, 0.6);
+
+        // Two worst of five scenarios are in the 40% tail
+        assertEquals(-100 * Math.expm1(-0.01), estimate.var(), 1e-9);
+        assertEquals(-50 * (Math.expm1(-0.02) + Math.expm1(-0.01)), estimate.cvar(), 1e-9);
+    }
+
+    @Test
+    void monteCarloMatchesTheNormalQuantileForOneAsset() {
+        double[] cholesky = ValueAtRisk.cholesky(new double[] {1e-4}, 1);
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            ValueAtRisk.Estimate estimate = ValueAtRisk.monteCarlo(new double[] {0}, cholesky, new double[] {1000},
+                    1, 0.99, 200_000, 42, pool);
+            // 2.326 sigma of a 1% daily move, slightly less once revalued through exp
+            assertEquals(23.0, estimate.var(), 0.5);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void sameSeedGivesTheSameAnswerOnAnyNumberOfThreads() {
+        double[] cholesky = ValueAtRisk.cholesky(new double[] {1e-4, 5e-5, 5e-5, 4e-4}, 2);
+        double[] exposure = {1000, 500};
+        ForkJoinPool one = new ForkJoinPool(1);
+        ForkJoinPool four = new ForkJoinPool(4);
+        try {
+            ValueAtRisk.Estimate serial = ValueAtRisk.monteCarlo(new double[2], cholesky, exposure, 5, 0.95, 50_000, 7, one);
+            ValueAtRisk.Estimate parallel = ValueAtRisk.monteCarlo(new double[2], cholesky, exposure, 5, 0.95, 50_000, 7, four);
+            assertEquals(serial, parallel);
+        } finally {
+            one.shutdown();
+            four.shutdown();
+        }
+    }
+
+    @Test
+    void choleskyOfASingularCovarianceZeroesTheDependentColumn() {
+        assertArrayEquals(new double[] {0.01, 0, 0.01, 0}, ValueAtRisk.cholesky(new double[] {1e-4, 1e-4, 1e-4, 1e-4}, 2), 1e-12);
+    }
+}